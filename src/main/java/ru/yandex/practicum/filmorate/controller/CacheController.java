@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.model.CacheStats;
+import ru.yandex.practicum.filmorate.model.SingleFlightStats;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.cache.CachingFilmStorage;
+import ru.yandex.practicum.filmorate.storage.cache.CachingUserStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RestController
+@RequestMapping("/cache")
+@Slf4j
+@RequiredArgsConstructor
+public class CacheController {
+    private final CachingFilmStorage filmStorage;
+    private final CachingUserStorage userStorage;
+    private final FilmService filmService;
+    private final UserService userService;
+
+    @GetMapping("/stats")
+    public List<CacheStats> getCacheStats() {
+        log.debug("Запрос на статистику кэшей");
+        return List.of(filmStorage.getCacheStats(), userStorage.getCacheStats());
+    }
+
+    @GetMapping("/single-flight/stats")
+    public List<SingleFlightStats> getSingleFlightStats() {
+        log.debug("Запрос на статистику объединения одновременных запросов");
+        List<SingleFlightStats> stats = new ArrayList<>(filmService.getSingleFlightStats());
+        stats.add(userService.getSingleFlightStats());
+        return stats;
+    }
+}
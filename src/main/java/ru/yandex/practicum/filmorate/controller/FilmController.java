@@ -1,16 +1,30 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.CursorPage;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Suggestion;
+import ru.yandex.practicum.filmorate.model.TextIndexStats;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.validation.ValidationException;
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Positive;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,7 +35,11 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class FilmController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int EXPORT_CHUNK_SIZE = 500;
+
     private final FilmService filmService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     public ResponseEntity<Film> addFilm(@Valid @RequestBody Film film) {
@@ -43,14 +61,60 @@ public class FilmController {
     }
 
     @GetMapping
-    public List<Film> getAllFilms() {
-        log.debug("Запрос на получение всех фильмов");
-        return filmService.getAllFilms();
+    public ResponseEntity<List<Film>> getAllFilms(@RequestParam(required = false) Long after,
+                                                  @RequestParam(defaultValue = "100") @Positive @Max(1000) int limit,
+                                                  @RequestParam(defaultValue = "false") boolean unpaged) {
+        if (unpaged) {
+            log.debug("Запрос на получение всех фильмов без пагинации");
+            return ResponseEntity.ok(filmService.getAllFilms());
+        }
+
+        log.debug("Запрос на получение страницы фильмов: after={}, limit={}", after, limit);
+        CursorPage<Film> page = filmService.getFilmsPage(after, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(page.getNextCursor()));
+        }
+        return response.body(page.getItems());
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportFilms(@RequestParam(defaultValue = "ndjson") String format) {
+        log.debug("Запрос на выгрузку каталога фильмов в формате {}", format);
+        boolean ndjson = switch (format) {
+            case "ndjson" -> true;
+            case "json" -> false;
+            default -> throw new ValidationException("Параметр 'format' должен быть 'ndjson' или 'json'.");
+        };
+
+        StreamingResponseBody body = outputStream -> {
+            ObjectWriter writer = objectMapper.writer().withRootValueSeparator("\n");
+            try (SequenceWriter sequenceWriter = ndjson
+                    ? writer.writeValues(outputStream)
+                    : writer.writeValuesAsArray(outputStream)) {
+                filmService.exportFilms(EXPORT_CHUNK_SIZE, chunk -> {
+                    try {
+                        sequenceWriter.writeAll(chunk);
+                        sequenceWriter.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(ndjson ? MediaType.parseMediaType("application/x-ndjson") : MediaType.APPLICATION_JSON)
+                .body(body);
     }
 
     @GetMapping("/{filmId}")
-    public Film getFilmById(@PathVariable long filmId) {
+    public Film getFilmById(@PathVariable long filmId, WebRequest request) {
         log.debug("Запрос на получение фильма по id: {}", filmId);
+        // Тег вычисляется до чтения фильма, поэтому он никогда не окажется новее тела ответа
+        if (request.checkNotModified(filmService.getFilmTag(filmId))) {
+            return null;
+        }
         return filmService.getFilmById(filmId);
     }
 
@@ -69,19 +133,37 @@ public class FilmController {
     @GetMapping("/popular")
     public List<Film> getPopularFilms(@RequestParam(defaultValue = "10") int count,
                                       @RequestParam(required = false) Long genreId,
-                                      @RequestParam(required = false) Integer year) {
+                                      @RequestParam(required = false) Integer year,
+                                      WebRequest request) {
         log.debug("Запрос на популярные фильмы. Количество={}, жанр={}, год={}", count, genreId, year);
+        if (request.checkNotModified(filmService.getPopularFilmsTag())) {
+            return null;
+        }
         return filmService.getPopularFilms(count, genreId, year);
     }
 
     @GetMapping("/search")
-    public List<Film> findFilmsBySubstring(@RequestParam String query, @RequestParam String by) {
+    public List<Film> findFilmsBySubstring(@RequestParam String query, @RequestParam String by,
+                                           @RequestParam(defaultValue = "100") @Positive @Max(1000) int limit) {
         log.debug("Запрос на поиск фильмов с подстрокой '{}' в '{}'", query, by);
-        return filmService.findFilmsBySubstring(query, by);
+        return filmService.findFilmsBySubstring(query, by, limit);
+    }
+
+    @GetMapping("/search/stats")
+    public TextIndexStats getTextIndexStats() {
+        log.debug("Запрос на статистику полнотекстового индекса");
+        return filmService.getTextIndexStats();
+    }
+
+    @GetMapping("/search/suggest")
+    public List<Suggestion> suggest(@RequestParam String prefix,
+                                    @RequestParam(defaultValue = "10") @Positive @Max(100) int limit) {
+        log.debug("Запрос на подсказки по префиксу '{}', количество={}", prefix, limit);
+        return filmService.suggest(prefix, limit);
     }
 
     @GetMapping("/common")
-    public List<Film> findCommonFilms(@RequestParam long userId, @RequestParam long friendId) {
+    public List<Film> findCommonFilms(@RequestParam long userId, @RequestParam List<Long> friendId) {
         log.debug("Запрос на общие фильмы для пользователей id={} и id={}", userId, friendId);
         return filmService.getCommonFilms(userId, friendId);
     }
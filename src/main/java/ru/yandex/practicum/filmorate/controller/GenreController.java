@@ -4,6 +4,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
@@ -18,14 +19,20 @@ public class GenreController {
     private final FilmService filmService;
 
     @GetMapping
-    public List<Genre> getAllGenres() {
+    public List<Genre> getAllGenres(WebRequest request) {
         log.debug("Запрос на получение всех жанров");
+        if (request.checkNotModified(filmService.getGenresTag())) {
+            return null;
+        }
         return filmService.getAllGenres();
     }
 
     @GetMapping("/{id}")
-    public Genre getGenreById(@PathVariable long id) {
+    public Genre getGenreById(@PathVariable long id, WebRequest request) {
         log.debug("Запрос на получение жанра по id: {}", id);
+        if (request.checkNotModified(filmService.getGenresTag())) {
+            return null;
+        }
         return filmService.getGenreById(id);
     }
 }
@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.model.ImportResult;
+import ru.yandex.practicum.filmorate.service.ImportService;
+
+import java.io.InputStream;
+
+// Массовая загрузка в формате NDJSON: тело запроса читается потоком, по одной записи в строке
+@RestController
+@RequestMapping("/import")
+@Slf4j
+@RequiredArgsConstructor
+public class ImportController {
+
+    private final ImportService importService;
+
+    @PostMapping("/films")
+    public ImportResult importFilms(InputStream body) {
+        log.debug("Запрос на импорт фильмов");
+        return importService.importFilms(body);
+    }
+
+    @PostMapping("/users")
+    public ImportResult importUsers(InputStream body) {
+        log.debug("Запрос на импорт пользователей");
+        return importService.importUsers(body);
+    }
+
+    @PostMapping("/likes")
+    public ImportResult importLikes(InputStream body) {
+        log.debug("Запрос на импорт лайков");
+        return importService.importLikes(body);
+    }
+
+    @PostMapping("/friendships")
+    public ImportResult importFriendships(InputStream body) {
+        log.debug("Запрос на импорт дружбы");
+        return importService.importFriendships(body);
+    }
+}
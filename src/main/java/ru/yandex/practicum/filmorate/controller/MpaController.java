@@ -4,6 +4,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import ru.yandex.practicum.filmorate.model.MPA;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
@@ -18,14 +19,20 @@ public class MpaController {
     private final FilmService filmService;
 
     @GetMapping
-    public List<MPA> getAllMpas() {
+    public List<MPA> getAllMpas(WebRequest request) {
         log.debug("Запрос на получение всех рейтингов МПА");
+        if (request.checkNotModified(filmService.getMpaTag())) {
+            return null;
+        }
         return filmService.getAllMPAs();
     }
 
     @GetMapping("/{id}")
-    public MPA getMpaById(@PathVariable long id) {
+    public MPA getMpaById(@PathVariable long id, WebRequest request) {
         log.debug("Запрос на получение рейтинга МПА по id: {}", id);
+        if (request.checkNotModified(filmService.getMpaTag())) {
+            return null;
+        }
         return filmService.getMPAById(id);
     }
 }
@@ -8,8 +8,18 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+import ru.yandex.practicum.filmorate.model.CursorPage;
 import ru.yandex.practicum.filmorate.model.Event;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FriendSuggestion;
+import ru.yandex.practicum.filmorate.model.ItemSimilarityStats;
+import ru.yandex.practicum.filmorate.model.MinHashEvaluation;
+import ru.yandex.practicum.filmorate.model.RecommendationStats;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.EventService;
 import ru.yandex.practicum.filmorate.service.UserService;
@@ -19,6 +29,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.validation.annotation.Validated;
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Positive;
 
 import java.util.List;
 
@@ -29,6 +41,8 @@ import java.util.List;
 @RequiredArgsConstructor
 public class UserController {
 
+    private static final int DEFAULT_FEED_PAGE = 100;
+
     private final UserService userService;
     private final EventService eventService;
 
@@ -51,21 +65,62 @@ public class UserController {
     }
 
     @GetMapping
-    public List<User> getAllUsers() {
-        log.debug("Запрос на получение всех пользователей");
-        return userService.getAllUsers();
+    public ResponseEntity<List<User>> getAllUsers(@RequestParam(required = false) Long after,
+                                                  @RequestParam(defaultValue = "100") @Positive @Max(1000) int limit,
+                                                  @RequestParam(defaultValue = "false") boolean unpaged) {
+        if (unpaged) {
+            log.debug("Запрос на получение всех пользователей без пагинации");
+            return ResponseEntity.ok(userService.getAllUsers());
+        }
+
+        log.debug("Запрос на получение страницы пользователей: after={}, limit={}", after, limit);
+        CursorPage<User> page = userService.getUsersPage(after, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(FilmController.NEXT_CURSOR_HEADER, String.valueOf(page.getNextCursor()));
+        }
+        return response.body(page.getItems());
     }
 
     @GetMapping("/{id}")
-    public User getUserById(@PathVariable long id) {
+    public User getUserById(@PathVariable long id, WebRequest request) {
         log.debug("Запрос пользователя с id: {}", id);
+        if (request.checkNotModified(userService.getUserTag(id))) {
+            return null;
+        }
         return userService.getUserById(id);
     }
 
+    // Без параметров возвращается вся лента по возрастанию ID события, с before или limit - страница от новых к старым
     @GetMapping("{id}/feed")
-    public List<Event> getAllEventsById(@PathVariable long id) {
-        log.debug("Запрос ленты событий от пользователя с id: {}", id);
-        return eventService.getAllEventsById(id);
+    public ResponseEntity<List<Event>> getAllEventsById(@PathVariable long id,
+                                                        @RequestParam(required = false) Long before,
+                                                        @RequestParam(required = false) @Positive @Max(1000) Integer limit) {
+        if (before == null && limit == null) {
+            log.debug("Запрос ленты событий от пользователя с id: {}", id);
+            return ResponseEntity.ok(eventService.getAllEventsById(id));
+        }
+
+        log.debug("Запрос страницы ленты событий пользователя с id {}: before={}, limit={}", id, before, limit);
+        CursorPage<Event> page = eventService.getEventsPage(id, before, limit == null ? DEFAULT_FEED_PAGE : limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(FilmController.NEXT_CURSOR_HEADER, String.valueOf(page.getNextCursor()));
+        }
+        return response.body(page.getItems());
+    }
+
+    @GetMapping("/{id}/timeline")
+    public ResponseEntity<List<Event>> getTimeline(@PathVariable long id,
+                                                   @RequestParam(required = false) Long before,
+                                                   @RequestParam(defaultValue = "100") @Positive @Max(1000) int limit) {
+        log.debug("Запрос ленты друзей пользователя с id {}: before={}, limit={}", id, before, limit);
+        CursorPage<Event> page = userService.getTimeline(id, before, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(FilmController.NEXT_CURSOR_HEADER, String.valueOf(page.getNextCursor()));
+        }
+        return response.body(page.getItems());
     }
 
     @PutMapping("/{id}/friends/{friendId}")
@@ -86,15 +141,58 @@ public class UserController {
         return userService.getFriends(id);
     }
 
+    @GetMapping("/{id}/friends/suggestions")
+    public List<FriendSuggestion> getFriendSuggestions(@PathVariable long id,
+                                                       @RequestParam(defaultValue = "20") @Positive @Max(1000) int limit) {
+        log.debug("Получение рекомендаций друзей для {}, количество {}", id, limit);
+        return userService.getFriendSuggestions(id, limit);
+    }
+
     @GetMapping("/{id}/friends/common/{otherId}")
     public List<User> getCommonFriends(@PathVariable long id, @PathVariable long otherId) {
         log.debug("Получение общих друзей между {} и {}", id, otherId);
         return userService.getCommonFriends(id, otherId);
     }
 
+    @GetMapping("/recommendations/stats")
+    public RecommendationStats getRecommendationStats() {
+        log.debug("Запрос на статистику хранилища рекомендаций");
+        return userService.getRecommendationStats();
+    }
+
+    @GetMapping("/recommendations/item/stats")
+    public ItemSimilarityStats getItemSimilarityStats() {
+        log.debug("Запрос на статистику матрицы сходства фильмов");
+        return userService.getItemSimilarityStats();
+    }
+
+    // Полнота приближённого режима относительно точного на рабочих параметрах
+    @GetMapping("/recommendations/approx/evaluation")
+    public MinHashEvaluation evaluateApproxRecommendations(
+            @RequestParam(defaultValue = "1000") @Positive @Max(10000) int sample) {
+        log.debug("Оценка приближённых рекомендаций: выборка {}", sample);
+        return userService.evaluateApproxRecommendations(sample);
+    }
+
+    // Другие параметры требуют построить сигнатуры заново, поэтому оценка идёт в фоне, а результат читается отдельно
+    @PostMapping("/recommendations/approx/evaluation")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public void startApproxEvaluation(@RequestParam(defaultValue = "1000") @Positive @Max(10000) int sample,
+                                      @RequestParam @Positive @Max(1024) int hashes,
+                                      @RequestParam @Positive @Max(1024) int bands) {
+        log.debug("Запуск оценки приближённых рекомендаций: выборка {}, хэшей {}, полос {}", sample, hashes, bands);
+        userService.startApproxEvaluation(sample, hashes, bands);
+    }
+
+    @GetMapping("/recommendations/approx/evaluation/custom")
+    public MinHashEvaluation getApproxEvaluation() {
+        log.debug("Запрос на результат оценки приближённых рекомендаций");
+        return userService.getApproxEvaluation();
+    }
+
     @GetMapping("{id}/recommendations")
-    public List<Film> getRecommendations(@PathVariable long id) {
-        log.debug("Получение рекомендаций для {}", id);
-        return userService.getRecommendations(id);
+    public List<Film> getRecommendations(@PathVariable long id, @RequestParam(defaultValue = "user") String mode) {
+        log.debug("Получение рекомендаций для {}, режим {}", id, mode);
+        return userService.getRecommendations(id, mode);
     }
 }
\ No newline at end of file
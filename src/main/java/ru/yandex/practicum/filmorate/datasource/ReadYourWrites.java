@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.datasource;
+
+import java.util.function.Supplier;
+
+// Признак текущего потока: читать только с основной БД. Выставляется для запросов с записью
+// и для клиентов, недавно выполнивших запись, чтобы они не увидели отстающую реплику,
+// а также при загрузке индексов в память и заполнении кэшей, которые потом получают только изменения.
+public final class ReadYourWrites {
+
+    private static final ThreadLocal<Boolean> PRIMARY_REQUIRED = new ThreadLocal<>();
+
+    private ReadYourWrites() {
+    }
+
+    public static boolean isPrimaryRequired() {
+        return Boolean.TRUE.equals(PRIMARY_REQUIRED.get());
+    }
+
+    public static void requirePrimary() {
+        PRIMARY_REQUIRED.set(Boolean.TRUE);
+    }
+
+    public static void clear() {
+        PRIMARY_REQUIRED.remove();
+    }
+
+    public static <T> T onPrimary(Supplier<T> action) {
+        boolean alreadyRequired = isPrimaryRequired();
+        requirePrimary();
+        try {
+            return action.get();
+        } finally {
+            if (!alreadyRequired) {
+                clear();
+            }
+        }
+    }
+
+    public static void runOnPrimary(Runnable action) {
+        onPrimary(() -> {
+            action.run();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+// Включается, если задан адрес реплики. Без него приложение работает с одной БД из spring.datasource
+@Slf4j
+@Configuration
+@ConditionalOnProperty("filmorate.datasource.replica.url")
+public class ReplicaDataSourceConfig {
+
+    @Value("${filmorate.datasource.replica.url}")
+    private String replicaUrl;
+    @Value("${filmorate.datasource.replica.username:${spring.datasource.username:}}")
+    private String replicaUsername;
+    @Value("${filmorate.datasource.replica.password:${spring.datasource.password:}}")
+    private String replicaPassword;
+    @Value("${filmorate.datasource.read-your-writes-window:5s}")
+    private Duration readYourWritesWindow;
+
+    @Bean
+    public ReplicaRoutingDataSource routingDataSource(DataSourceProperties properties) {
+        DataSource primary = properties.initializeDataSourceBuilder().build();
+        DataSource replica = DataSourceBuilder.create()
+                .driverClassName(properties.determineDriverClassName())
+                .url(replicaUrl)
+                .username(replicaUsername)
+                .password(replicaPassword)
+                .build();
+        log.info("Чтение в транзакциях только для чтения направляется на реплику {}", replicaUrl);
+        return new ReplicaRoutingDataSource(primary, replica);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter() {
+        return new FilterRegistrationBean<>(new ReadYourWritesFilter(readYourWritesWindow));
+    }
+}
@@ -0,0 +1,13 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class CursorPage<T> {
+
+    private final List<T> items;
+    // ID последнего элемента страницы, null - если следующей страницы нет
+    private final Long nextCursor;
+}
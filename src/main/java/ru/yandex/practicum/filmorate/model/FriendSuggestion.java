@@ -0,0 +1,11 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Data;
+
+@Data
+public class FriendSuggestion {
+
+    private final User user;
+    // Сколько друзей пользователя уже дружат с предложенным
+    private final int mutualFriends;
+}
@@ -0,0 +1,14 @@
+package ru.yandex.practicum.filmorate.model;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+public class FriendshipImport {
+
+    @NotNull(message = "ID пользователя не может быть пустым.")
+    private Long userId; // пользователь, который отправил запрос на добавление в друзья
+
+    @NotNull(message = "ID друга не может быть пустым.")
+    private Long friendId;
+}
@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class ImportResult {
+
+    // Подробности сохраняются только для первых ошибок, остальные учитываются в счётчике failed
+    public static final int MAX_ERRORS = 1000;
+
+    private final String entity;
+    private long processed;
+    private long imported;
+    // Записи, которые уже есть в БД (повторный лайк или дружба)
+    private long skipped;
+    private long failed;
+    private long durationMillis;
+    private final List<RecordError> errors = new ArrayList<>();
+
+    public void addError(long line, String message) {
+        failed++;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add(new RecordError(line, message));
+        }
+    }
+
+    @Data
+    public static class RecordError {
+        // Номер строки во входном потоке, начиная с 1
+        private final long line;
+        private final String message;
+    }
+}
@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Data;
+
+@Data
+public class ItemSimilarityStats {
+
+    private final String metric;
+    private final int topK;
+    private final int films;
+    // Хранимые связи фильм - сосед
+    private final long neighbours;
+    private final long matrixBytes;
+    // Лайки изменились после последней сборки, матрица ждёт перестроения
+    private final boolean stale;
+    private final long builds;
+    private final long lastBuildMillis;
+    private final long queries;
+    private final double avgQueryMicros;
+    private final long maxQueryMicros;
+}
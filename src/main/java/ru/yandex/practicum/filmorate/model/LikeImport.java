@@ -0,0 +1,14 @@
+package ru.yandex.practicum.filmorate.model;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+public class LikeImport {
+
+    @NotNull(message = "ID пользователя не может быть пустым.")
+    private Long userId;
+
+    @NotNull(message = "ID фильма не может быть пустым.")
+    private Long filmId;
+}
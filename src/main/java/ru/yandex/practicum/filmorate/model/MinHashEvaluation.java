@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Data;
+
+@Data
+public class MinHashEvaluation {
+
+    private final int hashes;
+    private final int bands;
+    private final int rowsPerBand;
+    private final int sampledUsers;
+    // Доля пользователей, для которых приближённый поиск нашёл соседа с тем же числом общих лайков, что и точный
+    private final double recall;
+    private final double avgCandidates;
+    private final double avgExactMicros;
+    private final double avgApproxMicros;
+    // Время построения сигнатур для проверяемых параметров, 0 - если проверялся рабочий индекс
+    private final long buildMillis;
+}
@@ -0,0 +1,23 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Data;
+
+@Data
+public class RecommendationStats {
+
+    // Пользователи с готовыми рекомендациями
+    private final int storedUsers;
+    // Пользователи, чьи рекомендации устарели: ждут пересчёта или пересчитываются
+    private final int dirtyUsers;
+    // Разметки после лайков, которые ждут выполнения в пуле или выполняются
+    private final int pendingFanOuts;
+    // Сколько ждёт пересчёта самая давно устаревшая запись
+    private final long maxStalenessMillis;
+    private final long recomputed;
+    // Пересчёты в потоке запроса для пользователей, у которых ещё нет записи
+    private final long coldComputes;
+    // Задержка от первого изменения до сохранения новых рекомендаций
+    private final long lastLagMillis;
+    private final long maxLagMillis;
+    private final double avgLagMillis;
+}
@@ -0,0 +1,14 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Data;
+
+@Data
+public class SingleFlightStats {
+
+    private final String name;
+    // Запросы, которые сами выполнили вычисление
+    private final long leaders;
+    // Запросы, получившие результат уже выполнявшегося вычисления
+    private final long coalesced;
+    private final int inFlight;
+}
@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Data;
+
+@Data
+public class Suggestion {
+
+    private final SuggestionType type;
+    private final Long id;
+    private final String text;
+    private final int likes;
+
+    public enum SuggestionType {
+        FILM,
+        DIRECTOR
+    }
+}
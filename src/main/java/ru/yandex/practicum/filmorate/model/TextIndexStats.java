@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class TextIndexStats {
+
+    private final int documents;
+    private final int terms;
+    // Удалённые документы, ещё не вычищенные из списков вхождений
+    private final int deletedDocuments;
+    private final long lastRebuildMillis;
+    private final LocalDateTime lastRebuildAt;
+    private final long updates;
+    private final long averageUpdateMicros;
+}
@@ -6,6 +6,8 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.storage.DirectorStorage;
+import ru.yandex.practicum.filmorate.storage.index.DirectorFilmsIndex;
+import ru.yandex.practicum.filmorate.storage.index.FilmSearchIndex;
 
 import java.util.List;
 
@@ -16,6 +18,9 @@ public class DirectorService {
 
     @Qualifier("directorDbStorage")
     private final DirectorStorage directorStorage;
+    private final FilmSearchIndex searchIndex;
+    private final DirectorFilmsIndex directorFilmsIndex;
+    private final EntityVersions entityVersions;
 
     public List<Director> getAllDirectors() {
         return directorStorage.getAllDirectors();
@@ -26,14 +31,22 @@ public class DirectorService {
     }
 
     public Director addDirector(Director director) {
-        return directorStorage.addDirector(director);
+        Director addedDirector = directorStorage.addDirector(director);
+        searchIndex.onDirectorSaved(addedDirector);
+        return addedDirector;
     }
 
     public Director updateDirector(Director director) {
-        return directorStorage.updateDirector(director);
+        Director updatedDirector = directorStorage.updateDirector(director);
+        searchIndex.onDirectorSaved(updatedDirector);
+        entityVersions.onDirectorsChanged();
+        return updatedDirector;
     }
 
     public void deleteDirectorById(long id) {
         directorStorage.deleteDirectorById(id);
+        searchIndex.onDirectorDeleted(id);
+        directorFilmsIndex.onDirectorDeleted(id);
+        entityVersions.onDirectorsChanged();
     }
 }
@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Счётчики версий сущностей для ETag. Счётчики живут только в памяти, поэтому в каждый тег входит
+// метка запуска приложения: после перезапуска теги, выданные раньше, не совпадут с новыми
+@Component
+public class EntityVersions {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final Map<Long, AtomicLong> filmVersions = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicLong> userVersions = new ConcurrentHashMap<>();
+    // Увеличивается при любом изменении фильмов и лайков, используется для списков фильмов
+    private final AtomicLong catalogVersion = new AtomicLong();
+    private final AtomicLong directorsVersion = new AtomicLong();
+
+    public void onFilmChanged(long filmId) {
+        filmVersions.computeIfAbsent(filmId, id -> new AtomicLong()).incrementAndGet();
+        catalogVersion.incrementAndGet();
+    }
+
+    public void onUserChanged(long userId) {
+        userVersions.computeIfAbsent(userId, id -> new AtomicLong()).incrementAndGet();
+    }
+
+    // Имена режиссеров входят в тело каждого фильма
+    public void onDirectorsChanged() {
+        directorsVersion.incrementAndGet();
+        catalogVersion.incrementAndGet();
+    }
+
+    public long getFilmVersion(long filmId) {
+        AtomicLong version = filmVersions.get(filmId);
+        return version == null ? 0 : version.get();
+    }
+
+    public long getUserVersion(long userId) {
+        AtomicLong version = userVersions.get(userId);
+        return version == null ? 0 : version.get();
+    }
+
+    public long getCatalogVersion() {
+        return catalogVersion.get();
+    }
+
+    public long getDirectorsVersion() {
+        return directorsVersion.get();
+    }
+
+    // Тег вида "<метка запуска>-<тип>-<версия>.<версия>..." строится без сериализации тела ответа
+    public String tag(String kind, long... versions) {
+        StringJoiner joiner = new StringJoiner(".", epoch + "-" + kind + "-", "");
+        for (long version : versions) {
+            joiner.add(Long.toString(version));
+        }
+        return joiner.toString();
+    }
+}
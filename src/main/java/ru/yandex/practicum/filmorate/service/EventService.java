@@ -2,9 +2,9 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.CursorPage;
 import ru.yandex.practicum.filmorate.model.Event;
 import ru.yandex.practicum.filmorate.storage.EventStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
@@ -16,9 +16,7 @@ import java.util.List;
 @RequiredArgsConstructor
 public class EventService {
 
-    @Qualifier("eventDbStorage")
     private final EventStorage eventStorage;
-    @Qualifier("userDbStorage")
     private final UserStorage userStorage;
 
     public List<Event> getAllEventsById(long id) {
@@ -28,4 +26,20 @@ public class EventService {
 
         return eventStorage.getAllEventsById(id);
     }
+
+    public CursorPage<Event> getEventsPage(long id, Long beforeId, int limit) {
+        if (userStorage.getUserById(id).isEmpty()) {
+            throw new NotFoundException("Пользователь не найден");
+        }
+
+        // Запрашиваем на одно событие больше, чтобы понять, есть ли следующая страница
+        List<Event> events = eventStorage.getEventsPage(id, beforeId, limit + 1);
+        boolean hasNext = events.size() > limit;
+        if (hasNext) {
+            events = events.subList(0, limit);
+        }
+
+        Long nextCursor = hasNext ? events.get(events.size() - 1).getEventId() : null;
+        return new CursorPage<>(events, nextCursor);
+    }
 }
@@ -0,0 +1,107 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeImport;
+import ru.yandex.practicum.filmorate.storage.index.DirectorFilmsIndex;
+import ru.yandex.practicum.filmorate.storage.index.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.index.FilmTextIndex;
+import ru.yandex.practicum.filmorate.storage.index.LikeGraphIndex;
+import ru.yandex.practicum.filmorate.storage.index.MinHashIndex;
+import ru.yandex.practicum.filmorate.storage.index.UserLikesIndex;
+
+import java.util.List;
+
+// Единая точка обновления индексов в памяти после записи фильмов и лайков в БД.
+// Сервисы и импорт вызывают только её, поэтому новый индекс подключается в одном месте.
+// Граф лайков обновляется раньше рекомендаций и MinHash: их хуки читают уже изменённый граф
+@Component
+@RequiredArgsConstructor
+public class FilmIndexes {
+
+    private final FilmPopularityIndex popularityIndex;
+    private final FilmSearchIndex searchIndex;
+    private final FilmTextIndex textIndex;
+    private final UserLikesIndex userLikesIndex;
+    private final LikeGraphIndex likeGraphIndex;
+    private final RecommendationStore recommendationStore;
+    private final MinHashIndex minHashIndex;
+    private final DirectorFilmsIndex directorFilmsIndex;
+    private final EntityVersions entityVersions;
+
+    // Вызывается после сохранения фильма вместе с жанрами и режиссерами
+    public void onFilmSaved(Film film) {
+        popularityIndex.onFilmSaved(film);
+        searchIndex.onFilmSaved(film);
+        textIndex.onFilmSaved(film);
+        directorFilmsIndex.onFilmSaved(film);
+        entityVersions.onFilmChanged(film.getId());
+    }
+
+    public void onFilmDeleted(long filmId) {
+        // Поисковый индекс вычитает лайки фильма из сумм режиссеров, поэтому идёт раньше индекса популярности
+        searchIndex.onFilmDeleted(filmId);
+        popularityIndex.onFilmDeleted(filmId);
+        // Лайкнувших пользователей нужно взять до удаления фильма из графа
+        int[] likedBy = likeGraphIndex.getUserIds(filmId);
+        userLikesIndex.onFilmDeleted(filmId, likedBy);
+        likeGraphIndex.onFilmDeleted(filmId);
+        recommendationStore.onFilmDeleted(likedBy);
+        minHashIndex.onFilmDeleted(likedBy);
+        directorFilmsIndex.onFilmDeleted(filmId);
+        textIndex.onFilmDeleted(filmId);
+        entityVersions.onFilmChanged(filmId);
+    }
+
+    public void onLike(long filmId, long userId) {
+        popularityIndex.onLike(filmId);
+        searchIndex.onLike(filmId);
+        userLikesIndex.onLike(filmId, userId);
+        likeGraphIndex.onLike(filmId, userId);
+        recommendationStore.onLike(filmId, userId);
+        minHashIndex.onLike(filmId, userId);
+        directorFilmsIndex.onLike(filmId);
+        entityVersions.onFilmChanged(filmId);
+    }
+
+    // Пакет лайков из импорта, уже записанных в БД
+    public void onLikes(List<LikeImport> likes) {
+        userLikesIndex.onLikes(likes);
+        likeGraphIndex.onLikes(likes);
+        for (LikeImport like : likes) {
+            popularityIndex.onLike(like.getFilmId());
+            searchIndex.onLike(like.getFilmId());
+            minHashIndex.onLike(like.getFilmId(), like.getUserId());
+            directorFilmsIndex.onLike(like.getFilmId());
+            entityVersions.onFilmChanged(like.getFilmId());
+        }
+        recommendationStore.onLikes(likes);
+    }
+
+    public void onUnlike(long filmId, long userId) {
+        popularityIndex.onUnlike(filmId);
+        searchIndex.onUnlike(filmId);
+        userLikesIndex.onUnlike(filmId, userId);
+        likeGraphIndex.onUnlike(filmId, userId);
+        recommendationStore.onUnlike(filmId, userId);
+        minHashIndex.onUnlike(filmId, userId);
+        directorFilmsIndex.onUnlike(filmId);
+        entityVersions.onFilmChanged(filmId);
+    }
+
+    // Лайки пользователя удаляются каскадно вместе с ним, поэтому их список читается до удаления
+    public void onUserDeleted(long userId, List<Long> likedFilmIds) {
+        for (Long filmId : likedFilmIds) {
+            popularityIndex.onUnlike(filmId);
+            searchIndex.onUnlike(filmId);
+            directorFilmsIndex.onUnlike(filmId);
+            entityVersions.onFilmChanged(filmId);
+        }
+        userLikesIndex.onUserDeleted(userId);
+        likeGraphIndex.onUserDeleted(userId);
+        recommendationStore.onUserDeleted(userId);
+        minHashIndex.onUserDeleted(userId);
+    }
+}
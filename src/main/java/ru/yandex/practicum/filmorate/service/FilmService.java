@@ -3,12 +3,18 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import ru.yandex.practicum.filmorate.model.CursorPage;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.MPA;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.SingleFlightStats;
+import ru.yandex.practicum.filmorate.model.Suggestion;
+import ru.yandex.practicum.filmorate.model.TextIndexStats;
 
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.GenreStorage;
@@ -17,11 +23,17 @@ import ru.yandex.practicum.filmorate.storage.MpaStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 import ru.yandex.practicum.filmorate.storage.EventStorage;
 import ru.yandex.practicum.filmorate.storage.DirectorStorage;
+import ru.yandex.practicum.filmorate.storage.index.DirectorFilmsIndex;
+import ru.yandex.practicum.filmorate.storage.index.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.index.FilmTextIndex;
+import ru.yandex.practicum.filmorate.storage.index.UserLikesIndex;
 
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.validation.ValidationException;
 
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
@@ -29,20 +41,30 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class FilmService {
 
-    @Qualifier("filmDbStorage")
     private final FilmStorage filmStorage;
     @Qualifier("mpaDbStorage")
     private final MpaStorage mpaStorage;
     @Qualifier("genreDbStorage")
     private final GenreStorage genreStorage;
-    @Qualifier("userDbStorage")
     private final UserStorage userStorage;
     @Qualifier("likeDbStorage")
     private final LikeStorage likeStorage;
-    @Qualifier("eventDbStorage")
     private final EventStorage eventStorage;
     @Qualifier("directorDbStorage")
     private final DirectorStorage directorStorage;
+    private final FilmPopularityIndex popularityIndex;
+    private final FilmSearchIndex searchIndex;
+    private final FilmTextIndex textIndex;
+    private final UserLikesIndex userLikesIndex;
+    private final DirectorFilmsIndex directorFilmsIndex;
+    private final FilmIndexes filmIndexes;
+    private final EntityVersions entityVersions;
+
+    private final SingleFlight<Long, Film> filmLookups = new SingleFlight<>("films");
+    private final SingleFlight<PopularFilmsKey, List<Film>> popularFilmsLookups = new SingleFlight<>("popular-films");
+
+    @Value("${filmorate.popular-films.in-memory:true}")
+    private boolean popularFilmsInMemory;
 
     public Film addFilm(Film film) {
         // Получение и проверка существования MPA
@@ -64,6 +86,7 @@ public class FilmService {
             savedFilm = directorStorage.addDirectorToFilm(film);
         }
 
+        filmIndexes.onFilmSaved(savedFilm);
         return savedFilm;
     }
 
@@ -88,20 +111,25 @@ public class FilmService {
 
         updatedFilm = directorStorage.updateDirectorToFilm(updatedFilm);
 
+        filmIndexes.onFilmSaved(updatedFilm);
         return Optional.ofNullable(updatedFilm);
     }
 
     public Film getFilmById(long filmId) {
-        Film film = filmStorage.getFilmById(filmId)
-                .orElseThrow(() -> new NoSuchElementException("Фильм с ID " + filmId + " не найден."));
+        // Одновременные запросы одного фильма разделяют одно чтение из БД и обогащение
+        return filmLookups.execute(filmId, () -> {
+            Film film = filmStorage.getFilmById(filmId)
+                    .orElseThrow(() -> new NoSuchElementException("Фильм с ID " + filmId + " не найден."));
 
-        return enrichFilm(film);
+            return enrichFilm(film);
+        });
     }
 
     public void deleteFilmById(Long id) {
         if (!filmStorage.deleteFilmById(id)) {
             throw new NotFoundException("Фильм с ID " + id + " не найден для удаления.");
         }
+        filmIndexes.onFilmDeleted(id);
         log.info("Фильм с ID {} удалён.", id);
     }
 
@@ -112,72 +140,118 @@ public class FilmService {
     public List<Film> getAllFilms() {
         List<Film> films = filmStorage.getAllFilms();
 
-        return films.stream()
-                .map(this::enrichFilm)
-                .collect(Collectors.toList());
+        return enrichFilms(films);
+    }
+
+    public CursorPage<Film> getFilmsPage(Long afterId, int limit) {
+        // Запрашиваем на одну запись больше, чтобы понять, есть ли следующая страница
+        List<Film> films = filmStorage.getFilmsPage(afterId, limit + 1);
+        boolean hasNext = films.size() > limit;
+        if (hasNext) {
+            films = films.subList(0, limit);
+        }
+
+        Long nextCursor = hasNext ? films.get(films.size() - 1).getId() : null;
+        return new CursorPage<>(enrichFilms(films), nextCursor);
+    }
+
+    // Выгружает весь каталог порциями: каждая порция обогащается отдельно и сразу передаётся дальше
+    public void exportFilms(int chunkSize, Consumer<List<Film>> chunkConsumer) {
+        filmStorage.streamAllFilms(chunkSize, chunk -> chunkConsumer.accept(enrichFilms(chunk)));
     }
 
     public List<Film> getPopularFilms(int count, Long genreId, Integer year) {
-        // Получаем все фильмы из хранилища
-        List<Film> films = filmStorage.getAllFilms();
+        return popularFilmsLookups.execute(new PopularFilmsKey(count, genreId, year), () -> {
+            List<Film> popularFilms;
+            if (popularFilmsInMemory) {
+                // Берём ID самых популярных фильмов из рейтинга в памяти
+                popularFilms = filmStorage.getFilmsByIds(popularityIndex.getTopFilmIds(count, genreId, year));
+            } else {
+                // Фильтрация, сортировка и LIMIT выполняются одним запросом по films.likes_count
+                popularFilms = filmStorage.getPopularFilms(count, genreId, year);
+            }
+            List<Long> popularFilmIds = popularFilms.stream()
+                    .map(Film::getId)
+                    .toList();
+
+            // Загружаем лайки только для попавших в выборку фильмов
+            Map<Long, Set<Long>> likesMap = likeStorage.getLikesByFilmIds(popularFilmIds);
+            popularFilms.forEach(film -> film.getLikes().addAll(likesMap.getOrDefault(film.getId(), Set.of())));
+
+            return enrichFilms(popularFilms);
+        });
+    }
 
-        // Загружаем все лайки и жанры из базы данных
-        Map<Long, Set<Long>> likesMap = likeStorage.getAllLikes();
-        Map<Long, Set<Genre>> genresMap = genreStorage.getGenresForAllFilms();
-
-        // Создаём новую коллекцию фильмов и обогащаем
-        List<Film> enrichedFilms = films.stream()
-                .map(this::enrichFilm) // Обогащаем фильм
-                .peek(film -> {
-                    // Добавляем лайки из карты лайков
-                    Set<Long> likes = likesMap.getOrDefault(film.getId(), new HashSet<>());
-                    film.getLikes().addAll(likes);
-
-                    // Устанавливаем жанры из карты жанров (если нужно обновить)
-                    Set<Genre> genres = genresMap.getOrDefault(film.getId(), new HashSet<>());
-                    film.setGenres(genres);
-                })
-                .toList();
-
-        // Фильтрация и сортировка
-        return enrichedFilms.stream()
-                // Фильтруем фильмы по жанру
-                .filter(film -> genreId == null || genreId == 0 ||
-                        film.getGenres().stream().anyMatch(genre -> genre.getId().equals(genreId)))
-                // Фильтруем фильмы по году
-                .filter(film -> year == null || year == 0 || film.getReleaseDate().getYear() == year)
-                // Сортируем фильмы по количеству лайков
-                .sorted(Comparator.comparingInt(Film::getLikesCount).reversed())
-                // Ограничиваем количество фильмов
-                .limit(count)
-                .collect(Collectors.toList());
-    }
-
-    public List<Film> findFilmsBySubstring(String query, String by) {
+    public List<Film> findFilmsBySubstring(String query, String by, int limit) {
         if (query == null || query.isBlank()) {
             throw new IllegalArgumentException("Запрос не может быть пустым.");
         }
 
-        List<Film> foundFilms = filmStorage.findFilmsBySubstring(query, by);
+        boolean byTitle = by.contains("title");
+        boolean byDirector = by.contains("director");
+        boolean byDescription = by.contains("description");
+        if (!byTitle && !byDirector && !byDescription) {
+            throw new IllegalArgumentException(
+                    "Параметр 'by' должен содержать 'title', 'director' и/или 'description'.");
+        }
+
+        // При поиске по описанию сначала идут самые релевантные фильмы по BM25,
+        // затем совпадения по подстроке в названии и имени режиссера, упорядоченные по лайкам.
+        // Всего кандидатов не больше limit, поэтому фильмы загружаются одним ограниченным запросом
+        Set<Long> foundFilmIds = new LinkedHashSet<>();
+        if (byDescription) {
+            foundFilmIds.addAll(textIndex.search(query, limit));
+        }
+        if ((byTitle || byDirector) && foundFilmIds.size() < limit) {
+            for (Long filmId : searchIndex.search(query, byTitle, byDirector, limit)) {
+                if (foundFilmIds.size() == limit) {
+                    break;
+                }
+                foundFilmIds.add(filmId);
+            }
+        }
+
+        // Порядок кандидатов сохраняется при загрузке
+        List<Film> foundFilms = filmStorage.getFilmsByIds(foundFilmIds);
 
-        return foundFilms.stream()
-                .map(this::enrichFilm)
-                .collect(Collectors.toList());
+        return enrichFilms(foundFilms);
+    }
+
+    public List<SingleFlightStats> getSingleFlightStats() {
+        return List.of(filmLookups.getStats(), popularFilmsLookups.getStats());
+    }
+
+    public TextIndexStats getTextIndexStats() {
+        return textIndex.getStats();
+    }
+
+    public List<Suggestion> suggest(String prefix, int limit) {
+        if (prefix == null || prefix.isBlank()) {
+            throw new ValidationException("Префикс не может быть пустым.");
+        }
+        return searchIndex.suggest(prefix, limit);
     }
 
     public List<Film> getCommonFilms(long userId, long friendId) {
+        return getCommonFilms(userId, List.of(friendId));
+    }
+
+    public List<Film> getCommonFilms(long userId, List<Long> friendIds) {
         if (!userStorage.isUserExist(userId)) {
             throw new NotFoundException("Пользователь с ID " + userId + " не найден.");
         }
-        if (!userStorage.isUserExist(friendId)) {
-            throw new NotFoundException("Друг с ID " + friendId + " не найден.");
+        for (Long friendId : friendIds) {
+            if (!userStorage.isUserExist(friendId)) {
+                throw new NotFoundException("Друг с ID " + friendId + " не найден.");
+            }
         }
 
-        List<Film> commonFilms = filmStorage.getCommonFilms(userId, friendId);
+        // Пересечение битовых карт лайков всех пользователей, отсортированное по популярности
+        List<Long> userIds = new ArrayList<>(friendIds);
+        userIds.add(userId);
+        List<Film> commonFilms = filmStorage.getFilmsByIds(userLikesIndex.getCommonFilmIds(userIds));
 
-        return commonFilms.stream()
-                .map(this::enrichFilm)
-                .collect(Collectors.toList());
+        return enrichFilms(commonFilms);
     }
 
     public void like(long filmId, long userId) {
@@ -187,7 +261,9 @@ public class FilmService {
             throw new NotFoundException("Пользователь с ID " + userId + " не найден.");
         }
 
-        likeStorage.like(filmId, userId);
+        if (likeStorage.like(filmId, userId)) {
+            filmIndexes.onLike(filmId, userId);
+        }
         eventStorage.createEvent(userId, Event.EventType.LIKE, Event.Operation.ADD, filmId);
         log.info("Пользователь с ID {} лайкнул фильм с ID {}", userId, filmId);
     }
@@ -198,14 +274,33 @@ public class FilmService {
         if (!userStorage.isUserExist(userId)) {
             throw new NotFoundException("Пользователь с ID " + userId + " не найден.");
         }
-        if (!likeStorage.getLikesByFilmId(filmId).contains((long) userId)) {
+        if (!likeStorage.unlike(filmId, userId)) {
             throw new IllegalStateException("Пользователь с ID " + userId + " не лайкал фильм с ID " + filmId);
         }
-        likeStorage.unlike(filmId, userId);
+        filmIndexes.onUnlike(filmId, userId);
         eventStorage.createEvent(userId, Event.EventType.LIKE, Event.Operation.REMOVE, filmId);
         log.info("Пользователь с ID {} убрал лайк у фильма с ID {}", userId, filmId);
     }
 
+    // Теги для условных GET строятся только из счётчиков версий, без обращения к БД
+    public String getFilmTag(long filmId) {
+        return entityVersions.tag("film", filmId, entityVersions.getFilmVersion(filmId),
+                entityVersions.getDirectorsVersion(), genreStorage.getVersion(), mpaStorage.getVersion());
+    }
+
+    public String getPopularFilmsTag() {
+        return entityVersions.tag("popular", entityVersions.getCatalogVersion(),
+                genreStorage.getVersion(), mpaStorage.getVersion());
+    }
+
+    public String getGenresTag() {
+        return entityVersions.tag("genres", genreStorage.getVersion());
+    }
+
+    public String getMpaTag() {
+        return entityVersions.tag("mpa", mpaStorage.getVersion());
+    }
+
     public List<Genre> getAllGenres() {
         return genreStorage.getAllGenres();
     }
@@ -229,27 +324,63 @@ public class FilmService {
             throw new NotFoundException("Режиссер с ID " + directorId + " не найден.");
         }
 
-        List<Film> films = filmStorage.getDirectorFilms(directorId, sortBy);
-
-        return films.stream()
-                .map(this::enrichFilm)
-                .collect(Collectors.toList());
+        // Порядок берётся из заранее отсортированных списков режиссера, фильмы загружаются одним запросом
+        List<Long> filmIds = switch (sortBy) {
+            case "year" -> directorFilmsIndex.getFilmIdsByYear(directorId);
+            case "likes" -> directorFilmsIndex.getFilmIdsByLikes(directorId);
+            default -> {
+                log.error("Несуществующая сортировка {}", sortBy);
+                throw new NotFoundException("Несуществующая сортировка " + sortBy);
+            }
+        };
+        List<Film> films = filmStorage.getFilmsByIds(filmIds);
+
+        return enrichFilms(films);
     }
 
     private Film enrichFilm(Film film) {
-        // Обогащаем жанрами
-        film.setGenres(genreStorage.getGenresByFilmId(film.getId()));
+        return enrichFilms(List.of(film)).get(0);
+    }
 
-        // Обогащаем режиссерами
-        film.setDirectors(directorStorage.getDirectorsByFilmId(film.getId()));
+    // Обогащает весь список фильмов одним запросом на каждую связь вместо трёх запросов на фильм
+    private List<Film> enrichFilms(List<Film> films) {
+        if (films.isEmpty()) {
+            return films;
+        }
 
-        // Обогащаем MPA
-        if (film.getMpa() != null) {
-            MPA mpa = mpaStorage.getMpaById(film.getMpa().getId())
-                    .orElseThrow(() -> new ValidationException("Некорректный MPA ID: " + film.getMpa().getId()));
-            film.setMpa(mpa);
+        Set<Long> filmIds = films.stream()
+                .map(Film::getId)
+                .collect(Collectors.toSet());
+        Set<Long> mpaIds = films.stream()
+                .map(Film::getMpa)
+                .filter(Objects::nonNull)
+                .map(MPA::getId)
+                .collect(Collectors.toSet());
+
+        Map<Long, Set<Genre>> genresMap = genreStorage.getGenresByFilmIds(filmIds);
+        Map<Long, Set<Director>> directorsMap = directorStorage.getDirectorsByFilmIds(filmIds);
+        Map<Long, MPA> mpaMap = mpaStorage.getMpasByIds(mpaIds);
+
+        for (Film film : films) {
+            // Обогащаем жанрами
+            film.setGenres(genresMap.getOrDefault(film.getId(), new LinkedHashSet<>()));
+
+            // Обогащаем режиссерами
+            film.setDirectors(directorsMap.getOrDefault(film.getId(), new LinkedHashSet<>()));
+
+            // Обогащаем MPA
+            if (film.getMpa() != null) {
+                MPA mpa = mpaMap.get(film.getMpa().getId());
+                if (mpa == null) {
+                    throw new ValidationException("Некорректный MPA ID: " + film.getMpa().getId());
+                }
+                film.setMpa(mpa);
+            }
         }
 
-        return film;
+        return films;
+    }
+
+    private record PopularFilmsKey(int count, Long genreId, Integer year) {
     }
-}
\ No newline at end of file
+}
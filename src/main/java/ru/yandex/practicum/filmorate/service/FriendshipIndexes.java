@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.index.FriendGraphIndex;
+import ru.yandex.practicum.filmorate.storage.index.FriendsTimelineIndex;
+
+// Единая точка обновления индексов в памяти после записи дружбы в БД: её вызывают и сервис, и импорт
+@Component
+@RequiredArgsConstructor
+public class FriendshipIndexes {
+
+    private final FriendGraphIndex friendGraphIndex;
+    private final FriendsTimelineIndex timelineIndex;
+
+    public void onFriendAdded(long userId, long friendId) {
+        friendGraphIndex.onFriendAdded(userId, friendId);
+        timelineIndex.onFriendAdded(userId, friendId);
+    }
+
+    public void onFriendRemoved(long userId, long friendId) {
+        friendGraphIndex.onFriendRemoved(userId, friendId);
+        timelineIndex.onFriendRemoved(userId, friendId);
+    }
+
+    public void onUserDeleted(long userId) {
+        friendGraphIndex.onUserDeleted(userId);
+        timelineIndex.onUserDeleted(userId);
+    }
+}
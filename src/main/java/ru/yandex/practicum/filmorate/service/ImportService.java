@@ -0,0 +1,279 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FriendshipImport;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.ImportResult;
+import ru.yandex.practicum.filmorate.model.LikeImport;
+import ru.yandex.practicum.filmorate.model.MPA;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.DirectorStorage;
+import ru.yandex.practicum.filmorate.storage.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.ImportStorage;
+import ru.yandex.practicum.filmorate.storage.MpaStorage;
+import ru.yandex.practicum.filmorate.storage.index.CompressedBitmap;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Массовая загрузка из NDJSON (один JSON-объект в строке). Записи проверяются по справочникам в памяти
+// и пишутся порциями: одна порция - один пакетный запрос в одной транзакции.
+// Ошибка в записи не прерывает загрузку, а попадает в отчёт с номером строки.
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ImportService {
+
+    private final ImportStorage importStorage;
+    private final GenreStorage genreStorage;
+    private final MpaStorage mpaStorage;
+    private final DirectorStorage directorStorage;
+    private final FilmIndexes filmIndexes;
+    private final FriendshipIndexes friendshipIndexes;
+    private final EntityVersions entityVersions;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    @Value("${filmorate.import.chunk-size:1000}")
+    private int chunkSize;
+
+    public ImportResult importFilms(InputStream input) {
+        Map<Long, Genre> genres = genreStorage.getAllGenres().stream()
+                .collect(Collectors.toMap(Genre::getId, Function.identity()));
+        Map<Long, MPA> mpas = mpaStorage.getAllMpas().stream()
+                .collect(Collectors.toMap(MPA::getId, Function.identity()));
+        Map<Long, Director> directors = directorStorage.getAllDirectors().stream()
+                .collect(Collectors.toMap(Director::getId, Function.identity()));
+
+        return importRecords("films", input, Film.class,
+                film -> checkFilm(film, genres, mpas, directors),
+                chunk -> {
+                    importStorage.importFilms(chunk).forEach(filmIndexes::onFilmSaved);
+                    return allInserted(chunk.size());
+                });
+    }
+
+    public ImportResult importUsers(InputStream input) {
+        return importRecords("users", input, User.class,
+                user -> {
+                    if (user.getName() == null || user.getName().isBlank()) {
+                        user.setName(user.getLogin());
+                    }
+                    return null;
+                },
+                chunk -> {
+                    importStorage.importUsers(chunk).forEach(user -> entityVersions.onUserChanged(user.getId()));
+                    return allInserted(chunk.size());
+                });
+    }
+
+    // Лайки из импорта не попадают в ленту событий: это перенос данных, а не действия пользователей
+    public ImportResult importLikes(InputStream input) {
+        CompressedBitmap filmIds = toBitmap(importStorage.getAllFilmIds());
+        CompressedBitmap userIds = toBitmap(importStorage.getAllUserIds());
+
+        return importRecords("likes", input, LikeImport.class,
+                like -> {
+                    if (!contains(userIds, like.getUserId())) {
+                        return "Пользователь с ID " + like.getUserId() + " не найден.";
+                    }
+                    if (!contains(filmIds, like.getFilmId())) {
+                        return "Фильм с ID " + like.getFilmId() + " не найден.";
+                    }
+                    return null;
+                },
+                chunk -> {
+                    boolean[] inserted = importStorage.importLikes(chunk);
+                    List<LikeImport> insertedLikes = new ArrayList<>(chunk.size());
+                    for (int i = 0; i < chunk.size(); i++) {
+                        if (inserted[i]) {
+                            insertedLikes.add(chunk.get(i));
+                        }
+                    }
+                    filmIndexes.onLikes(insertedLikes);
+                    return inserted;
+                });
+    }
+
+    public ImportResult importFriendships(InputStream input) {
+        CompressedBitmap userIds = toBitmap(importStorage.getAllUserIds());
+
+        return importRecords("friendships", input, FriendshipImport.class,
+                friendship -> {
+                    if (friendship.getUserId().equals(friendship.getFriendId())) {
+                        return "Пользователь не может добавить в друзья самого себя: " + friendship.getUserId();
+                    }
+                    if (!contains(userIds, friendship.getUserId())) {
+                        return "Пользователь с ID " + friendship.getUserId() + " не найден.";
+                    }
+                    if (!contains(userIds, friendship.getFriendId())) {
+                        return "Пользователь с ID " + friendship.getFriendId() + " не найден.";
+                    }
+                    return null;
+                },
+                chunk -> {
+                    boolean[] inserted = importStorage.importFriendships(chunk);
+                    for (int i = 0; i < chunk.size(); i++) {
+                        if (inserted[i]) {
+                            friendshipIndexes.onFriendAdded(chunk.get(i).getUserId(), chunk.get(i).getFriendId());
+                        }
+                    }
+                    return inserted;
+                });
+    }
+
+    private <T> ImportResult importRecords(String entity, InputStream input, Class<T> type,
+                                           Function<T, String> checker, Function<List<T>, boolean[]> writer) {
+        long start = System.currentTimeMillis();
+        ImportResult result = new ImportResult(entity);
+        List<T> chunk = new ArrayList<>(chunkSize);
+        List<Long> chunkLines = new ArrayList<>(chunkSize);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                result.setProcessed(result.getProcessed() + 1);
+
+                T record;
+                try {
+                    record = objectMapper.readValue(line, type);
+                } catch (JsonProcessingException e) {
+                    result.addError(lineNumber, "Некорректный JSON: " + e.getOriginalMessage());
+                    continue;
+                }
+                String error = validate(record);
+                if (error == null) {
+                    error = checker.apply(record);
+                }
+                if (error != null) {
+                    result.addError(lineNumber, error);
+                    continue;
+                }
+
+                chunk.add(record);
+                chunkLines.add(lineNumber);
+                if (chunk.size() >= chunkSize) {
+                    writeChunk(chunk, chunkLines, writer, result);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ошибка чтения данных для импорта", e);
+        }
+        writeChunk(chunk, chunkLines, writer, result);
+
+        result.setDurationMillis(System.currentTimeMillis() - start);
+        log.info("Импорт {}: обработано {}, добавлено {}, пропущено {}, ошибок {} за {} мс", entity,
+                result.getProcessed(), result.getImported(), result.getSkipped(), result.getFailed(),
+                result.getDurationMillis());
+        return result;
+    }
+
+    private <T> void writeChunk(List<T> chunk, List<Long> chunkLines, Function<List<T>, boolean[]> writer,
+                                ImportResult result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            boolean[] inserted = writer.apply(chunk);
+            for (boolean added : inserted) {
+                if (added) {
+                    result.setImported(result.getImported() + 1);
+                } else {
+                    result.setSkipped(result.getSkipped() + 1);
+                }
+            }
+        } catch (DataAccessException e) {
+            // Транзакция порции откатилась целиком, поэтому ошибка относится ко всем её записям
+            log.warn("Не удалось сохранить порцию из {} записей: {}", chunk.size(), e.getMessage());
+            String message = "Ошибка записи порции: " + e.getMostSpecificCause().getMessage();
+            chunkLines.forEach(line -> result.addError(line, message));
+        }
+        chunk.clear();
+        chunkLines.clear();
+    }
+
+    private <T> String validate(T record) {
+        Set<ConstraintViolation<T>> violations = validator.validate(record);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining(" "));
+    }
+
+    // Заменяет ссылки на справочники их экземплярами, чтобы сохранить фильм без дополнительных запросов
+    private String checkFilm(Film film, Map<Long, Genre> genres, Map<Long, MPA> mpas, Map<Long, Director> directors) {
+        if (film.getMpa() == null || mpas.get(film.getMpa().getId()) == null) {
+            return "Некорректный MPA ID: " + (film.getMpa() == null ? null : film.getMpa().getId());
+        }
+        film.setMpa(mpas.get(film.getMpa().getId()));
+
+        Set<Genre> filmGenres = new LinkedHashSet<>();
+        if (film.getGenres() != null) {
+            for (Genre genre : film.getGenres()) {
+                Genre known = genres.get(genre.getId());
+                if (known == null) {
+                    return "Некорректный ID жанра: " + genre.getId();
+                }
+                filmGenres.add(known);
+            }
+        }
+        film.setGenres(filmGenres);
+
+        Set<Director> filmDirectors = new LinkedHashSet<>();
+        if (film.getDirectors() != null) {
+            for (Director director : film.getDirectors()) {
+                Director known = directors.get(director.getId());
+                if (known == null) {
+                    return "Некорректный ID режиссера: " + director.getId();
+                }
+                filmDirectors.add(known);
+            }
+        }
+        film.setDirectors(filmDirectors);
+        return null;
+    }
+
+    private static CompressedBitmap toBitmap(List<Long> ids) {
+        return CompressedBitmap.of(ids.stream().mapToInt(Math::toIntExact).toArray());
+    }
+
+    private static boolean contains(CompressedBitmap ids, long id) {
+        return id >= 0 && id <= Integer.MAX_VALUE && ids.contains((int) id);
+    }
+
+    private static boolean[] allInserted(int size) {
+        boolean[] inserted = new boolean[size];
+        Arrays.fill(inserted, true);
+        return inserted;
+    }
+}
@@ -0,0 +1,282 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.LikeImport;
+import ru.yandex.practicum.filmorate.model.RecommendationStats;
+import ru.yandex.practicum.filmorate.storage.index.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.index.LikeGraphIndex;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Заранее посчитанные рекомендации: top-N ID фильмов для каждого пользователя.
+// Лайки помечают устаревшими только затронутых пользователей, пул фоновых потоков пересчитывает их по графу лайков.
+// Поиск затронутых среди лайкнувших тот же фильм тоже идёт в пуле, а не в потоке запроса.
+// Чтение отдаёт последнюю готовую запись, даже если она ждёт пересчёта.
+// Хуки вызываются после изменения графа лайков, иначе пересчёт может успеть прочитать старый граф.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RecommendationStore {
+
+    private final LikeGraphIndex likeGraphIndex;
+    private final FilmPopularityIndex popularityIndex;
+
+    @Value("${filmorate.recommendations.workers:2}")
+    private int workers;
+    @Value("${filmorate.recommendations.top-n:100}")
+    private int topN;
+
+    private final Map<Long, Recommendation> entries = new ConcurrentHashMap<>();
+    // Пользователи, у которых похожим выбран данный: их рекомендации зависят от его лайков
+    private final Map<Long, Set<Long>> dependents = new HashMap<>();
+    // Момент первой пометки для каждого устаревшего пользователя
+    private final Map<Long, Long> dirtySince = new ConcurrentHashMap<>();
+    // Поставленные в очередь и выполняющиеся пересчёты
+    private final AtomicInteger pending = new AtomicInteger();
+    // Поставленные в очередь и выполняющиеся разметки после лайков
+    private final AtomicInteger pendingFanOuts = new AtomicInteger();
+
+    private final AtomicLong recomputed = new AtomicLong();
+    private final AtomicLong coldComputes = new AtomicLong();
+    private final AtomicLong totalLagNanos = new AtomicLong();
+    private final AtomicLong lastLagNanos = new AtomicLong();
+    private final AtomicLong maxLagNanos = new AtomicLong();
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(workers, task -> {
+            Thread thread = new Thread(task, "recommendation-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Первичный расчёт для всех пользователей с лайками идёт в фоне
+        Set<Long> userIds = likeGraphIndex.getUsers();
+        userIds.forEach(this::markDirty);
+        log.info("Хранилище рекомендаций запущено: {} потоков, top-{}, к расчёту {} пользователей",
+                workers, topN, userIds.size());
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Сам пользователь помечается сразу, остальные затронутые - в пуле потоков
+    public void onLike(long filmId, long userId) {
+        markDirty(userId);
+        submitFanOut(Map.of(filmId, Set.of(userId)));
+    }
+
+    // Пакет лайков из импорта: лайкнувшие каждый фильм обходятся один раз на пакет, а не на каждый лайк
+    public void onLikes(List<LikeImport> likes) {
+        Map<Long, Set<Long>> likersByFilm = new HashMap<>();
+        for (LikeImport like : likes) {
+            markDirty(like.getUserId());
+            likersByFilm.computeIfAbsent(like.getFilmId(), id -> new HashSet<>()).add(like.getUserId());
+        }
+        submitFanOut(likersByFilm);
+    }
+
+    // Снятие лайка уменьшает пересечения, поэтому похожий меняется только у тех, у кого выбран этот пользователь
+    public synchronized void onUnlike(long filmId, long userId) {
+        markDirty(userId);
+        markDependentsDirty(userId);
+    }
+
+    public synchronized void onUserDeleted(long userId) {
+        markDependentsDirty(userId);
+        dependents.remove(userId);
+        Recommendation removed = entries.remove(userId);
+        if (removed != null) {
+            removeDependent(removed.similarUserId(), userId);
+        }
+        dirtySince.remove(userId);
+    }
+
+    // Получает лайкнувших фильм пользователей, прочитанных из графа до удаления
+    public synchronized void onFilmDeleted(int[] likedBy) {
+        for (int userId : likedBy) {
+            markDirty(userId);
+            markDependentsDirty(userId);
+        }
+    }
+
+    // Готовые рекомендации пользователя. Если записи ещё нет, она считается в потоке запроса
+    public List<Long> getFilmIds(long userId) {
+        Recommendation entry = entries.get(userId);
+        if (entry == null) {
+            coldComputes.incrementAndGet();
+            entry = compute(userId);
+        }
+        return entry.filmIds();
+    }
+
+    // Top-N фильмов похожего пользователя, которых нет у данного, по убыванию популярности
+    public List<Long> recommendFrom(long userId, LikeGraphIndex.Neighbour neighbour) {
+        if (neighbour.userId() < 0) {
+            return List.of();
+        }
+        return likeGraphIndex.getMissingFilmIds(userId, neighbour.userId()).stream()
+                .sorted(Comparator.comparingInt((Long filmId) -> popularityIndex.getLikesCount(filmId)).reversed()
+                        .thenComparing(Comparator.naturalOrder()))
+                .limit(topN)
+                .toList();
+    }
+
+    public RecommendationStats getStats() {
+        long now = System.nanoTime();
+        long oldestDirty = dirtySince.values().stream().mapToLong(Long::longValue).min().orElse(now);
+        long count = recomputed.get();
+        return new RecommendationStats(entries.size(), pending.get(), pendingFanOuts.get(),
+                TimeUnit.NANOSECONDS.toMillis(now - oldestDirty), count, coldComputes.get(),
+                TimeUnit.NANOSECONDS.toMillis(lastLagNanos.get()), TimeUnit.NANOSECONDS.toMillis(maxLagNanos.get()),
+                count == 0 ? 0 : totalLagNanos.get() / 1e6 / count);
+    }
+
+    private void markDirty(long userId) {
+        if (dirtySince.putIfAbsent(userId, System.nanoTime()) == null) {
+            pending.incrementAndGet();
+            executor.execute(() -> recompute(userId));
+        }
+    }
+
+    private void submitFanOut(Map<Long, Set<Long>> likersByFilm) {
+        pendingFanOuts.incrementAndGet();
+        executor.execute(() -> {
+            try {
+                fanOut(likersByFilm);
+            } catch (RuntimeException e) {
+                log.error("Ошибка разметки рекомендаций после лайков: {}", e.getMessage());
+            } finally {
+                pendingFanOuts.decrementAndGet();
+            }
+        });
+    }
+
+    // Помечаются те, у кого новые лайкнувшие выбраны похожими, и лайкнувшие тот же фильм,
+    // для которых лайкнувший теперь обходит текущего похожего. Для одного лайкнувшего это проверяется
+    // точным числом общих лайков с тем же правилом при равенстве, что и в findNeighbour.
+    // Для пакета импорта с несколькими лайкнувшими фильм хватает верхней оценки пересечения
+    private void fanOut(Map<Long, Set<Long>> likersByFilm) {
+        Set<Long> likers = new HashSet<>();
+        likersByFilm.forEach((filmId, userIds) -> {
+            likers.addAll(userIds);
+            long singleLiker = userIds.size() == 1 ? userIds.iterator().next() : -1;
+            int maxUserLikes = 0;
+            for (Long userId : userIds) {
+                maxUserLikes = Math.max(maxUserLikes, likeGraphIndex.getFilmIds(userId).length);
+            }
+            for (int otherId : likeGraphIndex.getUserIds(filmId)) {
+                if (userIds.contains((long) otherId)) {
+                    continue;
+                }
+                Recommendation entry = entries.get((long) otherId);
+                if (entry == null) {
+                    markDirty(otherId);
+                } else if (singleLiker >= 0) {
+                    int common = likeGraphIndex.countCommon(otherId, singleLiker);
+                    if (common > entry.overlap() || common == entry.overlap() && singleLiker < entry.similarUserId()) {
+                        markDirty(otherId);
+                    }
+                } else if (Math.min(maxUserLikes, likeGraphIndex.getFilmIds(otherId).length) >= entry.overlap()) {
+                    markDirty(otherId);
+                }
+            }
+        });
+        synchronized (this) {
+            likers.forEach(this::markDependentsDirty);
+        }
+    }
+
+    private void markDependentsDirty(long userId) {
+        Set<Long> users = dependents.get(userId);
+        if (users != null) {
+            users.forEach(this::markDirty);
+        }
+    }
+
+    private void recompute(long userId) {
+        // Пометка снимается до расчёта: изменение во время расчёта снова поставит пользователя в очередь
+        try {
+            Long since = dirtySince.remove(userId);
+            if (since == null) {
+                return;
+            }
+            compute(userId);
+            long lag = System.nanoTime() - since;
+            recomputed.incrementAndGet();
+            totalLagNanos.addAndGet(lag);
+            lastLagNanos.set(lag);
+            maxLagNanos.accumulateAndGet(lag, Math::max);
+        } catch (RuntimeException e) {
+            log.error("Ошибка пересчёта рекомендаций пользователя {}: {}", userId, e.getMessage());
+        } finally {
+            pending.decrementAndGet();
+        }
+    }
+
+    private Recommendation compute(long userId) {
+        long startedAt = System.nanoTime();
+        LikeGraphIndex.Neighbour neighbour = likeGraphIndex.findNeighbour(userId);
+        List<Long> filmIds = recommendFrom(userId, neighbour);
+        Recommendation computed = new Recommendation(neighbour.userId(), neighbour.overlap(), filmIds, startedAt);
+        // Пользователей без лайков не храним: первый лайк всё равно пометит их к пересчёту
+        if (likeGraphIndex.getFilmIds(userId).length == 0) {
+            return computed;
+        }
+        return save(userId, computed);
+    }
+
+    // Запись, начатая раньше уже сохранённой, отбрасывается: она могла прочитать граф до последнего изменения
+    private synchronized Recommendation save(long userId, Recommendation computed) {
+        Recommendation old = entries.get(userId);
+        if (old != null && old.startedAt() > computed.startedAt()) {
+            return old;
+        }
+        entries.put(userId, computed);
+        if (old != null) {
+            removeDependent(old.similarUserId(), userId);
+        }
+        if (computed.similarUserId() >= 0) {
+            dependents.computeIfAbsent(computed.similarUserId(), id -> new HashSet<>()).add(userId);
+        }
+        return computed;
+    }
+
+    private void removeDependent(long similarUserId, long userId) {
+        Set<Long> users = dependents.get(similarUserId);
+        if (users != null) {
+            users.remove(userId);
+            if (users.isEmpty()) {
+                dependents.remove(similarUserId);
+            }
+        }
+    }
+
+    private record Recommendation(long similarUserId, int overlap, List<Long> filmIds, long startedAt) {
+    }
+}
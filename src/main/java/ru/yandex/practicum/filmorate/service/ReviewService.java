@@ -20,11 +20,8 @@ import java.util.List;
 public class ReviewService {
     @Qualifier("reviewDbStorage")
     private final ReviewStorage reviewStorage;
-    @Qualifier("userDbStorage")
     private final UserStorage userStorage;
-    @Qualifier("filmDbStorage")
     private final FilmStorage filmStorage;
-    @Qualifier("eventStorage")
     private final EventStorage eventStorage;
 
     public Review addReview(Review review) {
@@ -6,12 +6,18 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 
+import ru.yandex.practicum.filmorate.model.CursorPage;
 import ru.yandex.practicum.filmorate.model.Event;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FriendSuggestion;
 import ru.yandex.practicum.filmorate.model.MPA;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.SingleFlightStats;
+import ru.yandex.practicum.filmorate.model.RecommendationStats;
+import ru.yandex.practicum.filmorate.model.ItemSimilarityStats;
+import ru.yandex.practicum.filmorate.model.MinHashEvaluation;
 
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.LikeStorage;
@@ -21,16 +27,19 @@ import ru.yandex.practicum.filmorate.storage.FriendshipStorage;
 import ru.yandex.practicum.filmorate.storage.MpaStorage;
 import ru.yandex.practicum.filmorate.storage.DirectorStorage;
 import ru.yandex.practicum.filmorate.storage.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.index.FriendGraphIndex;
+import ru.yandex.practicum.filmorate.storage.index.FriendsTimelineIndex;
+import ru.yandex.practicum.filmorate.storage.index.ItemSimilarityIndex;
+import ru.yandex.practicum.filmorate.storage.index.MinHashIndex;
 import ru.yandex.practicum.filmorate.validation.ValidationException;
 
 import java.util.List;
+import java.util.ArrayList;
 import java.util.Set;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Objects;
 import java.util.Map;
-import java.util.HashMap;
-import java.util.Comparator;
 import java.util.Collections;
-import java.util.NoSuchElementException;
 import java.util.stream.Collectors;
 
 @Service
@@ -38,15 +47,12 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class UserService {
 
-    @Qualifier("userDbStorage")
     private final UserStorage userStorage;
     @Qualifier("friendshipDbStorage")
     private final FriendshipStorage friendshipStorage;
-    @Qualifier("eventDbStorage")
     private final EventStorage eventStorage;
     @Qualifier("likeDbStorage")
     private final LikeStorage likeStorage;
-    @Qualifier("filmDbStorage")
     private final FilmStorage filmStorage;
     @Qualifier("MpaDbStorage")
     private final MpaStorage mpaStorage;
@@ -54,15 +60,29 @@ public class UserService {
     private final DirectorStorage directorStorage;
     @Qualifier("GenreDbStorage")
     private final GenreStorage genreStorage;
+    private final FriendsTimelineIndex timelineIndex;
+    private final FriendGraphIndex friendGraphIndex;
+    private final RecommendationStore recommendationStore;
+    private final ItemSimilarityIndex itemSimilarityIndex;
+    private final MinHashIndex minHashIndex;
+    private final FilmIndexes filmIndexes;
+    private final FriendshipIndexes friendshipIndexes;
+    private final EntityVersions entityVersions;
+
+    private final SingleFlight<Long, User> userLookups = new SingleFlight<>("users");
 
     public User createUser(User user) {
         setDefaultNameIfEmpty(user);
-        return userStorage.createUser(user);
+        User createdUser = userStorage.createUser(user);
+        entityVersions.onUserChanged(createdUser.getId());
+        return createdUser;
     }
 
     public User updateUser(User updatedUser) {
         setDefaultNameIfEmpty(updatedUser);
-        return userStorage.updateUser(updatedUser);
+        User savedUser = userStorage.updateUser(updatedUser);
+        entityVersions.onUserChanged(savedUser.getId());
+        return savedUser;
     }
 
     private void setDefaultNameIfEmpty(User user) {
@@ -74,13 +94,27 @@ public class UserService {
     public void deleteUser(long id) {
         userStorage.getUserById(id)
                 .orElseThrow(() -> new NotFoundException("Пользователь с ID " + id + " не найден."));
+        // Лайки пользователя удаляются каскадно, поэтому читаем их до удаления, чтобы снять с индексов
+        List<Long> likedFilmIds = likeStorage.getLikesByUserId(id);
         userStorage.deleteUser(id);
+        filmIndexes.onUserDeleted(id, likedFilmIds);
+        friendshipIndexes.onUserDeleted(id);
+        entityVersions.onUserChanged(id);
         log.info("Удалён пользователь с ID {}", id);
     }
 
+    public String getUserTag(long id) {
+        return entityVersions.tag("user", id, entityVersions.getUserVersion(id));
+    }
+
     public User getUserById(long id) {
-        return userStorage.getUserById(id)
-                .orElseThrow(() -> new NotFoundException("Пользователь с ID " + id + " не найден."));
+        // Одновременные запросы одного пользователя разделяют одно чтение из БД
+        return userLookups.execute(id, () -> userStorage.getUserById(id)
+                .orElseThrow(() -> new NotFoundException("Пользователь с ID " + id + " не найден.")));
+    }
+
+    public SingleFlightStats getSingleFlightStats() {
+        return userLookups.getStats();
     }
 
     public List<User> getFriends(long id) {
@@ -101,6 +135,18 @@ public class UserService {
         return userStorage.getAllUsers();
     }
 
+    public CursorPage<User> getUsersPage(Long afterId, int limit) {
+        // Запрашиваем на одну запись больше, чтобы понять, есть ли следующая страница
+        List<User> users = userStorage.getUsersPage(afterId, limit + 1);
+        boolean hasNext = users.size() > limit;
+        if (hasNext) {
+            users = users.subList(0, limit);
+        }
+
+        Long nextCursor = hasNext ? users.get(users.size() - 1).getId() : null;
+        return new CursorPage<>(users, nextCursor);
+    }
+
     public void friend(long userId, long friendId) {
         User user = userStorage.getUserById(userId)
                 .orElseThrow(() -> new NotFoundException("Пользователь с ID " + userId + " не найден."));
@@ -112,6 +158,7 @@ public class UserService {
             if (!isAdded) {
                 log.info("Дружба уже существует между {} и {}.", userId, friendId);
             } else {
+                friendshipIndexes.onFriendAdded(userId, friendId);
                 eventStorage.createEvent(userId, Event.EventType.FRIEND, Event.Operation.ADD, friendId);
                 log.info("Добавлена дружба между {} и {}.", userId, friendId);
             }
@@ -128,9 +175,27 @@ public class UserService {
                 .orElseThrow(() -> new NotFoundException("Пользователь с ID " + friendId + " не найден."));
 
         friendshipStorage.deleteFriendship(user, friend);
+        friendshipIndexes.onFriendRemoved(userId, friendId);
         eventStorage.createEvent(userId, Event.EventType.FRIEND, Event.Operation.REMOVE, friendId);
     }
 
+    // Лента событий друзей строится из лент в памяти; события попадают в них после записи журнала событий в БД
+    public CursorPage<Event> getTimeline(long id, Long beforeId, int limit) {
+        if (!userStorage.isUserExist(id)) {
+            throw new NotFoundException("Пользователь с ID " + id + " не найден.");
+        }
+
+        // Запрашиваем на одно событие больше, чтобы понять, есть ли следующая страница
+        List<Event> events = timelineIndex.getTimeline(id, beforeId, limit + 1);
+        boolean hasNext = events.size() > limit;
+        if (hasNext) {
+            events = events.subList(0, limit);
+        }
+
+        Long nextCursor = hasNext ? events.get(events.size() - 1).getEventId() : null;
+        return new CursorPage<>(events, nextCursor);
+    }
+
     public List<User> getCommonFriends(long id, long otherId) {
         if (!userStorage.isUserExist(id)) {
             throw new NotFoundException("Пользователь с ID " + id + " не найден.");
@@ -139,77 +204,105 @@ public class UserService {
             throw new NotFoundException("Пользователь с ID " + otherId + " не найден.");
         }
 
-        List<Long> userFriends = friendshipStorage.getFriendships(id);
-        List<Long> otherUserFriends = friendshipStorage.getFriendships(otherId);
+        // Пересечение отсортированных списков из графа друзей в памяти и загрузка пользователей одним запросом
+        return userStorage.getUsersByIds(toIds(friendGraphIndex.getCommonFriends(id, otherId)));
+    }
 
-        Set<Long> commonFriendIds = userFriends.stream()
-                .filter(otherUserFriends::contains)
-                .collect(Collectors.toSet());
+    public List<FriendSuggestion> getFriendSuggestions(long id, int limit) {
+        if (!userStorage.isUserExist(id)) {
+            throw new NotFoundException("Пользователь с ID " + id + " не найден.");
+        }
 
-        return commonFriendIds.stream()
-                .map(this::getUserById)
-                .collect(Collectors.toList());
-    }
+        List<FriendGraphIndex.MutualCount> ranked = friendGraphIndex.getSuggestions(id, limit);
+        Map<Long, User> usersById = userStorage.getUsersByIds(ranked.stream()
+                        .map(FriendGraphIndex.MutualCount::userId)
+                        .toList()).stream()
+                .collect(Collectors.toMap(User::getId, user -> user));
 
-    public List<Film> getRecommendations(long userId) {
-        List<Long> userLikes = likeStorage.getLikesByUserId(userId);
-        List<User> users = userStorage.getAllUsers();
+        return ranked.stream()
+                .filter(candidate -> usersById.containsKey(candidate.userId()))
+                .map(candidate -> new FriendSuggestion(usersById.get(candidate.userId()), candidate.mutualFriends()))
+                .toList();
+    }
 
-        // Находим лайки всех пользователей
-        Map<Long, List<Long>> usersLikesMap = new HashMap<>();
-        for (User user : users) {
-            if (!user.getId().equals(userId)) {
-                List<Long> otherUserLikes = likeStorage.getLikesByUserId(user.getId());
-                usersLikesMap.put(user.getId(), otherUserLikes);
-            }
+    private static List<Long> toIds(int[] ids) {
+        List<Long> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            result.add((long) id);
         }
+        return result;
+    }
 
-        // Находим пользователя с максимальным пересечением лайков
-        Long similarUserId = usersLikesMap.entrySet().stream()
-                .max(Comparator.comparingInt(entry -> getIntersectionCount(userLikes, entry.getValue())))
-                .map(Map.Entry::getKey)
-                .orElse(null);
-
-        // Если похожий пользователь найден
-        if (similarUserId != null) {
-            List<Long> similarUserLikes = likeStorage.getLikesByUserId(similarUserId);
-            return similarUserLikes.stream()
-                    .filter(filmId -> !userLikes.contains(filmId))
-                    .map(this::enrichFilm) // Обогащаем фильм прямо здесь
-                    .toList();
+    public List<Film> getRecommendations(long userId, String mode) {
+        List<Long> recommendedFilmIds = switch (mode) {
+            // Рекомендации заранее посчитаны фоновыми потоками, здесь только чтение записи и загрузка фильмов
+            case "user" -> recommendationStore.getFilmIds(userId);
+            // Фильмы, похожие на лайкнутые, по матрице сходства фильмов
+            case "item" -> itemSimilarityIndex.recommend(userId);
+            // Похожий пользователь ищется среди кандидатов из корзин LSH, без точного перебора
+            case "approx" -> recommendationStore.recommendFrom(userId, minHashIndex.findNeighbour(userId));
+            default -> throw new ValidationException("Некорректный режим рекомендаций: " + mode);
+        };
+        if (recommendedFilmIds.isEmpty()) {
+            return Collections.emptyList();
         }
+        return enrichFilms(recommendedFilmIds);
+    }
 
-        // Если похожих пользователей нет, возвращаем пустой список
-        return Collections.emptyList();
+    public RecommendationStats getRecommendationStats() {
+        return recommendationStore.getStats();
     }
 
-    // Метод для обогащения фильма
-    private Film enrichFilm(Long filmId) {
-        Film film = filmStorage.getFilmById(filmId)
-                .orElseThrow(() -> new NoSuchElementException("Фильм с ID " + filmId + " не найден."));
+    public ItemSimilarityStats getItemSimilarityStats() {
+        return itemSimilarityIndex.getStats();
+    }
 
-        // Добавляем жанры
-        Set<Genre> genres = genreStorage.getGenresByFilmId(filmId);
-        film.setGenres(genres);
+    public MinHashEvaluation evaluateApproxRecommendations(int sample) {
+        return minHashIndex.evaluate(sample, null, null);
+    }
 
-        // Добавляем режиссеров
-        Set<Director> directors = directorStorage.getDirectorsByFilmId(filmId);
-        film.setDirectors(directors);
+    public void startApproxEvaluation(int sample, int hashes, int bands) {
+        minHashIndex.startEvaluation(sample, hashes, bands);
+    }
 
-        // Добавляем MPA
-        if (film.getMpa() != null) {
-            MPA mpa = mpaStorage.getMpaById(film.getMpa().getId())
-                    .orElseThrow(() -> new ValidationException("Некорректный MPA ID: " + film.getMpa().getId()));
-            film.setMpa(mpa);
+    public MinHashEvaluation getApproxEvaluation() {
+        return minHashIndex.getCustomEvaluation();
+    }
+
+    // Метод для обогащения фильмов: по одному запросу на фильмы, жанры, режиссеров и MPA
+    private List<Film> enrichFilms(List<Long> filmIds) {
+        // Фильм мог быть удалён после расчёта рекомендаций, такие ID просто пропускаются
+        List<Film> films = filmStorage.getFilmsByIds(filmIds);
+        if (films.size() != filmIds.size()) {
+            log.debug("Часть рекомендованных фильмов уже удалена: найдено {} из {}", films.size(), filmIds.size());
         }
 
-        return film;
-    }
+        Map<Long, Set<Genre>> genresMap = genreStorage.getGenresByFilmIds(filmIds);
+        Map<Long, Set<Director>> directorsMap = directorStorage.getDirectorsByFilmIds(filmIds);
+        Map<Long, MPA> mpaMap = mpaStorage.getMpasByIds(films.stream()
+                .map(Film::getMpa)
+                .filter(Objects::nonNull)
+                .map(MPA::getId)
+                .collect(Collectors.toSet()));
+
+        for (Film film : films) {
+            // Добавляем жанры
+            film.setGenres(genresMap.getOrDefault(film.getId(), new LinkedHashSet<>()));
+
+            // Добавляем режиссеров
+            film.setDirectors(directorsMap.getOrDefault(film.getId(), new LinkedHashSet<>()));
+
+            // Добавляем MPA
+            if (film.getMpa() != null) {
+                MPA mpa = mpaMap.get(film.getMpa().getId());
+                if (mpa == null) {
+                    throw new ValidationException("Некорректный MPA ID: " + film.getMpa().getId());
+                }
+                film.setMpa(mpa);
+            }
+        }
 
-    private int getIntersectionCount(List<Long> list1, List<Long> list2) {
-        Set<Long> set1 = new HashSet<>(list1);
-        set1.retainAll(list2);
-        return set1.size();
+        return films;
     }
 
 }
@@ -7,6 +7,7 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Film;
@@ -16,11 +17,19 @@ import ru.yandex.practicum.filmorate.validation.ValidationException;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.LinkedHashSet;
 
 @Primary
@@ -111,6 +120,48 @@ public class DirectorDbStorage implements DirectorStorage {
                 new Director(rs.getLong("director_id"), rs.getString("director_name")), id));
     }
 
+    @Override
+    public Map<Long, Set<Director>> getDirectorsByFilmIds(Collection<Long> filmIds) {
+        if (filmIds.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        String sqlQuery = "SELECT fd.film_id, d.director_id, d.director_name " +
+                "FROM directors AS d " +
+                "JOIN film_director fd ON d.director_id = fd.director_id " +
+                "WHERE fd.film_id IN (" + String.join(", ", Collections.nCopies(filmIds.size(), "?")) + ") " +
+                "ORDER BY fd.film_id, d.director_id";
+
+        return jdbcTemplate.query(sqlQuery, rs -> {
+            Map<Long, Set<Director>> directorsMap = new HashMap<>();
+            while (rs.next()) {
+                Long filmId = rs.getLong("film_id");
+                Director director = new Director(rs.getLong("director_id"), rs.getString("director_name"));
+
+                directorsMap.computeIfAbsent(filmId, k -> new LinkedHashSet<>()).add(director);
+            }
+            return directorsMap;
+        }, filmIds.toArray());
+    }
+
+    @Override
+    public Map<Long, Set<Director>> getDirectorsForAllFilms() {
+        String sqlQuery = "SELECT fd.film_id, d.director_id, d.director_name " +
+                "FROM film_director fd " +
+                "JOIN directors d ON fd.director_id = d.director_id";
+
+        return jdbcTemplate.query(sqlQuery, rs -> {
+            Map<Long, Set<Director>> directorsMap = new HashMap<>();
+            while (rs.next()) {
+                Long filmId = rs.getLong("film_id");
+                Director director = new Director(rs.getLong("director_id"), rs.getString("director_name"));
+
+                directorsMap.computeIfAbsent(filmId, k -> new LinkedHashSet<>()).add(director);
+            }
+            return directorsMap;
+        });
+    }
+
     private Director mapRowToDirector(ResultSet rs, int rowNum) throws SQLException {
         Director director = new Director();
         director.setId(rs.getLong("director_id"));
@@ -120,31 +171,62 @@ public class DirectorDbStorage implements DirectorStorage {
 
     @Override
     public Film addDirectorToFilm(Film film) {
-        String sqlQuery = "INSERT INTO film_director (film_id, director_id) VALUES (?, ?)";
-
-        for (Director director : film.getDirectors()) {
-            if (!isDirectorExist(director.getId())) {
-                throw new ValidationException("Некорректный ID режиссера: " + director.getId());
-            }
-            jdbcTemplate.update(sqlQuery, film.getId(), director.getId());
-        }
-        film.setDirectors(getDirectorsByFilmId(film.getId()));
-        return film;
+        // У нового фильма связей ещё нет, поэтому разница сводится к вставке всех режиссеров
+        return updateDirectorToFilm(film);
     }
 
+    // Синхронизирует режиссеров фильма по разнице с текущими: удаляются и добавляются только изменившиеся строки
     @Override
+    @Transactional
     public Film updateDirectorToFilm(Film film) {
-        jdbcTemplate.update("DELETE FROM film_director WHERE film_id = ?", film.getId());
+        Map<Long, Director> requested = resolveDirectors(film.getDirectors() == null ? Set.of() : film.getDirectors());
+        Set<Long> current = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT director_id FROM film_director WHERE film_id = ?", Long.class, film.getId()));
+
+        List<Object[]> deleted = new ArrayList<>();
+        for (Long directorId : current) {
+            if (!requested.containsKey(directorId)) {
+                deleted.add(new Object[]{film.getId(), directorId});
+            }
+        }
+        List<Object[]> inserted = new ArrayList<>();
+        for (Long directorId : requested.keySet()) {
+            if (!current.contains(directorId)) {
+                inserted.add(new Object[]{film.getId(), directorId});
+            }
+        }
 
-        String sqlQuery = "INSERT INTO film_director (film_id, director_id) VALUES (?, ?)";
+        if (!deleted.isEmpty()) {
+            jdbcTemplate.batchUpdate("DELETE FROM film_director WHERE film_id = ? AND director_id = ?", deleted);
+        }
+        if (!inserted.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO film_director (film_id, director_id) VALUES (?, ?)", inserted);
+        }
+        log.debug("Режиссеры фильма {} синхронизированы: удалено {}, добавлено {}",
+                film.getId(), deleted.size(), inserted.size());
 
-        for (Director director : film.getDirectors()) {
-            if (!isDirectorExist(director.getId())) {
-                throw new ValidationException("Некорректный ID режиссера: " + director.getId());
+        film.setDirectors(new LinkedHashSet<>(requested.values()));
+        return film;
+    }
+
+    // Режиссеры по возрастанию ID, проверенные и прочитанные одним запросом
+    private Map<Long, Director> resolveDirectors(Set<Director> directors) {
+        Map<Long, Director> resolved = new TreeMap<>();
+        if (directors.isEmpty()) {
+            return resolved;
+        }
+        Set<Long> requestedIds = new TreeSet<>();
+        directors.forEach(director -> requestedIds.add(director.getId()));
+
+        String sqlQuery = "SELECT * FROM directors " +
+                "WHERE director_id IN (" + String.join(", ", Collections.nCopies(requestedIds.size(), "?")) + ")";
+        jdbcTemplate.query(sqlQuery, this::mapRowToDirector, requestedIds.toArray())
+                .forEach(director -> resolved.put(director.getId(), director));
+        for (Long directorId : requestedIds) {
+            if (!resolved.containsKey(directorId)) {
+                throw new ValidationException("Некорректный ID режиссера: " + directorId);
             }
-            jdbcTemplate.update(sqlQuery, film.getId(), director.getId());
         }
-        film.setDirectors(getDirectorsByFilmId(film.getId()));
-        return film;
+        return resolved;
     }
 }
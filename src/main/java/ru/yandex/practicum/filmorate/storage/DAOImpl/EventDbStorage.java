@@ -2,18 +2,22 @@ package ru.yandex.practicum.filmorate.storage.DAOImpl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.model.Event;
 import ru.yandex.practicum.filmorate.storage.EventStorage;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 
-@Primary
 @Repository
 @Slf4j
 @RequiredArgsConstructor
@@ -29,12 +33,53 @@ public class EventDbStorage implements EventStorage {
 
     }
 
+    // Пакетная запись накопленных событий одним batchUpdate, событиям проставляются сгенерированные ID
+    @Transactional
+    public List<Event> createEvents(List<Event> events) {
+        String sqlQuery = "INSERT INTO events (user_id, timestamp, event_type, operation, entity_id) VALUES (?, ?, ?, ?, ?)";
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(sqlQuery, new String[]{"event_id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement stmt, int i) throws SQLException {
+                        Event event = events.get(i);
+                        stmt.setLong(1, event.getUserId());
+                        stmt.setLong(2, event.getTimestamp());
+                        stmt.setString(3, event.getEventType().name());
+                        stmt.setString(4, event.getOperation().name());
+                        stmt.setLong(5, event.getEntityId());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return events.size();
+                    }
+                }, keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < events.size(); i++) {
+            events.get(i).setEventId(((Number) keys.get(i).values().iterator().next()).longValue());
+        }
+        return events;
+    }
+
     @Override
+    @Transactional(readOnly = true)
     public List<Event> getAllEventsById(long id) {
-        String sqlQuery = "SELECT * FROM events WHERE user_id = ?";
+        String sqlQuery = "SELECT * FROM events WHERE user_id = ? ORDER BY event_id";
         return jdbcTemplate.query(sqlQuery, this::mapRowToEvent, id);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<Event> getEventsPage(long userId, Long beforeId, int limit) {
+        // Keyset-пагинация по индексу (user_id, event_id) вместо OFFSET
+        String sqlQuery = "SELECT * FROM events WHERE user_id = ? AND event_id < ? ORDER BY event_id DESC LIMIT ?";
+        return jdbcTemplate.query(sqlQuery, this::mapRowToEvent, userId,
+                beforeId == null ? Long.MAX_VALUE : beforeId, limit);
+    }
+
     private Event mapRowToEvent(ResultSet rs, int rowNum) throws SQLException {
         Event event = new Event();
         event.setEventId(rs.getLong("event_id"));
@@ -2,13 +2,12 @@ package ru.yandex.practicum.filmorate.storage.DAOImpl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.context.annotation.Primary;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
-import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.MPA;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
@@ -17,13 +16,18 @@ import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.function.Consumer;
 
-@Primary
 @Repository
 @Slf4j
 @RequiredArgsConstructor
@@ -71,6 +75,7 @@ public class FilmDbStorage implements FilmStorage {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Optional<Film> getFilmById(Long filmId) {
         String sqlQuery = "SELECT * FROM films WHERE film_id = ?";
         try {
@@ -81,103 +86,108 @@ public class FilmDbStorage implements FilmStorage {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<Film> getAllFilms() {
         String sqlQuery = "SELECT * FROM films";
         return jdbcTemplate.query(sqlQuery, this::mapRowToFilm);
     }
 
     @Override
-    public boolean deleteFilmById(Long filmId) {
-        String sqlQuery = "DELETE FROM films WHERE film_id = ?";
-        return jdbcTemplate.update(sqlQuery, filmId) > 0;
+    @Transactional(readOnly = true)
+    public List<Film> getFilmsPage(Long afterId, int limit) {
+        // Keyset-пагинация: поиск по первичному ключу вместо OFFSET
+        String sqlQuery = "SELECT * FROM films WHERE film_id > ? ORDER BY film_id LIMIT ?";
+        return jdbcTemplate.query(sqlQuery, this::mapRowToFilm, afterId == null ? 0L : afterId, limit);
     }
 
     @Override
-    public List<Film> findFilmsBySubstring(String query, String by) {
-        StringBuilder sqlQuery = new StringBuilder("SELECT f.*, COUNT(l.film_id) AS likes_count ");
-        sqlQuery.append("FROM films f ");
-        sqlQuery.append("LEFT JOIN likes l ON f.film_id = l.film_id ");
-
-        if (by.contains("director")) {
-            sqlQuery.append("LEFT JOIN film_director fd ON f.film_id = fd.film_id ");
-            sqlQuery.append("LEFT JOIN directors d ON fd.director_id = d.director_id ");
+    @Transactional(readOnly = true)
+    public void streamAllFilms(int chunkSize, Consumer<List<Film>> chunkConsumer) {
+        // Однонаправленный курсор с ограниченным fetch size: в памяти одновременно не больше одной порции фильмов
+        String sqlQuery = "SELECT * FROM films ORDER BY film_id";
+        List<Film> chunk = new ArrayList<>(chunkSize);
+
+        jdbcTemplate.query(connection -> {
+            PreparedStatement stmt = connection.prepareStatement(sqlQuery,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(chunkSize);
+            return stmt;
+        }, rs -> {
+            chunk.add(mapRowToFilm(rs, rs.getRow()));
+            if (chunk.size() == chunkSize) {
+                chunkConsumer.accept(new ArrayList<>(chunk));
+                chunk.clear();
+            }
+        });
+
+        if (!chunk.isEmpty()) {
+            chunkConsumer.accept(chunk);
         }
+    }
 
-        sqlQuery.append("WHERE ");
-
-        // Условия поиска
-        String searchQuery = "%" + query.toLowerCase() + "%";
-        List<Object> params = new ArrayList<>();
-        if (by.contains("title") && by.contains("director")) {
-            sqlQuery.append("(LOWER(film_name) LIKE ? OR LOWER(d.director_name) LIKE ?) ");
-            params.add(searchQuery);
-            params.add(searchQuery);
-        } else if (by.contains("title")) {
-            sqlQuery.append("LOWER(film_name) LIKE ? ");
-            params.add(searchQuery);
-        } else if (by.contains("director")) {
-            sqlQuery.append("LOWER(d.director_name) LIKE ? ");
-            params.add(searchQuery);
-        } else {
-            throw new IllegalArgumentException("Параметр 'by' должен содержать 'title', 'director' или оба значения.");
+    @Override
+    @Transactional(readOnly = true)
+    public List<Film> getFilmsByIds(Collection<Long> filmIds) {
+        if (filmIds.isEmpty()) {
+            return new ArrayList<>();
         }
 
-        sqlQuery.append("GROUP BY f.film_id ");
-        sqlQuery.append("ORDER BY likes_count DESC");
+        String sqlQuery = "SELECT * FROM films WHERE film_id IN (" +
+                String.join(", ", Collections.nCopies(filmIds.size(), "?")) + ")";
+        Map<Long, Film> filmsById = new LinkedHashMap<>();
+        jdbcTemplate.query(sqlQuery, this::mapRowToFilm, filmIds.toArray())
+                .forEach(film -> filmsById.put(film.getId(), film));
+
+        // Сохраняем порядок переданных ID, отсутствующие фильмы пропускаем
+        List<Film> films = new ArrayList<>(filmsById.size());
+        for (Long filmId : filmIds) {
+            Film film = filmsById.get(filmId);
+            if (film != null) {
+                films.add(film);
+            }
+        }
+        return films;
+    }
 
-        return jdbcTemplate.query(sqlQuery.toString(), this::mapRowToFilm, params.toArray());
+    @Override
+    public boolean deleteFilmById(Long filmId) {
+        String sqlQuery = "DELETE FROM films WHERE film_id = ?";
+        return jdbcTemplate.update(sqlQuery, filmId) > 0;
     }
 
     @Override
-    public List<Film> getCommonFilms(Long userId, Long friendId) {
-        String sqlQuery = "SELECT f.*, COUNT(l.film_id) AS likes_count " +
-                "FROM films f " +
-                "JOIN likes l1 ON f.film_id = l1.film_id AND l1.user_id = ? " +
-                "JOIN likes l2 ON f.film_id = l2.film_id AND l2.user_id = ? " +
-                "LEFT JOIN likes l ON f.film_id = l.film_id " +
-                "GROUP BY f.film_id " +
-                "ORDER BY likes_count DESC";
-
-        return jdbcTemplate.query(sqlQuery, this::mapRowToFilm, userId, friendId);
+    @Transactional(readOnly = true)
+    public List<Film> getPopularFilms(int count, Long genreId, Integer year) {
+        StringBuilder sqlQuery = new StringBuilder("SELECT f.* FROM films f WHERE 1 = 1 ");
+        List<Object> params = new ArrayList<>();
+
+        if (genreId != null && genreId != 0) {
+            sqlQuery.append("AND EXISTS (SELECT 1 FROM film_genre fg WHERE fg.film_id = f.film_id AND fg.genre_id = ?) ");
+            params.add(genreId);
+        }
+        if (year != null && year != 0) {
+            // Диапазон по дате вместо EXTRACT(YEAR ...): условие остаётся без функции над столбцом
+            // и проверяется по release_date из записи индекса, пока запрос идёт по нему в порядке likes_count
+            sqlQuery.append("AND f.release_date >= ? AND f.release_date < ? ");
+            params.add(Date.valueOf(LocalDate.of(year, 1, 1)));
+            params.add(Date.valueOf(LocalDate.of(year + 1, 1, 1)));
+        }
+
+        // Порядок совпадает с индексом (likes_count DESC, film_id), поэтому сортировки нет и LIMIT обрывает обход
+        sqlQuery.append("ORDER BY f.likes_count DESC, f.film_id ");
+        sqlQuery.append("LIMIT ?");
+        params.add(count);
+
+        return jdbcTemplate.query(sqlQuery.toString(), this::mapRowToFilm, params.toArray());
     }
 
     @Override
+    @Transactional(readOnly = true)
     public boolean isFilmExist(Long filmId) {
         String sqlQuery = "SELECT EXISTS (SELECT 1 FROM films WHERE film_id = ?)";
         return jdbcTemplate.queryForObject(sqlQuery, Boolean.class, filmId);
     }
 
-    @Override
-    public List<Film> getDirectorFilms(Long directorId, String sortBy) {
-        String sqlQuery;
-        switch (sortBy) {
-            case "year":
-                sqlQuery = "SELECT * " +
-                        "FROM film_director AS fd " +
-                        "JOIN films AS f ON fd.film_id = f.film_id " +
-                        "WHERE fd.director_id = ? " +
-                        "ORDER BY f.release_date";
-                break;
-
-            case "likes":
-                sqlQuery = "SELECT f.film_id, f.film_name, f.description, f.release_date, f.duration, " +
-                        "f.mpa_id " +
-                        "FROM films AS f " +
-                        "LEFT JOIN likes AS l ON f.film_id = l.film_id " +
-                        "LEFT JOIN film_director AS fd ON f.film_id = fd.film_id " +
-                        "WHERE fd.director_id = ? " +
-                        "GROUP BY f.film_id " +
-                        "ORDER BY COUNT(l.film_id) DESC";
-
-                break;
-
-            default:
-                log.error("Несуществующая сортировка {}", sortBy);
-                throw new NotFoundException("Несуществующая сортировка " + sortBy);
-        }
-        return jdbcTemplate.query(sqlQuery, this::mapRowToFilm, directorId);
-    }
-
     private Film mapRowToFilm(ResultSet rs, int rowNum) throws SQLException {
         Film film = new Film();
         film.setId(rs.getLong("film_id"));
@@ -4,7 +4,10 @@ import lombok.extern.slf4j.Slf4j;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.FriendshipStorage;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Primary;
@@ -100,4 +103,17 @@ public class FriendshipDbStorage implements FriendshipStorage {
         return jdbcTemplate.query(sqlQuery, (rs, rowNum) -> rs.getLong("receiver_id"), userId);
     }
 
+    @Override
+    public Map<Long, List<Long>> getAllFriendships() {
+        String sqlQuery = "SELECT sender_id, receiver_id FROM friends";
+        return jdbcTemplate.query(sqlQuery, rs -> {
+            Map<Long, List<Long>> friendships = new HashMap<>();
+            while (rs.next()) {
+                friendships.computeIfAbsent(rs.getLong("sender_id"), id -> new ArrayList<>())
+                        .add(rs.getLong("receiver_id"));
+            }
+            return friendships;
+        });
+    }
+
 }
@@ -1,5 +1,6 @@
 package ru.yandex.practicum.filmorate.storage.DAOImpl;
 
+import jakarta.annotation.PostConstruct;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -7,6 +8,7 @@ import org.springframework.context.annotation.Primary;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.storage.GenreStorage;
@@ -15,6 +17,7 @@ import ru.yandex.practicum.filmorate.validation.ValidationException;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Primary
 @Repository
@@ -23,58 +26,131 @@ import java.util.*;
 public class GenreDbStorage implements GenreStorage {
     private final JdbcTemplate jdbcTemplate;
 
+    // Справочник жанров в памяти: неизменяемый снимок с одним экземпляром Genre на каждый ID
+    private volatile GenreDictionary dictionary = new GenreDictionary(Map.of(), List.of());
+    private final AtomicLong version = new AtomicLong();
+
+    @PostConstruct
     @Override
+    public void reload() {
+        List<Genre> genres = jdbcTemplate.query("SELECT * FROM genres ORDER BY genre_id", this::mapRowToGenre);
+        Map<Long, Genre> genresById = new HashMap<>();
+        genres.forEach(genre -> genresById.put(genre.getId(), genre));
+
+        dictionary = new GenreDictionary(Map.copyOf(genresById), List.copyOf(genres));
+        version.incrementAndGet();
+        log.info("Справочник жанров загружен: {} записей", genres.size());
+    }
+
+    // Синхронизирует жанры фильма по разнице с текущими: удаляются и добавляются только изменившиеся строки
+    @Override
+    @Transactional
     public Film updateGenres(Film film) {
-        jdbcTemplate.update("DELETE FROM film_genre WHERE film_id = ?", film.getId());
-
-        if (film.getGenres() != null && !film.getGenres().isEmpty()) {
-            String sqlQuery = "INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?)";
-            for (Genre genre : film.getGenres()) {
-                if (!isGenreExist(genre.getId())) {
-                    throw new ValidationException("Некорректный ID жанра: " + genre.getId());
-                }
-                jdbcTemplate.update(sqlQuery, film.getId(), genre.getId());
+        Map<Long, Genre> requested = resolveGenres(film.getGenres() == null ? Set.of() : film.getGenres());
+        Set<Long> current = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT genre_id FROM film_genre WHERE film_id = ?", Long.class, film.getId()));
+
+        List<Object[]> deleted = new ArrayList<>();
+        for (Long genreId : current) {
+            if (!requested.containsKey(genreId)) {
+                deleted.add(new Object[]{film.getId(), genreId});
+            }
+        }
+        List<Object[]> inserted = new ArrayList<>();
+        for (Long genreId : requested.keySet()) {
+            if (!current.contains(genreId)) {
+                inserted.add(new Object[]{film.getId(), genreId});
             }
+        }
 
-            film.setGenres(getGenresByFilmId(film.getId()));
-            return film;
+        if (!deleted.isEmpty()) {
+            jdbcTemplate.batchUpdate("DELETE FROM film_genre WHERE film_id = ? AND genre_id = ?", deleted);
+        }
+        if (!inserted.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?)", inserted);
         }
+        log.debug("Жанры фильма {} синхронизированы: удалено {}, добавлено {}",
+                film.getId(), deleted.size(), inserted.size());
 
-        film.setGenres(getGenresByFilmId(film.getId()));
+        film.setGenres(new LinkedHashSet<>(requested.values()));
         return film;
     }
 
+    // Жанры из справочника по возрастанию ID. Отсутствующие в справочнике ID проверяются одним запросом к БД
+    private Map<Long, Genre> resolveGenres(Set<Genre> genres) {
+        Map<Long, Genre> resolved = new TreeMap<>();
+        Set<Long> missing = new TreeSet<>();
+        for (Genre genre : genres) {
+            if (genre.getId() == null) {
+                throw new ValidationException("Некорректный ID жанра: null");
+            }
+            Genre known = dictionary.genresById().get(genre.getId());
+            if (known != null) {
+                resolved.put(known.getId(), known);
+            } else {
+                missing.add(genre.getId());
+            }
+        }
+        if (missing.isEmpty()) {
+            return resolved;
+        }
+
+        String sqlQuery = "SELECT genre_id FROM genres " +
+                "WHERE genre_id IN (" + String.join(", ", Collections.nCopies(missing.size(), "?")) + ")";
+        Set<Long> found = new HashSet<>(jdbcTemplate.queryForList(sqlQuery, Long.class, missing.toArray()));
+        for (Long genreId : missing) {
+            if (!found.contains(genreId)) {
+                throw new ValidationException("Некорректный ID жанра: " + genreId);
+            }
+        }
+        // В БД появились новые жанры - перечитываем справочник
+        reload();
+        missing.forEach(genreId -> resolved.put(genreId, dictionary.genresById().get(genreId)));
+        return resolved;
+    }
+
+    @Override
+    public long getVersion() {
+        return version.get();
+    }
+
     @Override
     public Optional<Genre> getGenreById(@NonNull Long genreId) {
+        Genre genre = dictionary.genresById().get(genreId);
+        if (genre != null) {
+            return Optional.of(genre);
+        }
+
+        // Жанра нет в справочнике: проверяем БД и при появлении новой записи перечитываем справочник
         String sqlQuery = "SELECT * FROM genres WHERE genre_id = ?";
         try {
-            return Optional.ofNullable(jdbcTemplate.queryForObject(sqlQuery, this::mapRowToGenre, genreId));
+            jdbcTemplate.queryForObject(sqlQuery, this::mapRowToGenre, genreId);
         } catch (EmptyResultDataAccessException e) {
             return Optional.empty();
         }
+        reload();
+        return Optional.ofNullable(dictionary.genresById().get(genreId));
     }
 
     @Override
     public Set<Genre> getGenresByFilmId(Long filmId) {
-        String sqlQuery = "SELECT g.genre_id, g.genre_name " +
-                "FROM genres g " +
-                "JOIN film_genre fg ON g.genre_id = fg.genre_id " +
-                "WHERE fg.film_id = ? ";
+        String sqlQuery = "SELECT genre_id FROM film_genre WHERE film_id = ? ORDER BY genre_id";
 
-        return new LinkedHashSet<>(jdbcTemplate.query(sqlQuery, (rs, rowNum) ->
-                new Genre(rs.getLong("genre_id"), rs.getString("genre_name")), filmId));
+        Set<Genre> genres = new LinkedHashSet<>();
+        jdbcTemplate.query(sqlQuery, rs -> {
+            genres.add(toGenre(rs.getLong("genre_id")));
+        }, filmId);
+        return genres;
     }
 
     public Map<Long, Set<Genre>> getGenresForAllFilms() {
-        String sqlQuery = "SELECT fg.film_id, g.genre_id, g.genre_name " +
-                "FROM film_genre fg " +
-                "JOIN genres g ON fg.genre_id = g.genre_id";
+        String sqlQuery = "SELECT film_id, genre_id FROM film_genre";
 
         return jdbcTemplate.query(sqlQuery, rs -> {
             Map<Long, Set<Genre>> genresMap = new HashMap<>();
             while (rs.next()) {
                 Long filmId = rs.getLong("film_id");
-                Genre genre = new Genre(rs.getLong("genre_id"), rs.getString("genre_name"));
+                Genre genre = toGenre(rs.getLong("genre_id"));
 
                 genresMap.computeIfAbsent(filmId, k -> new HashSet<>()).add(genre);
             }
@@ -82,10 +158,32 @@ public class GenreDbStorage implements GenreStorage {
         });
     }
 
+    @Override
+    public Map<Long, Set<Genre>> getGenresByFilmIds(Collection<Long> filmIds) {
+        if (filmIds.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        String sqlQuery = "SELECT film_id, genre_id " +
+                "FROM film_genre " +
+                "WHERE film_id IN (" + String.join(", ", Collections.nCopies(filmIds.size(), "?")) + ") " +
+                "ORDER BY film_id, genre_id";
+
+        return jdbcTemplate.query(sqlQuery, rs -> {
+            Map<Long, Set<Genre>> genresMap = new HashMap<>();
+            while (rs.next()) {
+                Long filmId = rs.getLong("film_id");
+                Genre genre = toGenre(rs.getLong("genre_id"));
+
+                genresMap.computeIfAbsent(filmId, k -> new LinkedHashSet<>()).add(genre);
+            }
+            return genresMap;
+        }, filmIds.toArray());
+    }
+
     @Override
     public List<Genre> getAllGenres() {
-        String sqlQuery = "SELECT * FROM genres";
-        return jdbcTemplate.query(sqlQuery, this::mapRowToGenre);
+        return new ArrayList<>(dictionary.allGenres());
     }
 
     @Override
@@ -96,11 +194,18 @@ public class GenreDbStorage implements GenreStorage {
 
     @Override
     public boolean isGenreExist(Long genreId) {
-        String sqlQuery = "SELECT COUNT(*) FROM genres WHERE genre_id = ?";
-        return jdbcTemplate.queryForObject(sqlQuery, Boolean.class, genreId);
+        return getGenreById(genreId).isPresent();
+    }
+
+    private Genre toGenre(Long genreId) {
+        return getGenreById(genreId)
+                .orElseThrow(() -> new IllegalStateException("Жанр с ID " + genreId + " отсутствует в справочнике."));
     }
 
     private Genre mapRowToGenre(ResultSet rs, int rowNum) throws SQLException {
         return new Genre(rs.getLong("genre_id"), rs.getString("genre_name"));
     }
+
+    private record GenreDictionary(Map<Long, Genre> genresById, List<Genre> allGenres) {
+    }
 }
@@ -0,0 +1,178 @@
+package ru.yandex.practicum.filmorate.storage.DAOImpl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FriendshipImport;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeImport;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.ImportStorage;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Repository
+@Slf4j
+@RequiredArgsConstructor
+public class ImportDbStorage implements ImportStorage {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<Long> getAllFilmIds() {
+        return jdbcTemplate.queryForList("SELECT film_id FROM films", Long.class);
+    }
+
+    @Override
+    public List<Long> getAllUserIds() {
+        return jdbcTemplate.queryForList("SELECT user_id FROM users", Long.class);
+    }
+
+    @Override
+    @Transactional
+    public List<Film> importFilms(List<Film> films) {
+        String sqlQuery = "INSERT INTO films (film_name, description, release_date, duration, mpa_id) " +
+                "VALUES (?, ?, ?, ?, ?)";
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(sqlQuery, new String[]{"film_id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement stmt, int i) throws SQLException {
+                        Film film = films.get(i);
+                        stmt.setString(1, film.getName());
+                        stmt.setString(2, film.getDescription());
+                        stmt.setDate(3, Date.valueOf(film.getReleaseDate()));
+                        stmt.setLong(4, film.getDuration());
+                        stmt.setObject(5, film.getMpa() != null ? film.getMpa().getId() : null);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return films.size();
+                    }
+                }, keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        List<Object[]> genreRows = new ArrayList<>();
+        List<Object[]> directorRows = new ArrayList<>();
+        for (int i = 0; i < films.size(); i++) {
+            Film film = films.get(i);
+            film.setId(((Number) keys.get(i).values().iterator().next()).longValue());
+            for (Genre genre : film.getGenres()) {
+                genreRows.add(new Object[]{film.getId(), genre.getId()});
+            }
+            for (Director director : film.getDirectors()) {
+                directorRows.add(new Object[]{film.getId(), director.getId()});
+            }
+        }
+
+        jdbcTemplate.batchUpdate("INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?)", genreRows);
+        jdbcTemplate.batchUpdate("INSERT INTO film_director (film_id, director_id) VALUES (?, ?)", directorRows);
+        log.debug("Импортировано фильмов: {}, связей с жанрами: {}, с режиссерами: {}",
+                films.size(), genreRows.size(), directorRows.size());
+        return films;
+    }
+
+    @Override
+    @Transactional
+    public List<User> importUsers(List<User> users) {
+        String sqlQuery = "INSERT INTO users (user_name, email, login, birthday) VALUES (?, ?, ?, ?)";
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(sqlQuery, new String[]{"user_id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement stmt, int i) throws SQLException {
+                        User user = users.get(i);
+                        stmt.setString(1, user.getName());
+                        stmt.setString(2, user.getEmail());
+                        stmt.setString(3, user.getLogin());
+                        stmt.setDate(4, Date.valueOf(user.getBirthday()));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return users.size();
+                    }
+                }, keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < users.size(); i++) {
+            users.get(i).setId(((Number) keys.get(i).values().iterator().next()).longValue());
+        }
+        log.debug("Импортировано пользователей: {}", users.size());
+        return users;
+    }
+
+    @Override
+    @Transactional
+    public boolean[] importLikes(List<LikeImport> likes) {
+        String sqlQuery = "INSERT INTO likes (film_id, user_id) " +
+                "SELECT ?, ? WHERE NOT EXISTS (SELECT 1 FROM likes WHERE film_id = ? AND user_id = ?)";
+        List<Object[]> rows = new ArrayList<>(likes.size());
+        for (LikeImport like : likes) {
+            rows.add(new Object[]{like.getFilmId(), like.getUserId(), like.getFilmId(), like.getUserId()});
+        }
+        int[] counts = jdbcTemplate.batchUpdate(sqlQuery, rows);
+
+        // Счётчики лайков обновляем одним запросом на фильм, а не на каждый лайк
+        boolean[] inserted = new boolean[likes.size()];
+        Map<Long, Integer> addedByFilm = new TreeMap<>();
+        for (int i = 0; i < likes.size(); i++) {
+            inserted[i] = counts[i] > 0;
+            if (inserted[i]) {
+                addedByFilm.merge(likes.get(i).getFilmId(), 1, Integer::sum);
+            }
+        }
+        List<Object[]> countRows = new ArrayList<>(addedByFilm.size());
+        addedByFilm.forEach((filmId, added) -> countRows.add(new Object[]{added, filmId}));
+        jdbcTemplate.batchUpdate("UPDATE films SET likes_count = likes_count + ? WHERE film_id = ?", countRows);
+        return inserted;
+    }
+
+    @Override
+    @Transactional
+    public boolean[] importFriendships(List<FriendshipImport> friendships) {
+        String insertQuery = "INSERT INTO friends (sender_id, receiver_id, status) " +
+                "SELECT ?, ?, 'UNCONFIRMED' WHERE NOT EXISTS " +
+                "(SELECT 1 FROM friends WHERE sender_id = ? AND receiver_id = ?)";
+        List<Object[]> rows = new ArrayList<>(friendships.size());
+        for (FriendshipImport friendship : friendships) {
+            rows.add(new Object[]{friendship.getUserId(), friendship.getFriendId(),
+                    friendship.getUserId(), friendship.getFriendId()});
+        }
+        int[] counts = jdbcTemplate.batchUpdate(insertQuery, rows);
+
+        // Как и при обычном добавлении, встречные заявки подтверждают дружбу в обоих направлениях
+        String confirmQuery = "UPDATE friends SET status = 'CONFIRMED' " +
+                "WHERE sender_id = ? AND receiver_id = ? " +
+                "AND EXISTS (SELECT 1 FROM friends r WHERE r.sender_id = ? AND r.receiver_id = ?)";
+        boolean[] inserted = new boolean[friendships.size()];
+        List<Object[]> confirmRows = new ArrayList<>();
+        for (int i = 0; i < friendships.size(); i++) {
+            inserted[i] = counts[i] > 0;
+            if (inserted[i]) {
+                long userId = friendships.get(i).getUserId();
+                long friendId = friendships.get(i).getFriendId();
+                confirmRows.add(new Object[]{userId, friendId, friendId, userId});
+                confirmRows.add(new Object[]{friendId, userId, userId, friendId});
+            }
+        }
+        jdbcTemplate.batchUpdate(confirmQuery, confirmRows);
+        return inserted;
+    }
+}
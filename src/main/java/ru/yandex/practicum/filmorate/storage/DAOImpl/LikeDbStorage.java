@@ -7,8 +7,10 @@ import java.util.*;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Primary
 @Repository
@@ -18,24 +20,45 @@ public class LikeDbStorage implements LikeStorage {
 
     private final JdbcTemplate jdbcTemplate;
 
+    // Возвращает true, только если лайк действительно добавлен (повторный лайк ничего не меняет).
+    // Счётчик films.likes_count меняется в той же транзакции, что и таблица likes
+    @Transactional
     public boolean like(Long filmId, Long userId) {
-        String sqlQuery = "merge into likes (film_id, user_id) " +
-                " values (?, ?)";
-        jdbcTemplate.update(sqlQuery, filmId, userId);
-        return true;
+        String sqlQuery = "insert into likes (film_id, user_id) " +
+                "select ?, ? where not exists (select 1 from likes where film_id = ? and user_id = ?)";
+        boolean added;
+        try {
+            added = jdbcTemplate.update(sqlQuery, filmId, userId, filmId, userId) > 0;
+        } catch (DuplicateKeyException e) {
+            // Параллельный запрос успел добавить тот же лайк
+            added = false;
+        }
+
+        if (added) {
+            jdbcTemplate.update("update films set likes_count = likes_count + 1 where film_id = ?", filmId);
+        }
+        return added;
     }
 
+    // Возвращает true, только если лайк действительно был удалён
+    @Transactional
     public boolean unlike(Long filmId, Long userId) {
         String sqlQuery = "delete from likes where film_id = ? and user_id = ? ";
-        jdbcTemplate.update(sqlQuery, filmId, userId);
-        return true;
+        boolean removed = jdbcTemplate.update(sqlQuery, filmId, userId) > 0;
+
+        if (removed) {
+            jdbcTemplate.update("update films set likes_count = likes_count - 1 where film_id = ?", filmId);
+        }
+        return removed;
     }
 
+    @Transactional(readOnly = true)
     public List<Long> getLikesByFilmId(Long filmId) {
         String sqlQuery = "select user_id from likes where film_id = ?";
         return jdbcTemplate.query(sqlQuery, (rs, rowNum) -> rs.getLong("user_id"), filmId);
     }
 
+    @Transactional(readOnly = true)
     public Map<Long, Set<Long>> getAllLikes() {
         String sqlQuery = "SELECT film_id, user_id FROM likes";
         return jdbcTemplate.query(sqlQuery, rs -> {
@@ -49,6 +72,38 @@ public class LikeDbStorage implements LikeStorage {
         });
     }
 
+    @Transactional(readOnly = true)
+    public Map<Long, Set<Long>> getLikesByFilmIds(Collection<Long> filmIds) {
+        if (filmIds.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        String sqlQuery = "SELECT film_id, user_id FROM likes WHERE film_id IN (" +
+                String.join(", ", Collections.nCopies(filmIds.size(), "?")) + ")";
+        return jdbcTemplate.query(sqlQuery, rs -> {
+            Map<Long, Set<Long>> likes = new HashMap<>();
+            while (rs.next()) {
+                Long filmId = rs.getLong("film_id");
+                Long userId = rs.getLong("user_id");
+                likes.computeIfAbsent(filmId, k -> new HashSet<>()).add(userId);
+            }
+            return likes;
+        }, filmIds.toArray());
+    }
+
+    @Transactional(readOnly = true)
+    public Map<Long, Integer> getLikesCountByFilm() {
+        String sqlQuery = "SELECT film_id, likes_count FROM films WHERE likes_count > 0";
+        return jdbcTemplate.query(sqlQuery, rs -> {
+            Map<Long, Integer> likesCount = new HashMap<>();
+            while (rs.next()) {
+                likesCount.put(rs.getLong("film_id"), rs.getInt("likes_count"));
+            }
+            return likesCount;
+        });
+    }
+
+    @Transactional(readOnly = true)
     public List<Long> getLikesByUserId(Long userId) {
         String sqlQuery = "select film_id from likes where user_id = ?";
         return jdbcTemplate.query(sqlQuery, (rs, rowNum) -> rs.getLong("film_id"), userId);
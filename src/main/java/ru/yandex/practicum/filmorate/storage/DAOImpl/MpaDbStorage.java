@@ -1,5 +1,6 @@
 package ru.yandex.practicum.filmorate.storage.DAOImpl;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Primary;
@@ -11,8 +12,13 @@ import ru.yandex.practicum.filmorate.storage.MpaStorage;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Primary
 @Repository
@@ -21,23 +27,63 @@ import java.util.Optional;
 public class MpaDbStorage implements MpaStorage {
     private final JdbcTemplate jdbcTemplate;
 
+    // Справочник рейтингов MPA в памяти: неизменяемый снимок с одним экземпляром MPA на каждый ID
+    private volatile MpaDictionary dictionary = new MpaDictionary(Map.of(), List.of());
+    private final AtomicLong version = new AtomicLong();
+
+    @PostConstruct
+    @Override
+    public void reload() {
+        List<MPA> mpas = jdbcTemplate.query("SELECT * FROM mpa ORDER BY mpa_id", this::mapRowToMPARating);
+        Map<Long, MPA> mpasById = new HashMap<>();
+        mpas.forEach(mpa -> mpasById.put(mpa.getId(), mpa));
+
+        dictionary = new MpaDictionary(Map.copyOf(mpasById), List.copyOf(mpas));
+        version.incrementAndGet();
+        log.info("Справочник рейтингов MPA загружен: {} записей", mpas.size());
+    }
+
+    @Override
+    public long getVersion() {
+        return version.get();
+    }
+
     @Override
     public Optional<MPA> getMpaById(Long mpaId) {
+        MPA mpa = dictionary.mpasById().get(mpaId);
+        if (mpa != null) {
+            return Optional.of(mpa);
+        }
+
+        // Рейтинга нет в справочнике: проверяем БД и при появлении новой записи перечитываем справочник
         String sqlQuery = "SELECT * FROM mpa WHERE mpa_id = ?";
         try {
-            return Optional.ofNullable(jdbcTemplate.queryForObject(sqlQuery, this::mapRowToMPARating, mpaId));
+            jdbcTemplate.queryForObject(sqlQuery, this::mapRowToMPARating, mpaId);
         } catch (EmptyResultDataAccessException e) {
             return Optional.empty();
         }
+        reload();
+        return Optional.ofNullable(dictionary.mpasById().get(mpaId));
+    }
+
+    @Override
+    public Map<Long, MPA> getMpasByIds(Collection<Long> mpaIds) {
+        Map<Long, MPA> mpas = new HashMap<>();
+        for (Long mpaId : mpaIds) {
+            getMpaById(mpaId).ifPresent(mpa -> mpas.put(mpaId, mpa));
+        }
+        return mpas;
     }
 
     @Override
     public List<MPA> getAllMpas() {
-        String sqlQuery = "SELECT * FROM mpa";
-        return jdbcTemplate.query(sqlQuery, this::mapRowToMPARating);
+        return new ArrayList<>(dictionary.allMpas());
     }
 
     private MPA mapRowToMPARating(ResultSet rs, int rowNum) throws SQLException {
         return new MPA(rs.getLong("mpa_id"), rs.getString("mpa_name"), rs.getString("description"));
     }
+
+    private record MpaDictionary(Map<Long, MPA> mpasById, List<MPA> allMpas) {
+    }
 }
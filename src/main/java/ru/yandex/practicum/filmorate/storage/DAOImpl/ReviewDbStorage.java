@@ -8,6 +8,7 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Review;
 import ru.yandex.practicum.filmorate.storage.ReviewStorage;
@@ -94,6 +95,7 @@ public class ReviewDbStorage implements ReviewStorage {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Review getReviewById(Long id) {
 
         String sqlQuery = "SELECT * FROM reviews WHERE review_id = ?";
@@ -109,6 +111,7 @@ public class ReviewDbStorage implements ReviewStorage {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<Review> getAllReviews(Long filmId, Long count) {
 
         //Если указан фильм и количество отзывов
@@ -120,6 +123,7 @@ public class ReviewDbStorage implements ReviewStorage {
         return jdbcTemplate.query(sqlQuery, this::mapRowToReview, filmId, count);
     }
 
+    @Transactional(readOnly = true)
     public List<Review> getAllReviews(Long filmId) {
 
         //Если указан фильм и не указано количество отзывов
@@ -132,6 +136,7 @@ public class ReviewDbStorage implements ReviewStorage {
         return jdbcTemplate.query(sqlQuery, this::mapRowToReview, filmId, count);
     }
 
+    @Transactional(readOnly = true)
     public List<Review> getAllReviews() {
 
         //Если не указано ничего, то выводим все отзывы c лимитом 10
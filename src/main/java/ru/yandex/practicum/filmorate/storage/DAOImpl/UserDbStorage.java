@@ -2,13 +2,13 @@ package ru.yandex.practicum.filmorate.storage.DAOImpl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.context.annotation.Primary;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
@@ -22,9 +22,13 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.HashSet;
 import java.util.List;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 
-@Primary
 @Repository
 @Slf4j
 @RequiredArgsConstructor
@@ -71,7 +75,12 @@ public class UserDbStorage implements UserStorage {
         return user;
     }
 
+    @Transactional
     public void deleteUser(Long userId) {
+        // Лайки пользователя удалятся каскадно, поэтому заранее уменьшаем счётчики лайков фильмов
+        jdbcTemplate.update("UPDATE films SET likes_count = likes_count - 1 " +
+                "WHERE film_id IN (SELECT film_id FROM likes WHERE user_id = ?)", userId);
+
         String sqlQuery = "DELETE FROM users WHERE user_id = ?";
         int rowsDeleted = jdbcTemplate.update(sqlQuery, userId);
         if (rowsDeleted == 0) {
@@ -80,6 +89,7 @@ public class UserDbStorage implements UserStorage {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Optional<User> getUserById(Long id) {
         String sqlQuery = "SELECT * FROM users WHERE user_id = ?";
         try {
@@ -90,18 +100,52 @@ public class UserDbStorage implements UserStorage {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Set<User> getFriends(Long userId) {
         String sqlQuery = "SELECT friend_id FROM friendships WHERE user_id = ?";
         return new HashSet<>(jdbcTemplate.query(sqlQuery, this::mapRowToUser));
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<User> getAllUsers() {
         String sqlQuery = "SELECT * FROM users";
         return jdbcTemplate.query(sqlQuery, this::mapRowToUser);
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public List<User> getUsersPage(Long afterId, int limit) {
+        // Keyset-пагинация: поиск по первичному ключу вместо OFFSET
+        String sqlQuery = "SELECT * FROM users WHERE user_id > ? ORDER BY user_id LIMIT ?";
+        return jdbcTemplate.query(sqlQuery, this::mapRowToUser, afterId == null ? 0L : afterId, limit);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<User> getUsersByIds(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        String sqlQuery = "SELECT * FROM users WHERE user_id IN (" +
+                String.join(", ", Collections.nCopies(userIds.size(), "?")) + ")";
+        Map<Long, User> usersById = new HashMap<>();
+        jdbcTemplate.query(sqlQuery, this::mapRowToUser, userIds.toArray())
+                .forEach(user -> usersById.put(user.getId(), user));
+
+        List<User> users = new ArrayList<>(usersById.size());
+        for (Long userId : userIds) {
+            User user = usersById.get(userId);
+            if (user != null) {
+                users.add(user);
+            }
+        }
+        return users;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public boolean isUserExist(Long userId) {
         String sqlQuery = "SELECT EXISTS (SELECT 1 FROM users WHERE user_id = ?)";
         return jdbcTemplate.queryForObject(sqlQuery, Boolean.class, userId);
@@ -3,7 +3,9 @@ package ru.yandex.practicum.filmorate.storage;
 import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Film;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public interface DirectorStorage {
@@ -22,6 +24,10 @@ public interface DirectorStorage {
 
     Set<Director> getDirectorsByFilmId(Long id);
 
+    Map<Long, Set<Director>> getDirectorsByFilmIds(Collection<Long> filmIds);
+
+    Map<Long, Set<Director>> getDirectorsForAllFilms();
+
     Film addDirectorToFilm(Film film);
 
     Film updateDirectorToFilm(Film film);
@@ -10,4 +10,7 @@ public interface EventStorage {
 
     List<Event> getAllEventsById(long id);
 
+    // Страница ленты от новых событий к старым: события с ID меньше beforeId (null - с самого нового)
+    List<Event> getEventsPage(long userId, Long beforeId, int limit);
+
 }
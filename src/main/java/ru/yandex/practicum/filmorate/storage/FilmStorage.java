@@ -2,8 +2,10 @@ package ru.yandex.practicum.filmorate.storage;
 
 import ru.yandex.practicum.filmorate.model.Film;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
 
@@ -17,13 +19,15 @@ public interface FilmStorage {
 
     List<Film> getAllFilms();
 
-    boolean deleteFilmById(Long filmId);
+    List<Film> getFilmsByIds(Collection<Long> filmIds);
+
+    List<Film> getFilmsPage(Long afterId, int limit);
 
-    List<Film> findFilmsBySubstring(String query, String by);
+    void streamAllFilms(int chunkSize, Consumer<List<Film>> chunkConsumer);
 
-    List<Film> getCommonFilms(Long userId, Long friendId);
+    boolean deleteFilmById(Long filmId);
 
-    List<Film> getDirectorFilms(Long directorId, String sortBy);
+    List<Film> getPopularFilms(int count, Long genreId, Integer year);
 
     boolean isFilmExist(Long filmId);
 }
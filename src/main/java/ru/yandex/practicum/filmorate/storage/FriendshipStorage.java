@@ -3,6 +3,7 @@ package ru.yandex.practicum.filmorate.storage;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.List;
+import java.util.Map;
 
 public interface FriendshipStorage {
 
@@ -12,4 +13,7 @@ public interface FriendshipStorage {
 
     List<Long> getFriendships(Long userId);
 
+    // Все связи: ID пользователя -> ID тех, кого он добавил в друзья
+    Map<Long, List<Long>> getAllFriendships();
+
 }
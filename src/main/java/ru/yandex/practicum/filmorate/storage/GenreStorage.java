@@ -3,6 +3,7 @@ package ru.yandex.practicum.filmorate.storage;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -17,9 +18,16 @@ public interface GenreStorage {
 
     Map<Long, Set<Genre>> getGenresForAllFilms();
 
+    Map<Long, Set<Genre>> getGenresByFilmIds(Collection<Long> filmIds);
+
     List<Genre> getAllGenres();
 
     void deleteGenresByFilmId(Long filmId);
 
     boolean isGenreExist(Long genreId);
+
+    void reload();
+
+    // Номер версии справочника, увеличивается при каждой перезагрузке
+    long getVersion();
 }
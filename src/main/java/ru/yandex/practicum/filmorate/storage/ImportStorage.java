@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FriendshipImport;
+import ru.yandex.practicum.filmorate.model.LikeImport;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.List;
+
+// Пакетная запись при массовой загрузке: каждый вызов сохраняет одну порцию записей в одной транзакции
+public interface ImportStorage {
+
+    List<Long> getAllFilmIds();
+
+    List<Long> getAllUserIds();
+
+    // Сохраняет фильмы вместе с жанрами и режиссерами и проставляет им сгенерированные ID
+    List<Film> importFilms(List<Film> films);
+
+    List<User> importUsers(List<User> users);
+
+    // Для каждой записи возвращает true, если она добавлена, и false, если уже существовала
+    boolean[] importLikes(List<LikeImport> likes);
+
+    boolean[] importFriendships(List<FriendshipImport> friendships);
+}
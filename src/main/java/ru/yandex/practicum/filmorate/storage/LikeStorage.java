@@ -1,5 +1,6 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -14,5 +15,9 @@ public interface LikeStorage {
 
     Map<Long, Set<Long>> getAllLikes();
 
+    Map<Long, Set<Long>> getLikesByFilmIds(Collection<Long> filmIds);
+
+    Map<Long, Integer> getLikesCountByFilm();
+
     List<Long> getLikesByUserId(Long userId);
 }
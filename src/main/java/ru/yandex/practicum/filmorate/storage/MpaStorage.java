@@ -2,11 +2,20 @@ package ru.yandex.practicum.filmorate.storage;
 
 import ru.yandex.practicum.filmorate.model.MPA;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface MpaStorage {
     Optional<MPA> getMpaById(Long mpaId);
 
+    Map<Long, MPA> getMpasByIds(Collection<Long> mpaIds);
+
     List<MPA> getAllMpas();
+
+    void reload();
+
+    // Номер версии справочника, увеличивается при каждой перезагрузке
+    long getVersion();
 }
@@ -2,6 +2,7 @@ package ru.yandex.practicum.filmorate.storage;
 
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -20,5 +21,10 @@ public interface UserStorage {
 
     List<User> getAllUsers();
 
+    List<User> getUsersPage(Long afterId, int limit);
+
+    // Пользователи в порядке переданных ID, отсутствующие пропускаются
+    List<User> getUsersByIds(Collection<Long> userIds);
+
     boolean isUserExist(Long userId);
 }
@@ -0,0 +1,98 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import ru.yandex.practicum.filmorate.model.CacheStats;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// Кэш ограниченного размера с вытеснением давно не использованных записей (LRU) и временем жизни записей.
+// Значения должны быть неизменяемыми: один экземпляр отдаётся всем читателям
+public class BoundedCache<K, V> {
+
+    private final String name;
+    private final int maxSize;
+    private final long ttlNanos;
+
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // Увеличивается при каждой инвалидации: загрузка, начатая до неё, не должна вернуть в кэш старое значение
+    private long invalidations;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public BoundedCache(String name, int maxSize, Duration ttl) {
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    // Возвращает значение из кэша или загружает его; пустой результат загрузки не кэшируется
+    public Optional<V> get(K key, Function<K, Optional<V>> loader) {
+        long stamp;
+        synchronized (this) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && System.nanoTime() - entry.createdAt() < ttlNanos) {
+                hits.incrementAndGet();
+                return Optional.of(entry.value());
+            }
+            if (entry != null) {
+                entries.remove(key);
+                evictions.incrementAndGet();
+            }
+            stamp = invalidations;
+        }
+
+        misses.incrementAndGet();
+        Optional<V> loaded = loader.apply(key);
+        loaded.ifPresent(value -> put(key, value, stamp));
+        return loaded;
+    }
+
+    // Значение без загрузки; устаревшая запись считается отсутствующей
+    public synchronized Optional<V> getIfPresent(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null || System.nanoTime() - entry.createdAt() >= ttlNanos) {
+            return Optional.empty();
+        }
+        hits.incrementAndGet();
+        return Optional.of(entry.value());
+    }
+
+    public synchronized long stamp() {
+        return invalidations;
+    }
+
+    // Записывает значение, если после получения stamp не было инвалидаций
+    public synchronized void put(K key, V value, long stamp) {
+        if (maxSize <= 0 || stamp != invalidations) {
+            return;
+        }
+        entries.put(key, new Entry<>(value, System.nanoTime()));
+        if (entries.size() > maxSize) {
+            Map.Entry<K, Entry<V>> eldest = entries.entrySet().iterator().next();
+            entries.remove(eldest.getKey());
+            evictions.incrementAndGet();
+        }
+    }
+
+    public void recordMiss() {
+        misses.incrementAndGet();
+    }
+
+    public synchronized void invalidate(K key) {
+        invalidations++;
+        entries.remove(key);
+    }
+
+    public synchronized CacheStats getStats() {
+        return new CacheStats(name, entries.size(), maxSize, hits.get(), misses.get(), evictions.get());
+    }
+
+    private record Entry<V>(V value, long createdAt) {
+    }
+}
@@ -0,0 +1,155 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.datasource.ReadYourWrites;
+import ru.yandex.practicum.filmorate.model.CacheStats;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MPA;
+import ru.yandex.practicum.filmorate.storage.DAOImpl.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+// Кэширующая обёртка над FilmDbStorage: фильмы по ID читаются из кэша, изменения и удаления его инвалидируют.
+// В кэше хранятся неизменяемые снимки строк таблицы films, каждому читателю выдаётся новый экземпляр Film.
+// Промахи читаются с основной БД: как и в CachingUserStorage, строка с реплики могла бы оказаться устаревшей
+@Primary
+@Repository
+@RequiredArgsConstructor
+public class CachingFilmStorage implements FilmStorage {
+
+    private final FilmDbStorage filmDbStorage;
+
+    @Value("${filmorate.cache.max-size:10000}")
+    private int maxSize;
+    @Value("${filmorate.cache.ttl:10m}")
+    private Duration ttl;
+
+    private BoundedCache<Long, FilmRow> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = new BoundedCache<>("films", maxSize, ttl);
+    }
+
+    public CacheStats getCacheStats() {
+        return cache.getStats();
+    }
+
+    @Override
+    public Optional<Film> addFilm(Film film) {
+        return filmDbStorage.addFilm(film);
+    }
+
+    @Override
+    public Optional<Film> updateFilm(Film film) {
+        try {
+            return filmDbStorage.updateFilm(film);
+        } finally {
+            cache.invalidate(film.getId());
+        }
+    }
+
+    @Override
+    public Optional<Film> getFilmById(Long filmId) {
+        return cache.get(filmId, id -> ReadYourWrites.onPrimary(() -> filmDbStorage.getFilmById(id)).map(FilmRow::of))
+                .map(FilmRow::toFilm);
+    }
+
+    @Override
+    public List<Film> getAllFilms() {
+        return filmDbStorage.getAllFilms();
+    }
+
+    // Найденные в кэше фильмы берутся из него, остальные загружаются одним запросом
+    @Override
+    public List<Film> getFilmsByIds(Collection<Long> filmIds) {
+        Map<Long, FilmRow> rows = new HashMap<>();
+        List<Long> missingIds = new ArrayList<>();
+        for (Long filmId : filmIds) {
+            cache.getIfPresent(filmId).ifPresentOrElse(row -> rows.put(filmId, row), () -> missingIds.add(filmId));
+        }
+
+        if (!missingIds.isEmpty()) {
+            missingIds.forEach(filmId -> cache.recordMiss());
+            long stamp = cache.stamp();
+            for (Film film : ReadYourWrites.onPrimary(() -> filmDbStorage.getFilmsByIds(missingIds))) {
+                FilmRow row = FilmRow.of(film);
+                rows.put(film.getId(), row);
+                cache.put(film.getId(), row, stamp);
+            }
+        }
+
+        List<Film> films = new ArrayList<>(rows.size());
+        for (Long filmId : filmIds) {
+            FilmRow row = rows.get(filmId);
+            if (row != null) {
+                films.add(row.toFilm());
+            }
+        }
+        return films;
+    }
+
+    @Override
+    public List<Film> getFilmsPage(Long afterId, int limit) {
+        return filmDbStorage.getFilmsPage(afterId, limit);
+    }
+
+    @Override
+    public void streamAllFilms(int chunkSize, Consumer<List<Film>> chunkConsumer) {
+        filmDbStorage.streamAllFilms(chunkSize, chunkConsumer);
+    }
+
+    @Override
+    public boolean deleteFilmById(Long filmId) {
+        try {
+            return filmDbStorage.deleteFilmById(filmId);
+        } finally {
+            cache.invalidate(filmId);
+        }
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count, Long genreId, Integer year) {
+        return filmDbStorage.getPopularFilms(count, genreId, year);
+    }
+
+    @Override
+    public boolean isFilmExist(Long filmId) {
+        return getFilmById(filmId).isPresent();
+    }
+
+    private record FilmRow(long id, String name, String description, LocalDate releaseDate, Long duration,
+                           Long mpaId) {
+
+        static FilmRow of(Film film) {
+            return new FilmRow(film.getId(), film.getName(), film.getDescription(), film.getReleaseDate(),
+                    film.getDuration(), film.getMpa() == null ? null : film.getMpa().getId());
+        }
+
+        Film toFilm() {
+            Film film = new Film();
+            film.setId(id);
+            film.setName(name);
+            film.setDescription(description);
+            film.setReleaseDate(releaseDate);
+            film.setDuration(duration);
+            if (mpaId != null) {
+                film.setMpa(new MPA(mpaId, null, null));
+            }
+            return film;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.datasource.ReadYourWrites;
+import ru.yandex.practicum.filmorate.model.CacheStats;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.DAOImpl.UserDbStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+// Кэширующая обёртка над UserDbStorage: пользователи по ID читаются из кэша, изменения и удаления его инвалидируют.
+// В кэше хранятся неизменяемые снимки строк таблицы users, каждому читателю выдаётся новый экземпляр User.
+// Кэш общий для всех клиентов, поэтому промахи читаются с основной БД: строка с отстающей реплики
+// осталась бы в кэше до истечения TTL и вернулась бы даже клиенту, только что изменившему пользователя
+@Primary
+@Repository
+@RequiredArgsConstructor
+public class CachingUserStorage implements UserStorage {
+
+    private final UserDbStorage userDbStorage;
+
+    @Value("${filmorate.cache.max-size:10000}")
+    private int maxSize;
+    @Value("${filmorate.cache.ttl:10m}")
+    private Duration ttl;
+
+    private BoundedCache<Long, UserRow> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = new BoundedCache<>("users", maxSize, ttl);
+    }
+
+    public CacheStats getCacheStats() {
+        return cache.getStats();
+    }
+
+    @Override
+    public User createUser(User user) {
+        return userDbStorage.createUser(user);
+    }
+
+    @Override
+    public User updateUser(User user) {
+        try {
+            return userDbStorage.updateUser(user);
+        } finally {
+            cache.invalidate(user.getId());
+        }
+    }
+
+    @Override
+    public void deleteUser(Long userId) {
+        try {
+            userDbStorage.deleteUser(userId);
+        } finally {
+            cache.invalidate(userId);
+        }
+    }
+
+    @Override
+    public Optional<User> getUserById(Long userId) {
+        return cache.get(userId, id -> ReadYourWrites.onPrimary(() -> userDbStorage.getUserById(id)).map(UserRow::of))
+                .map(UserRow::toUser);
+    }
+
+    @Override
+    public Set<User> getFriends(Long userId) {
+        return userDbStorage.getFriends(userId);
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        return userDbStorage.getAllUsers();
+    }
+
+    @Override
+    public List<User> getUsersPage(Long afterId, int limit) {
+        return userDbStorage.getUsersPage(afterId, limit);
+    }
+
+    // Найденные в кэше пользователи берутся из него, остальные загружаются одним запросом
+    @Override
+    public List<User> getUsersByIds(Collection<Long> userIds) {
+        Map<Long, UserRow> rows = new HashMap<>();
+        List<Long> missingIds = new ArrayList<>();
+        for (Long userId : userIds) {
+            cache.getIfPresent(userId).ifPresentOrElse(row -> rows.put(userId, row), () -> missingIds.add(userId));
+        }
+
+        if (!missingIds.isEmpty()) {
+            missingIds.forEach(userId -> cache.recordMiss());
+            long stamp = cache.stamp();
+            for (User user : ReadYourWrites.onPrimary(() -> userDbStorage.getUsersByIds(missingIds))) {
+                UserRow row = UserRow.of(user);
+                rows.put(user.getId(), row);
+                cache.put(user.getId(), row, stamp);
+            }
+        }
+
+        List<User> users = new ArrayList<>(rows.size());
+        for (Long userId : userIds) {
+            UserRow row = rows.get(userId);
+            if (row != null) {
+                users.add(row.toUser());
+            }
+        }
+        return users;
+    }
+
+    @Override
+    public boolean isUserExist(Long userId) {
+        return getUserById(userId).isPresent();
+    }
+
+    private record UserRow(long id, String email, String login, String name, LocalDate birthday) {
+
+        static UserRow of(User user) {
+            return new UserRow(user.getId(), user.getEmail(), user.getLogin(), user.getName(), user.getBirthday());
+        }
+
+        User toUser() {
+            User user = new User();
+            user.setId(id);
+            user.setEmail(email);
+            user.setLogin(login);
+            user.setName(name);
+            user.setBirthday(birthday);
+            return user;
+        }
+    }
+}
@@ -0,0 +1,375 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+// Неизменяемое сжатое множество неотрицательных int по схеме Roaring: значения делятся на блоки
+// по старшим 16 битам, разреженный блок хранится отсортированным массивом char, плотный - битовой картой.
+// Изменение возвращает новый экземпляр и копирует только затронутый блок, поэтому читать можно без блокировок.
+public final class CompressedBitmap {
+
+    public static final CompressedBitmap EMPTY = new CompressedBitmap(new char[0], new Container[0]);
+
+    // Блок с большим числом значений выгоднее хранить битовой картой (1024 long = 8 КБ)
+    private static final int ARRAY_MAX_SIZE = 4096;
+    private static final int BITMAP_WORDS = 1 << 10;
+
+    private final char[] keys;
+    private final Container[] containers;
+
+    private CompressedBitmap(char[] keys, Container[] containers) {
+        this.keys = keys;
+        this.containers = containers;
+    }
+
+    // Массовое построение: значения сортируются и раскладываются по блокам за один проход
+    public static CompressedBitmap of(int... values) {
+        int[] sorted = Arrays.stream(values).distinct().sorted().toArray();
+        char[] keys = new char[sorted.length];
+        Container[] containers = new Container[sorted.length];
+        int size = 0;
+        int start = 0;
+        while (start < sorted.length) {
+            checkValue(sorted[start]);
+            char key = high(sorted[start]);
+            int end = start;
+            while (end < sorted.length && high(sorted[end]) == key) {
+                end++;
+            }
+            char[] lows = new char[end - start];
+            for (int i = start; i < end; i++) {
+                lows[i - start] = low(sorted[i]);
+            }
+            keys[size] = key;
+            containers[size] = lows.length > ARRAY_MAX_SIZE ? BitmapContainer.of(lows) : new ArrayContainer(lows);
+            size++;
+            start = end;
+        }
+        return size == 0 ? EMPTY : new CompressedBitmap(Arrays.copyOf(keys, size), Arrays.copyOf(containers, size));
+    }
+
+    public boolean contains(int value) {
+        int index = Arrays.binarySearch(keys, high(value));
+        return index >= 0 && containers[index].contains(low(value));
+    }
+
+    public CompressedBitmap with(int value) {
+        checkValue(value);
+        char key = high(value);
+        int index = Arrays.binarySearch(keys, key);
+        if (index >= 0) {
+            Container updated = containers[index].add(low(value));
+            if (updated == containers[index]) {
+                return this;
+            }
+            Container[] newContainers = containers.clone();
+            newContainers[index] = updated;
+            return new CompressedBitmap(keys, newContainers);
+        }
+
+        int insertAt = -index - 1;
+        char[] newKeys = new char[keys.length + 1];
+        Container[] newContainers = new Container[containers.length + 1];
+        System.arraycopy(keys, 0, newKeys, 0, insertAt);
+        System.arraycopy(containers, 0, newContainers, 0, insertAt);
+        newKeys[insertAt] = key;
+        newContainers[insertAt] = new ArrayContainer(new char[]{low(value)});
+        System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+        System.arraycopy(containers, insertAt, newContainers, insertAt + 1, containers.length - insertAt);
+        return new CompressedBitmap(newKeys, newContainers);
+    }
+
+    // Массовое добавление: карта перестраивается за один проход вместо копирования блока на каждое значение
+    public CompressedBitmap withAll(int... values) {
+        if (values.length == 0) {
+            return this;
+        }
+        int[] merged = Arrays.copyOf(values, values.length + cardinality());
+        int[] next = {values.length};
+        forEach(value -> merged[next[0]++] = value);
+        return of(merged);
+    }
+
+    public CompressedBitmap without(int value) {
+        int index = Arrays.binarySearch(keys, high(value));
+        if (index < 0) {
+            return this;
+        }
+        Container updated = containers[index].remove(low(value));
+        if (updated == containers[index]) {
+            return this;
+        }
+        if (updated != null) {
+            Container[] newContainers = containers.clone();
+            newContainers[index] = updated;
+            return new CompressedBitmap(keys, newContainers);
+        }
+
+        // Блок опустел - убираем его целиком
+        char[] newKeys = new char[keys.length - 1];
+        Container[] newContainers = new Container[containers.length - 1];
+        System.arraycopy(keys, 0, newKeys, 0, index);
+        System.arraycopy(containers, 0, newContainers, 0, index);
+        System.arraycopy(keys, index + 1, newKeys, index, keys.length - index - 1);
+        System.arraycopy(containers, index + 1, newContainers, index, containers.length - index - 1);
+        return new CompressedBitmap(newKeys, newContainers);
+    }
+
+    // Пересечение: пересекаются только блоки с общими старшими битами
+    public CompressedBitmap and(CompressedBitmap other) {
+        char[] newKeys = new char[Math.min(keys.length, other.keys.length)];
+        Container[] newContainers = new Container[newKeys.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < keys.length && j < other.keys.length) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Container intersection = containers[i].and(other.containers[j]);
+                if (intersection != null) {
+                    newKeys[size] = keys[i];
+                    newContainers[size] = intersection;
+                    size++;
+                }
+                i++;
+                j++;
+            }
+        }
+        return size == 0 ? EMPTY : new CompressedBitmap(Arrays.copyOf(newKeys, size), Arrays.copyOf(newContainers, size));
+    }
+
+    public int cardinality() {
+        int cardinality = 0;
+        for (Container container : containers) {
+            cardinality += container.cardinality();
+        }
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return keys.length == 0;
+    }
+
+    // Обход значений по возрастанию
+    public void forEach(IntConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            containers[i].forEach(keys[i] << 16, consumer);
+        }
+    }
+
+    private static char high(int value) {
+        return (char) (value >>> 16);
+    }
+
+    private static char low(int value) {
+        return (char) value;
+    }
+
+    private static void checkValue(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Значение должно быть неотрицательным: " + value);
+        }
+    }
+
+    private interface Container {
+
+        boolean contains(char value);
+
+        // Возвращают тот же экземпляр, если блок не изменился; remove возвращает null для пустого блока
+        Container add(char value);
+
+        Container remove(char value);
+
+        // Возвращает null, если пересечение пустое
+        Container and(Container other);
+
+        int cardinality();
+
+        void forEach(int base, IntConsumer consumer);
+    }
+
+    private static final class ArrayContainer implements Container {
+        private final char[] values;
+
+        ArrayContainer(char[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public boolean contains(char value) {
+            return Arrays.binarySearch(values, value) >= 0;
+        }
+
+        @Override
+        public Container add(char value) {
+            int index = Arrays.binarySearch(values, value);
+            if (index >= 0) {
+                return this;
+            }
+            if (values.length == ARRAY_MAX_SIZE) {
+                return BitmapContainer.of(values).add(value);
+            }
+            int insertAt = -index - 1;
+            char[] newValues = new char[values.length + 1];
+            System.arraycopy(values, 0, newValues, 0, insertAt);
+            newValues[insertAt] = value;
+            System.arraycopy(values, insertAt, newValues, insertAt + 1, values.length - insertAt);
+            return new ArrayContainer(newValues);
+        }
+
+        @Override
+        public Container remove(char value) {
+            int index = Arrays.binarySearch(values, value);
+            if (index < 0) {
+                return this;
+            }
+            if (values.length == 1) {
+                return null;
+            }
+            char[] newValues = new char[values.length - 1];
+            System.arraycopy(values, 0, newValues, 0, index);
+            System.arraycopy(values, index + 1, newValues, index, values.length - index - 1);
+            return new ArrayContainer(newValues);
+        }
+
+        @Override
+        public Container and(Container other) {
+            char[] result = new char[values.length];
+            int size = 0;
+            if (other instanceof ArrayContainer array) {
+                // Слияние двух отсортированных массивов
+                char[] otherValues = array.values;
+                int i = 0;
+                int j = 0;
+                while (i < values.length && j < otherValues.length) {
+                    if (values[i] < otherValues[j]) {
+                        i++;
+                    } else if (values[i] > otherValues[j]) {
+                        j++;
+                    } else {
+                        result[size++] = values[i];
+                        i++;
+                        j++;
+                    }
+                }
+            } else {
+                for (char value : values) {
+                    if (other.contains(value)) {
+                        result[size++] = value;
+                    }
+                }
+            }
+            return size == 0 ? null : new ArrayContainer(Arrays.copyOf(result, size));
+        }
+
+        @Override
+        public int cardinality() {
+            return values.length;
+        }
+
+        @Override
+        public void forEach(int base, IntConsumer consumer) {
+            for (char value : values) {
+                consumer.accept(base | value);
+            }
+        }
+    }
+
+    private static final class BitmapContainer implements Container {
+        private final long[] words;
+        private final int cardinality;
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        static BitmapContainer of(char[] values) {
+            long[] words = new long[BITMAP_WORDS];
+            for (char value : values) {
+                words[value >>> 6] |= 1L << value;
+            }
+            return new BitmapContainer(words, values.length);
+        }
+
+        @Override
+        public boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        public Container add(char value) {
+            if (contains(value)) {
+                return this;
+            }
+            long[] newWords = words.clone();
+            newWords[value >>> 6] |= 1L << value;
+            return new BitmapContainer(newWords, cardinality + 1);
+        }
+
+        @Override
+        public Container remove(char value) {
+            if (!contains(value)) {
+                return this;
+            }
+            if (cardinality - 1 <= ARRAY_MAX_SIZE) {
+                return toArray(words, cardinality).remove(value);
+            }
+            long[] newWords = words.clone();
+            newWords[value >>> 6] &= ~(1L << value);
+            return new BitmapContainer(newWords, cardinality - 1);
+        }
+
+        @Override
+        public Container and(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+            long[] otherWords = ((BitmapContainer) other).words;
+            long[] newWords = new long[BITMAP_WORDS];
+            int newCardinality = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                newWords[i] = words[i] & otherWords[i];
+                newCardinality += Long.bitCount(newWords[i]);
+            }
+            if (newCardinality == 0) {
+                return null;
+            }
+            return newCardinality <= ARRAY_MAX_SIZE
+                    ? toArray(newWords, newCardinality)
+                    : new BitmapContainer(newWords, newCardinality);
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        public void forEach(int base, IntConsumer consumer) {
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    consumer.accept(base | (i << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        private static ArrayContainer toArray(long[] words, int cardinality) {
+            char[] values = new char[cardinality];
+            int size = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    values[size++] = (char) ((i << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayContainer(values);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.datasource.ReadYourWrites;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.DirectorStorage;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.LikeStorage;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Collectors;
+
+// Списки фильмов каждого режиссера, упорядоченные по дате выхода и по количеству лайков.
+// Чтение не блокируется, изменения выполняются под монитором индекса.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DirectorFilmsIndex {
+
+    private static final Comparator<FilmEntry> BY_YEAR = Comparator
+            .comparing(FilmEntry::releaseDate)
+            .thenComparingLong(FilmEntry::filmId);
+    private static final Comparator<FilmEntry> BY_LIKES = Comparator
+            .comparingInt(FilmEntry::likes).reversed()
+            .thenComparingLong(FilmEntry::filmId);
+
+    private final FilmStorage filmStorage;
+    private final DirectorStorage directorStorage;
+    private final LikeStorage likeStorage;
+
+    private final Map<Long, FilmEntry> entries = new ConcurrentHashMap<>();
+    private final Map<Long, DirectorFilms> filmsByDirector = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public synchronized void load() {
+        entries.clear();
+        filmsByDirector.clear();
+        // Индекс дальше получает только изменения, поэтому исходный снимок читается с основной БД, а не с реплики
+        Map<Long, Set<Director>> directorsMap = ReadYourWrites.onPrimary(directorStorage::getDirectorsForAllFilms);
+        Map<Long, Integer> likesCount = ReadYourWrites.onPrimary(likeStorage::getLikesCountByFilm);
+
+        for (Film film : ReadYourWrites.onPrimary(filmStorage::getAllFilms)) {
+            Set<Long> directorIds = toIds(directorsMap.getOrDefault(film.getId(), Set.of()));
+            put(new FilmEntry(film.getId(), film.getReleaseDate(),
+                    likesCount.getOrDefault(film.getId(), 0), directorIds));
+        }
+        log.info("Фильмы режиссеров загружены: {} режиссеров", filmsByDirector.size());
+    }
+
+    // Вызывается после сохранения фильма вместе с его режиссерами. Фильмы без режиссеров тоже хранятся,
+    // чтобы не потерять количество лайков, если режиссер будет назначен позже
+    public synchronized void onFilmSaved(Film film) {
+        FilmEntry old = remove(film.getId());
+        Set<Long> directorIds = film.getDirectors() == null ? Set.of() : toIds(film.getDirectors());
+        put(new FilmEntry(film.getId(), film.getReleaseDate(), old == null ? 0 : old.likes(), directorIds));
+    }
+
+    public synchronized void onFilmDeleted(long filmId) {
+        remove(filmId);
+    }
+
+    public synchronized void onDirectorDeleted(long directorId) {
+        DirectorFilms films = filmsByDirector.remove(directorId);
+        if (films == null) {
+            return;
+        }
+        for (FilmEntry yearEntry : films.byYear) {
+            FilmEntry entry = entries.get(yearEntry.filmId());
+            if (entry == null) {
+                continue;
+            }
+            Set<Long> directorIds = entry.directorIds().stream()
+                    .filter(id -> id != directorId)
+                    .collect(Collectors.toUnmodifiableSet());
+            remove(entry.filmId());
+            put(new FilmEntry(entry.filmId(), entry.releaseDate(), entry.likes(), directorIds));
+        }
+    }
+
+    public void onLike(long filmId) {
+        changeLikes(filmId, 1);
+    }
+
+    public void onUnlike(long filmId) {
+        changeLikes(filmId, -1);
+    }
+
+    public List<Long> getFilmIdsByYear(long directorId) {
+        DirectorFilms films = filmsByDirector.get(directorId);
+        return films == null ? List.of() : films.byYear.stream().map(FilmEntry::filmId).toList();
+    }
+
+    public List<Long> getFilmIdsByLikes(long directorId) {
+        DirectorFilms films = filmsByDirector.get(directorId);
+        return films == null ? List.of() : films.byLikes.stream().map(FilmEntry::filmId).toList();
+    }
+
+    private synchronized void changeLikes(long filmId, int delta) {
+        FilmEntry old = entries.get(filmId);
+        if (old == null) {
+            return;
+        }
+        FilmEntry updated = new FilmEntry(filmId, old.releaseDate(), Math.max(0, old.likes() + delta),
+                old.directorIds());
+        if (BY_LIKES.compare(old, updated) == 0) {
+            return;
+        }
+        entries.put(filmId, updated);
+        for (Long directorId : old.directorIds()) {
+            DirectorFilms films = filmsByDirector.get(directorId);
+            // Сначала добавляем новую запись, затем удаляем старую, чтобы читатели не потеряли фильм.
+            // Порядок по дате от лайков не зависит, поэтому список по годам не меняется
+            films.byLikes.add(updated);
+            films.byLikes.remove(old);
+        }
+    }
+
+    private void put(FilmEntry entry) {
+        entries.put(entry.filmId(), entry);
+        for (Long directorId : entry.directorIds()) {
+            DirectorFilms films = filmsByDirector.computeIfAbsent(directorId, id -> new DirectorFilms());
+            films.byYear.add(entry);
+            films.byLikes.add(entry);
+        }
+    }
+
+    private FilmEntry remove(long filmId) {
+        FilmEntry old = entries.remove(filmId);
+        if (old != null) {
+            for (Long directorId : old.directorIds()) {
+                DirectorFilms films = filmsByDirector.get(directorId);
+                if (films != null) {
+                    films.byYear.remove(old);
+                    films.byLikes.remove(old);
+                }
+            }
+        }
+        return old;
+    }
+
+    private static Set<Long> toIds(Set<Director> directors) {
+        return directors.stream()
+                .map(Director::getId)
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    private record FilmEntry(long filmId, LocalDate releaseDate, int likes, Set<Long> directorIds) {
+    }
+
+    private static class DirectorFilms {
+        private final NavigableSet<FilmEntry> byYear = new ConcurrentSkipListSet<>(BY_YEAR);
+        private final NavigableSet<FilmEntry> byLikes = new ConcurrentSkipListSet<>(BY_LIKES);
+    }
+}
@@ -0,0 +1,164 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.datasource.ReadYourWrites;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.LikeStorage;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Collectors;
+
+// Рейтинги популярности фильмов в памяти: общий, по жанрам и по годам выпуска.
+// Чтение не блокируется; изменения одного фильма выполняются последовательно внутри ConcurrentHashMap.compute,
+// поэтому параллельные лайки и дизлайки не теряются.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FilmPopularityIndex {
+
+    private static final Comparator<FilmEntry> BY_POPULARITY = Comparator
+            .comparingInt(FilmEntry::likes).reversed()
+            .thenComparingLong(FilmEntry::filmId);
+
+    private final FilmStorage filmStorage;
+    private final GenreStorage genreStorage;
+    private final LikeStorage likeStorage;
+
+    private final Map<Long, FilmEntry> entries = new ConcurrentHashMap<>();
+    private final NavigableSet<FilmEntry> global = new ConcurrentSkipListSet<>(BY_POPULARITY);
+    private final Map<Long, NavigableSet<FilmEntry>> byGenre = new ConcurrentHashMap<>();
+    private final Map<Integer, NavigableSet<FilmEntry>> byYear = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void load() {
+        // Повторная загрузка строит рейтинг заново, без фильмов, которых уже нет в БД
+        entries.clear();
+        global.clear();
+        byGenre.clear();
+        byYear.clear();
+        // Рейтинг дальше получает только изменения, поэтому исходный снимок читается с основной БД, а не с реплики
+        Map<Long, Set<Genre>> genresMap = ReadYourWrites.onPrimary(genreStorage::getGenresForAllFilms);
+        Map<Long, Integer> likesCount = ReadYourWrites.onPrimary(likeStorage::getLikesCountByFilm);
+
+        for (Film film : ReadYourWrites.onPrimary(filmStorage::getAllFilms)) {
+            Set<Long> genreIds = genresMap.getOrDefault(film.getId(), Set.of()).stream()
+                    .map(Genre::getId)
+                    .collect(Collectors.toUnmodifiableSet());
+            int likes = likesCount.getOrDefault(film.getId(), 0);
+            entries.compute(film.getId(), (id, old) ->
+                    replace(old, new FilmEntry(id, likes, film.getReleaseDate().getYear(), genreIds)));
+        }
+        log.info("Рейтинг популярности загружен: {} фильмов", entries.size());
+    }
+
+    public void onFilmSaved(Film film) {
+        Set<Long> genreIds = film.getGenres() == null ? Set.of() : film.getGenres().stream()
+                .map(Genre::getId)
+                .collect(Collectors.toUnmodifiableSet());
+        int year = film.getReleaseDate().getYear();
+
+        entries.compute(film.getId(), (id, old) ->
+                replace(old, new FilmEntry(id, old == null ? 0 : old.likes(), year, genreIds)));
+    }
+
+    public void onFilmDeleted(long filmId) {
+        entries.computeIfPresent(filmId, (id, old) -> replace(old, null));
+    }
+
+    public void onLike(long filmId) {
+        changeLikes(filmId, 1);
+    }
+
+    public void onUnlike(long filmId) {
+        changeLikes(filmId, -1);
+    }
+
+    public int getLikesCount(long filmId) {
+        FilmEntry entry = entries.get(filmId);
+        return entry == null ? 0 : entry.likes();
+    }
+
+    // Возвращает ID самых популярных фильмов; genreId и year равные null или 0 означают отсутствие фильтра
+    public List<Long> getTopFilmIds(int count, Long genreId, Integer year) {
+        boolean filterByGenre = genreId != null && genreId != 0;
+        boolean filterByYear = year != null && year != 0;
+
+        NavigableSet<FilmEntry> board;
+        if (filterByGenre) {
+            board = byGenre.get(genreId);
+        } else if (filterByYear) {
+            board = byYear.get(year);
+        } else {
+            board = global;
+        }
+
+        List<Long> filmIds = new ArrayList<>(Math.min(count, entries.size()));
+        if (board == null || count <= 0) {
+            return filmIds;
+        }
+
+        // Во время обновления фильм может кратковременно присутствовать в рейтинге дважды
+        Set<Long> seen = new HashSet<>();
+        for (FilmEntry entry : board) {
+            if (filterByYear && entry.year() != year) {
+                continue;
+            }
+            if (seen.add(entry.filmId())) {
+                filmIds.add(entry.filmId());
+                if (filmIds.size() == count) {
+                    break;
+                }
+            }
+        }
+        return filmIds;
+    }
+
+    private void changeLikes(long filmId, int delta) {
+        entries.computeIfPresent(filmId, (id, old) ->
+                replace(old, new FilmEntry(id, Math.max(0, old.likes() + delta), old.year(), old.genreIds())));
+    }
+
+    // Сначала добавляем новую запись, затем удаляем старую, чтобы читатели не потеряли фильм из рейтинга
+    private FilmEntry replace(FilmEntry old, FilmEntry updated) {
+        if (old != null && updated != null && BY_POPULARITY.compare(old, updated) == 0) {
+            // Позиция в рейтинге не меняется (изменились только жанры или год): добавление было бы no-op
+            boards(old).forEach(board -> board.remove(old));
+            boards(updated).forEach(board -> board.add(updated));
+            return updated;
+        }
+        if (updated != null) {
+            boards(updated).forEach(board -> board.add(updated));
+        }
+        if (old != null) {
+            boards(old).forEach(board -> board.remove(old));
+        }
+        return updated;
+    }
+
+    private List<NavigableSet<FilmEntry>> boards(FilmEntry entry) {
+        List<NavigableSet<FilmEntry>> boards = new ArrayList<>(entry.genreIds().size() + 2);
+        boards.add(global);
+        boards.add(byYear.computeIfAbsent(entry.year(), y -> new ConcurrentSkipListSet<>(BY_POPULARITY)));
+        for (Long genreId : entry.genreIds()) {
+            boards.add(byGenre.computeIfAbsent(genreId, g -> new ConcurrentSkipListSet<>(BY_POPULARITY)));
+        }
+        return boards;
+    }
+
+    private record FilmEntry(long filmId, int likes, int year, Set<Long> genreIds) {
+    }
+}
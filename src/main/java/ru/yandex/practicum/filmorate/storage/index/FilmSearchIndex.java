@@ -0,0 +1,397 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.datasource.ReadYourWrites;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Suggestion;
+import ru.yandex.practicum.filmorate.storage.DirectorStorage;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// Триграммный индекс по названиям фильмов и именам режиссеров для поиска по подстроке
+// и отсортированные словари тех же строк для подсказок по префиксу.
+// Для коротких префиксов диапазон словаря покрывает большую часть каталога, поэтому их лучшие подсказки
+// считаются один раз и хранятся до изменения затронутых названий, имён или лайков.
+// Чтение не блокируется, изменения выполняются под монитором индекса.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FilmSearchIndex {
+
+    private static final int GRAM_LENGTH = 3;
+    private static final char KEY_SEPARATOR = '\u0000';
+    private static final int CACHED_PREFIX_LENGTH = 2;
+    private static final int CACHED_SUGGESTIONS = 100;
+    private static final Comparator<Suggestion> BY_LIKES = Comparator.comparingInt(Suggestion::getLikes)
+            .thenComparing(Suggestion::getText, Comparator.reverseOrder());
+
+    private final FilmStorage filmStorage;
+    private final DirectorStorage directorStorage;
+    private final FilmPopularityIndex popularityIndex;
+
+    private final TrigramMap titles = new TrigramMap();
+    private final TrigramMap directorNames = new TrigramMap();
+    private final Map<Long, Set<Long>> filmsByDirector = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> directorsByFilm = new ConcurrentHashMap<>();
+    // Сумма лайков фильмов режиссера, обновляется хуками лайков
+    private final Map<Long, Integer> directorLikes = new ConcurrentHashMap<>();
+    // Лучшие подсказки для коротких префиксов по убыванию лайков
+    private final Map<String, List<Suggestion>> suggestionsByPrefix = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public synchronized void load() {
+        titles.clear();
+        directorNames.clear();
+        filmsByDirector.clear();
+        directorsByFilm.clear();
+        directorLikes.clear();
+        suggestionsByPrefix.clear();
+        ReadYourWrites.onPrimary(directorStorage::getAllDirectors)
+                .forEach(director -> directorNames.put(director.getId(), director.getName()));
+
+        Map<Long, Set<Director>> directorsMap = ReadYourWrites.onPrimary(directorStorage::getDirectorsForAllFilms);
+        for (Film film : ReadYourWrites.onPrimary(filmStorage::getAllFilms)) {
+            film.setDirectors(directorsMap.getOrDefault(film.getId(), Set.of()));
+            onFilmSaved(film);
+        }
+        log.info("Поисковый индекс загружен: {} фильмов, {} режиссеров", titles.size(), directorNames.size());
+    }
+
+    public synchronized void onFilmSaved(Film film) {
+        invalidateSuggestions(titles.get(film.getId()));
+        invalidateSuggestions(film.getName());
+        titles.put(film.getId(), film.getName());
+
+        Set<Long> directorIds = ConcurrentHashMap.newKeySet();
+        if (film.getDirectors() != null) {
+            for (Director director : film.getDirectors()) {
+                directorIds.add(director.getId());
+                if (director.getName() != null) {
+                    invalidateSuggestions(directorNames.get(director.getId()));
+                    invalidateSuggestions(director.getName());
+                    directorNames.put(director.getId(), director.getName());
+                }
+            }
+        }
+
+        Set<Long> oldDirectorIds = directorsByFilm.put(film.getId(), directorIds);
+        if (oldDirectorIds != null) {
+            oldDirectorIds.forEach(directorId -> unlinkFilm(directorId, film.getId()));
+        }
+        int likes = popularityIndex.getLikesCount(film.getId());
+        directorIds.forEach(directorId -> {
+            filmsByDirector.computeIfAbsent(directorId, id -> ConcurrentHashMap.newKeySet()).add(film.getId());
+            changeDirectorLikes(directorId, likes);
+        });
+    }
+
+    // Вызывается до удаления фильма из индекса популярности: лайки фильма вычитаются из сумм его режиссеров
+    public synchronized void onFilmDeleted(long filmId) {
+        invalidateSuggestions(titles.get(filmId));
+        titles.remove(filmId);
+        Set<Long> directorIds = directorsByFilm.remove(filmId);
+        if (directorIds != null) {
+            directorIds.forEach(directorId -> unlinkFilm(directorId, filmId));
+        }
+    }
+
+    // Хуки лайков вызываются после изменения индекса популярности
+    public synchronized void onLike(long filmId) {
+        changeLikes(filmId, 1);
+    }
+
+    public synchronized void onUnlike(long filmId) {
+        changeLikes(filmId, -1);
+    }
+
+    public synchronized void onDirectorSaved(Director director) {
+        invalidateSuggestions(directorNames.get(director.getId()));
+        invalidateSuggestions(director.getName());
+        directorNames.put(director.getId(), director.getName());
+    }
+
+    public synchronized void onDirectorDeleted(long directorId) {
+        invalidateSuggestions(directorNames.get(directorId));
+        directorNames.remove(directorId);
+        directorLikes.remove(directorId);
+        Set<Long> filmIds = filmsByDirector.remove(directorId);
+        if (filmIds != null) {
+            filmIds.forEach(filmId -> {
+                Set<Long> directorIds = directorsByFilm.get(filmId);
+                if (directorIds != null) {
+                    directorIds.remove(directorId);
+                }
+            });
+        }
+    }
+
+    // Возвращает не больше limit ID фильмов, у которых подстрока встречается в названии и/или имени режиссера,
+    // отсортированных по убыванию количества лайков
+    public List<Long> search(String query, boolean byTitle, boolean byDirector, int limit) {
+        String needle = normalize(query);
+        Set<Long> filmIds = new HashSet<>();
+
+        if (byTitle) {
+            filmIds.addAll(titles.find(needle));
+        }
+        if (byDirector) {
+            for (Long directorId : directorNames.find(needle)) {
+                filmIds.addAll(filmsByDirector.getOrDefault(directorId, Set.of()));
+            }
+        }
+
+        return filmIds.stream()
+                .sorted(Comparator.comparingInt((Long filmId) -> popularityIndex.getLikesCount(filmId)).reversed()
+                        .thenComparing(Comparator.naturalOrder()))
+                .limit(limit)
+                .toList();
+    }
+
+    // Подсказки по началу названия фильма или имени режиссера, лучшие по количеству лайков
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String normalizedPrefix = normalize(prefix);
+        if (normalizedPrefix.length() > CACHED_PREFIX_LENGTH || limit > CACHED_SUGGESTIONS) {
+            return findSuggestions(normalizedPrefix, limit);
+        }
+        List<Suggestion> cached = suggestionsByPrefix.get(normalizedPrefix);
+        if (cached == null) {
+            cached = cacheSuggestions(normalizedPrefix);
+        }
+        return cached.subList(0, Math.min(limit, cached.size()));
+    }
+
+    // Заполняется под монитором, чтобы изменение не проскочило между обходом словаря и записью в кэш
+    private synchronized List<Suggestion> cacheSuggestions(String normalizedPrefix) {
+        return suggestionsByPrefix.computeIfAbsent(normalizedPrefix,
+                key -> List.copyOf(findSuggestions(key, CACHED_SUGGESTIONS)));
+    }
+
+    private List<Suggestion> findSuggestions(String normalizedPrefix, int limit) {
+        PriorityQueue<Suggestion> top = new PriorityQueue<>(BY_LIKES);
+        titles.startingWith(normalizedPrefix).forEach((filmId, title) -> offer(top, limit,
+                new Suggestion(Suggestion.SuggestionType.FILM, filmId, title, popularityIndex.getLikesCount(filmId))));
+        directorNames.startingWith(normalizedPrefix).forEach((directorId, name) -> offer(top, limit,
+                new Suggestion(Suggestion.SuggestionType.DIRECTOR, directorId, name,
+                        directorLikes.getOrDefault(directorId, 0))));
+
+        List<Suggestion> suggestions = new ArrayList<>(top);
+        suggestions.sort(BY_LIKES.reversed());
+        return suggestions;
+    }
+
+    private void changeLikes(long filmId, int delta) {
+        String title = titles.get(filmId);
+        if (title != null) {
+            updateSuggestion(title, new Suggestion(Suggestion.SuggestionType.FILM, filmId, title,
+                    popularityIndex.getLikesCount(filmId)));
+        }
+        for (Long directorId : directorsByFilm.getOrDefault(filmId, Set.of())) {
+            changeDirectorLikes(directorId, delta);
+            String name = directorNames.get(directorId);
+            if (name != null) {
+                updateSuggestion(name, new Suggestion(Suggestion.SuggestionType.DIRECTOR, directorId, name,
+                        directorLikes.getOrDefault(directorId, 0)));
+            }
+        }
+    }
+
+    private void changeDirectorLikes(long directorId, int delta) {
+        if (delta != 0) {
+            directorLikes.merge(directorId, delta, (likes, change) -> likes + change == 0 ? null : likes + change);
+        }
+    }
+
+    // Лайк меняет место одной подсказки, поэтому закэшированные списки правятся на месте.
+    // Список сбрасывается, только если подсказка опустилась ниже остальных в полном списке:
+    // тогда её место может занять подсказка, которой в списке нет
+    private void updateSuggestion(String text, Suggestion updated) {
+        if (suggestionsByPrefix.isEmpty()) {
+            return;
+        }
+        String normalized = normalize(text);
+        for (int length = 1; length <= Math.min(CACHED_PREFIX_LENGTH, normalized.length()); length++) {
+            String prefix = normalized.substring(0, length);
+            List<Suggestion> cached = suggestionsByPrefix.get(prefix);
+            if (cached == null) {
+                continue;
+            }
+            List<Suggestion> others = new ArrayList<>(cached.size() + 1);
+            for (Suggestion suggestion : cached) {
+                if (suggestion.getType() != updated.getType() || !suggestion.getId().equals(updated.getId())) {
+                    others.add(suggestion);
+                }
+            }
+            boolean complete = cached.size() < CACHED_SUGGESTIONS;
+            if (!complete && BY_LIKES.compare(updated, others.get(others.size() - 1)) <= 0) {
+                if (others.size() < cached.size()) {
+                    suggestionsByPrefix.remove(prefix);
+                }
+                continue;
+            }
+            int index = 0;
+            while (index < others.size() && BY_LIKES.compare(others.get(index), updated) > 0) {
+                index++;
+            }
+            others.add(index, updated);
+            if (others.size() > CACHED_SUGGESTIONS) {
+                others.remove(others.size() - 1);
+            }
+            suggestionsByPrefix.put(prefix, List.copyOf(others));
+        }
+    }
+
+    // Сбрасывает закэшированные подсказки коротких префиксов текста (ничего, если текста нет)
+    private void invalidateSuggestions(String text) {
+        if (text == null || suggestionsByPrefix.isEmpty()) {
+            return;
+        }
+        String normalized = normalize(text);
+        for (int length = 1; length <= Math.min(CACHED_PREFIX_LENGTH, normalized.length()); length++) {
+            suggestionsByPrefix.remove(normalized.substring(0, length));
+        }
+    }
+
+    // Куча ограниченного размера: в ней остаются limit подсказок с наибольшим числом лайков
+    private static void offer(PriorityQueue<Suggestion> top, int limit, Suggestion suggestion) {
+        if (top.size() < limit) {
+            top.add(suggestion);
+        } else if (limit > 0 && BY_LIKES.compare(suggestion, top.peek()) > 0) {
+            top.poll();
+            top.add(suggestion);
+        }
+    }
+
+    private void unlinkFilm(Long directorId, Long filmId) {
+        Set<Long> filmIds = filmsByDirector.get(directorId);
+        if (filmIds != null && filmIds.remove(filmId)) {
+            changeDirectorLikes(directorId, -popularityIndex.getLikesCount(filmId));
+            invalidateSuggestions(directorNames.get(directorId));
+        }
+    }
+
+    private static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+
+    // Соответствие "ID -> текст", обратные списки "триграмма -> ID" и словарь, отсортированный по тексту
+    private static class TrigramMap {
+        private final Map<Long, String> texts = new ConcurrentHashMap<>();
+        private final Map<String, Set<Long>> postings = new ConcurrentHashMap<>();
+        // Ключ - нормализованный текст и ID через символ \u0000, значение - исходный текст
+        private final ConcurrentNavigableMap<String, String> sorted = new ConcurrentSkipListMap<>();
+
+        int size() {
+            return texts.size();
+        }
+
+        // Исходный текст по ID или null
+        String get(Long id) {
+            String normalized = texts.get(id);
+            return normalized == null ? null : sorted.get(sortKey(normalized, id));
+        }
+
+        void clear() {
+            texts.clear();
+            postings.clear();
+            sorted.clear();
+        }
+
+        void put(Long id, String text) {
+            String normalized = normalize(text);
+            sorted.put(sortKey(normalized, id), text);
+            String old = texts.put(id, normalized);
+            if (old != null) {
+                if (old.equals(normalized)) {
+                    return;
+                }
+                sorted.remove(sortKey(old, id));
+                removePostings(id, old);
+            }
+            grams(normalized).forEach(gram ->
+                    postings.computeIfAbsent(gram, g -> ConcurrentHashMap.newKeySet()).add(id));
+        }
+
+        void remove(Long id) {
+            String old = texts.remove(id);
+            if (old != null) {
+                sorted.remove(sortKey(old, id));
+                removePostings(id, old);
+            }
+        }
+
+        // Двоичный поиск начала диапазона в отсортированном словаре и обход записей с нужным префиксом
+        Map<Long, String> startingWith(String prefix) {
+            Map<Long, String> matches = new LinkedHashMap<>();
+            sorted.subMap(prefix, true, prefix + Character.MAX_VALUE, false).forEach((key, text) ->
+                    matches.put(Long.parseLong(key.substring(key.lastIndexOf(KEY_SEPARATOR) + 1)), text));
+            return matches;
+        }
+
+        private static String sortKey(String normalized, Long id) {
+            return normalized + KEY_SEPARATOR + id;
+        }
+
+        Collection<Long> find(String needle) {
+            if (needle.length() < GRAM_LENGTH) {
+                // Для коротких запросов триграмм нет, проверяем все тексты
+                return texts.entrySet().stream()
+                        .filter(entry -> entry.getValue().contains(needle))
+                        .map(Map.Entry::getKey)
+                        .toList();
+            }
+
+            // Кандидаты - самый короткий список среди триграмм запроса, затем точная проверка подстроки
+            Set<Long> candidates = null;
+            for (String gram : grams(needle)) {
+                Set<Long> posting = postings.get(gram);
+                if (posting == null) {
+                    return List.of();
+                }
+                if (candidates == null || posting.size() < candidates.size()) {
+                    candidates = posting;
+                }
+            }
+
+            return candidates.stream()
+                    .filter(id -> {
+                        String text = texts.get(id);
+                        return text != null && text.contains(needle);
+                    })
+                    .toList();
+        }
+
+        private void removePostings(Long id, String text) {
+            grams(text).forEach(gram -> {
+                Set<Long> posting = postings.get(gram);
+                if (posting != null) {
+                    posting.remove(id);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.datasource.ReadYourWrites;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.TextIndexStats;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+// Инвертированный индекс по названиям и описаниям фильмов с ранжированием BM25.
+// Списки вхождений хранятся в массивах int; документы получают номера по возрастанию,
+// поэтому списки остаются отсортированными без вставок в середину.
+// Изменения выполняются последовательно под монитором индекса, поиск - под блокировкой чтения.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FilmTextIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    // Каждое слово названия учитывается как несколько вхождений
+    private static final int TITLE_WEIGHT = 2;
+    private static final int LOAD_CHUNK_SIZE = 500;
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+    private final FilmStorage filmStorage;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Segment segment = new Segment();
+
+    private volatile long lastRebuildMillis;
+    private volatile LocalDateTime lastRebuildAt;
+    private final AtomicLong updates = new AtomicLong();
+    private final AtomicLong updateNanos = new AtomicLong();
+
+    // Полная перестройка: фильмы читаются из БД порциями в новый сегмент, который затем подменяет текущий.
+    // Поиск в это время продолжает работать по старому сегменту
+    @PostConstruct
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        Segment rebuilt = new Segment();
+        ReadYourWrites.runOnPrimary(() ->
+                filmStorage.streamAllFilms(LOAD_CHUNK_SIZE, chunk -> chunk.forEach(rebuilt::add)));
+        rebuilt.trim();
+
+        lock.writeLock().lock();
+        try {
+            segment = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        lastRebuildMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        lastRebuildAt = LocalDateTime.now();
+        log.info("Полнотекстовый индекс построен за {} мс: {} фильмов, {} термов",
+                lastRebuildMillis, rebuilt.liveDocs, rebuilt.postings.size());
+    }
+
+    public synchronized void onFilmSaved(Film film) {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            segment.remove(film.getId());
+            segment.add(film);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        recordUpdate(start);
+    }
+
+    public synchronized void onFilmDeleted(long filmId) {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            segment.remove(filmId);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        recordUpdate(start);
+    }
+
+    // Возвращает ID не более чем limit фильмов, упорядоченных по убыванию релевантности запросу
+    public List<Long> search(String query, int limit) {
+        List<String> terms = tokenize(query).stream().distinct().toList();
+
+        lock.readLock().lock();
+        try {
+            return segment.search(terms, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public TextIndexStats getStats() {
+        lock.readLock().lock();
+        try {
+            long updatesCount = updates.get();
+            return new TextIndexStats(segment.liveDocs, segment.postings.size(), segment.deleted.cardinality(),
+                    lastRebuildMillis, lastRebuildAt, updatesCount,
+                    updatesCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(updateNanos.get()) / updatesCount);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Когда удалённых документов становится больше, чем живых, переписываем списки вхождений без них
+    private void compactIfNeeded() {
+        if (segment.deleted.cardinality() > segment.liveDocs) {
+            segment = segment.compact();
+        }
+    }
+
+    private void recordUpdate(long start) {
+        updates.incrementAndGet();
+        updateNanos.addAndGet(System.nanoTime() - start);
+    }
+
+    private static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    // Номера документов, частоты и длины; удалённые документы помечаются в deleted до следующего сжатия
+    private static class Segment {
+        private final Map<String, Postings> postings = new HashMap<>();
+        private final Map<Long, Integer> docByFilm = new HashMap<>();
+        private final BitSet deleted = new BitSet();
+        private long[] filmIds = new long[16];
+        private int[] docLengths = new int[16];
+        private String[][] docTerms = new String[16][];
+        private int docCount;
+        private int liveDocs;
+        private long totalLength;
+
+        void add(Film film) {
+            Map<String, Integer> frequencies = new LinkedHashMap<>();
+            for (String token : tokenize(film.getName())) {
+                frequencies.merge(token, TITLE_WEIGHT, Integer::sum);
+            }
+            for (String token : tokenize(film.getDescription())) {
+                frequencies.merge(token, 1, Integer::sum);
+            }
+            int length = frequencies.values().stream().mapToInt(Integer::intValue).sum();
+
+            int doc = addDocument(film.getId(), length, frequencies.keySet().toArray(String[]::new));
+            frequencies.forEach((term, frequency) ->
+                    postings.computeIfAbsent(term, t -> new Postings()).add(doc, frequency));
+        }
+
+        void remove(long filmId) {
+            Integer doc = docByFilm.remove(filmId);
+            if (doc == null) {
+                return;
+            }
+            deleted.set(doc);
+            for (String term : docTerms[doc]) {
+                postings.get(term).liveDocs--;
+            }
+            docTerms[doc] = null;
+            liveDocs--;
+            totalLength -= docLengths[doc];
+        }
+
+        List<Long> search(List<String> terms, int limit) {
+            if (liveDocs == 0 || limit <= 0) {
+                return List.of();
+            }
+
+            double averageLength = (double) totalLength / liveDocs;
+            Map<Integer, Double> scores = new HashMap<>();
+            for (String term : terms) {
+                Postings posting = postings.get(term);
+                if (posting == null || posting.liveDocs == 0) {
+                    continue;
+                }
+                double idf = Math.log(1 + (liveDocs - posting.liveDocs + 0.5) / (posting.liveDocs + 0.5));
+                for (int i = 0; i < posting.size; i++) {
+                    int doc = posting.docs[i];
+                    if (deleted.get(doc)) {
+                        continue;
+                    }
+                    int frequency = posting.frequencies[i];
+                    double norm = K1 * (1 - B + B * docLengths[doc] / averageLength);
+                    scores.merge(doc, idf * frequency * (K1 + 1) / (frequency + norm), Double::sum);
+                }
+            }
+
+            // Куча ограниченного размера: в вершине - худший из отобранных документов
+            PriorityQueue<Map.Entry<Integer, Double>> top = new PriorityQueue<>(
+                    Map.Entry.<Integer, Double>comparingByValue()
+                            .thenComparing(entry -> filmIds[entry.getKey()], (a, b) -> Long.compare(b, a)));
+            for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+                top.add(entry);
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+
+            Long[] result = new Long[top.size()];
+            for (int i = result.length - 1; i >= 0; i--) {
+                result[i] = filmIds[top.poll().getKey()];
+            }
+            return Arrays.asList(result);
+        }
+
+        Segment compact() {
+            Segment compacted = new Segment();
+            for (int doc = 0; doc < docCount; doc++) {
+                if (!deleted.get(doc)) {
+                    compacted.addDocument(filmIds[doc], docLengths[doc], docTerms[doc]);
+                }
+            }
+            // Номера документов сохраняют относительный порядок, поэтому списки остаются отсортированными
+            int[] remap = new int[docCount];
+            int next = 0;
+            for (int doc = 0; doc < docCount; doc++) {
+                remap[doc] = deleted.get(doc) ? -1 : next++;
+            }
+            postings.forEach((term, posting) -> {
+                Postings rewritten = posting.without(deleted, remap);
+                if (rewritten.size > 0) {
+                    compacted.postings.put(term, rewritten);
+                }
+            });
+            compacted.trim();
+            return compacted;
+        }
+
+        private int addDocument(long filmId, int length, String[] terms) {
+            int doc = docCount++;
+            if (doc == filmIds.length) {
+                int capacity = filmIds.length + (filmIds.length >> 1);
+                filmIds = Arrays.copyOf(filmIds, capacity);
+                docLengths = Arrays.copyOf(docLengths, capacity);
+                docTerms = Arrays.copyOf(docTerms, capacity);
+            }
+            filmIds[doc] = filmId;
+            docLengths[doc] = length;
+            docTerms[doc] = terms;
+            docByFilm.put(filmId, doc);
+            liveDocs++;
+            totalLength += length;
+            return doc;
+        }
+
+        void trim() {
+            postings.values().forEach(Postings::trim);
+        }
+    }
+
+    private static class Postings {
+        private int[] docs = new int[2];
+        private int[] frequencies = new int[2];
+        private int size;
+        private int liveDocs;
+
+        void add(int doc, int frequency) {
+            if (size == docs.length) {
+                int capacity = Math.max(2, size * 2);
+                docs = Arrays.copyOf(docs, capacity);
+                frequencies = Arrays.copyOf(frequencies, capacity);
+            }
+            docs[size] = doc;
+            frequencies[size] = frequency;
+            size++;
+            liveDocs++;
+        }
+
+        Postings without(BitSet deleted, int[] remap) {
+            Postings rewritten = new Postings();
+            for (int i = 0; i < size; i++) {
+                if (!deleted.get(docs[i])) {
+                    rewritten.add(remap[docs[i]], frequencies[i]);
+                }
+            }
+            return rewritten;
+        }
+
+        void trim() {
+            docs = Arrays.copyOf(docs, size);
+            frequencies = Arrays.copyOf(frequencies, size);
+        }
+    }
+}
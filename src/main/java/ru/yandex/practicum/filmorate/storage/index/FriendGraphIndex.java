@@ -0,0 +1,359 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.datasource.ReadYourWrites;
+import ru.yandex.practicum.filmorate.storage.FriendshipStorage;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongFunction;
+
+// Граф друзей из таблицы friends в формате CSR: отсортированные ID пользователей, смещения строк
+// и один общий массив отсортированных ID друзей. Изменения после последнего уплотнения хранятся
+// поверх него как добавленные и удалённые друзья пользователя и удалённые пользователи; когда их накапливается
+// больше порога, граф пересобирается. Все операции идут по массивам int без упаковки в Long.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FriendGraphIndex {
+
+    private static final int[] EMPTY = new int[0];
+    private static final Delta NO_CHANGES = new Delta(EMPTY, EMPTY);
+
+    private final FriendshipStorage friendshipStorage;
+
+    @Value("${filmorate.friend-graph.compact-threshold:10000}")
+    private int compactThreshold;
+
+    // Снимок и изменения к нему подменяются вместе, поэтому читатель не применит изменения к чужому снимку
+    private volatile State state = new State(Csr.build(EMPTY, userId -> EMPTY), new ConcurrentHashMap<>(), EMPTY);
+    private int pendingChanges;
+
+    @PostConstruct
+    public synchronized void load() {
+        Map<Long, List<Long>> friendships = ReadYourWrites.onPrimary(friendshipStorage::getAllFriendships);
+        int[] userIds = friendships.keySet().stream().mapToInt(Math::toIntExact).sorted().toArray();
+        Csr csr = Csr.build(userIds, userId -> friendships.get(userId).stream()
+                .mapToInt(Math::toIntExact).sorted().distinct().toArray());
+        state = new State(csr, new ConcurrentHashMap<>(), EMPTY);
+        pendingChanges = 0;
+        log.info("Граф друзей загружен: {} пользователей, {} связей", userIds.length, csr.targets.length);
+    }
+
+    public synchronized void onFriendAdded(long userId, long friendId) {
+        int friend = Math.toIntExact(friendId);
+        Delta delta = state.deltas.getOrDefault(userId, NO_CHANGES);
+        if (Arrays.binarySearch(delta.removed, friend) >= 0) {
+            putDelta(userId, new Delta(delta.added, remove(delta.removed, friend)));
+        } else if (!state.base.contains(userId, friend)) {
+            putDelta(userId, new Delta(insert(delta.added, friend), delta.removed));
+        }
+    }
+
+    public synchronized void onFriendRemoved(long userId, long friendId) {
+        int friend = Math.toIntExact(friendId);
+        Delta delta = state.deltas.getOrDefault(userId, NO_CHANGES);
+        if (Arrays.binarySearch(delta.added, friend) >= 0) {
+            putDelta(userId, new Delta(remove(delta.added, friend), delta.removed));
+        } else if (state.base.contains(userId, friend)) {
+            putDelta(userId, new Delta(delta.added, insert(delta.removed, friend)));
+        }
+    }
+
+    // Пользователь может быть другом у кого угодно, поэтому он отмечается удалённым в наложении
+    // и отфильтровывается при чтении до следующего уплотнения
+    public synchronized void onUserDeleted(long userId) {
+        State current = state;
+        state = new State(current.base, current.deltas, insert(current.deleted, Math.toIntExact(userId)));
+        current.deltas.remove(userId);
+        if (++pendingChanges > compactThreshold) {
+            compact();
+        }
+    }
+
+    // Отсортированные ID друзей пользователя
+    public int[] getFriends(long userId) {
+        return state.friends(userId);
+    }
+
+    // Общие друзья слиянием двух отсортированных списков
+    public int[] getCommonFriends(long userId, long otherId) {
+        State current = state;
+        int[] friends = current.friends(userId);
+        int[] otherFriends = current.friends(otherId);
+        int[] common = new int[Math.min(friends.length, otherFriends.length)];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < friends.length && j < otherFriends.length) {
+            if (friends[i] < otherFriends[j]) {
+                i++;
+            } else if (friends[i] > otherFriends[j]) {
+                j++;
+            } else {
+                common[size++] = friends[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(common, size);
+    }
+
+    // Друзья друзей, которые ещё не в друзьях, по убыванию числа общих друзей (при равенстве - по возрастанию ID)
+    public List<MutualCount> getSuggestions(long userId, int limit) {
+        State current = state;
+        int[] friends = current.friends(userId);
+        int[][] friendsOfFriends = new int[friends.length][];
+        int total = 0;
+        for (int i = 0; i < friends.length; i++) {
+            friendsOfFriends[i] = current.friends(friends[i]);
+            total += friendsOfFriends[i].length;
+        }
+
+        // Все друзья друзей в одном массиве: после сортировки повторы одного ID стоят подряд
+        int[] candidates = new int[total];
+        int offset = 0;
+        for (int[] row : friendsOfFriends) {
+            System.arraycopy(row, 0, candidates, offset, row.length);
+            offset += row.length;
+        }
+        Arrays.sort(candidates);
+
+        int self = Math.toIntExact(userId);
+        int distinct = 0;
+        for (int i = 0; i < candidates.length; i++) {
+            if ((i == 0 || candidates[i] != candidates[i - 1]) && isSuggestion(candidates[i], self, friends)) {
+                distinct++;
+            }
+        }
+
+        // Лучшие limit кандидатов отбираются кучей с минимумом в корне.
+        // Ключ: число общих друзей в старших 32 битах, инвертированный ID в младших
+        long[] heap = new long[Math.min(limit, distinct)];
+        int size = 0;
+        int start = 0;
+        while (start < candidates.length && heap.length > 0) {
+            int candidate = candidates[start];
+            int end = start;
+            while (end < candidates.length && candidates[end] == candidate) {
+                end++;
+            }
+            if (isSuggestion(candidate, self, friends)) {
+                long key = ((long) (end - start) << 32) | (Integer.MAX_VALUE - candidate);
+                if (size < heap.length) {
+                    heap[size++] = key;
+                    siftUp(heap, size - 1);
+                } else if (key > heap[0]) {
+                    heap[0] = key;
+                    siftDown(heap, size, 0);
+                }
+            }
+            start = end;
+        }
+
+        // Извлечение минимума заполняет ответ с конца, от худшего кандидата к лучшему
+        MutualCount[] suggestions = new MutualCount[size];
+        for (int i = size - 1; i >= 0; i--) {
+            long key = heap[0];
+            heap[0] = heap[i];
+            siftDown(heap, i, 0);
+            suggestions[i] = new MutualCount(Integer.MAX_VALUE - (int) key, (int) (key >>> 32));
+        }
+        return List.of(suggestions);
+    }
+
+    private static boolean isSuggestion(int candidate, int self, int[] friends) {
+        return candidate != self && Arrays.binarySearch(friends, candidate) < 0;
+    }
+
+    private static void siftUp(long[] heap, int index) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (heap[parent] <= heap[index]) {
+                return;
+            }
+            long swap = heap[index];
+            heap[index] = heap[parent];
+            heap[parent] = swap;
+            index = parent;
+        }
+    }
+
+    private static void siftDown(long[] heap, int size, int index) {
+        while (true) {
+            int smallest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && heap[left] < heap[smallest]) {
+                smallest = left;
+            }
+            if (right < size && heap[right] < heap[smallest]) {
+                smallest = right;
+            }
+            if (smallest == index) {
+                return;
+            }
+            long swap = heap[index];
+            heap[index] = heap[smallest];
+            heap[smallest] = swap;
+            index = smallest;
+        }
+    }
+
+    private void putDelta(long userId, Delta delta) {
+        if (delta.added.length == 0 && delta.removed.length == 0) {
+            state.deltas.remove(userId);
+        } else {
+            state.deltas.put(userId, delta);
+        }
+        if (++pendingChanges > compactThreshold) {
+            compact();
+        }
+    }
+
+    // Пересобирает CSR из снимка и изменений, пропуская удалённых пользователей
+    private void compact() {
+        State current = state;
+        int[] changedUsers = current.deltas.keySet().stream().mapToInt(Math::toIntExact).sorted().toArray();
+        int[] baseUsers = current.base.userIds;
+
+        // Слияние отсортированных пользователей снимка и пользователей с изменениями
+        int[] userIds = new int[baseUsers.length + changedUsers.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < baseUsers.length || j < changedUsers.length) {
+            int next;
+            if (j == changedUsers.length || i < baseUsers.length && baseUsers[i] < changedUsers[j]) {
+                next = baseUsers[i++];
+            } else if (i == baseUsers.length || changedUsers[j] < baseUsers[i]) {
+                next = changedUsers[j++];
+            } else {
+                next = baseUsers[i++];
+                j++;
+            }
+            if (Arrays.binarySearch(current.deleted, next) < 0) {
+                userIds[size++] = next;
+            }
+        }
+        userIds = Arrays.copyOf(userIds, size);
+
+        // Строки наложения уже без удалённых пользователей
+        Csr csr = Csr.build(userIds, current::friends);
+        state = new State(csr, new ConcurrentHashMap<>(), EMPTY);
+        pendingChanges = 0;
+        log.debug("Граф друзей уплотнён: {} пользователей, {} связей", userIds.length, csr.targets.length);
+    }
+
+    private static int[] insert(int[] values, int value) {
+        int index = Arrays.binarySearch(values, value);
+        if (index >= 0) {
+            return values;
+        }
+        int insertAt = -index - 1;
+        int[] result = new int[values.length + 1];
+        System.arraycopy(values, 0, result, 0, insertAt);
+        result[insertAt] = value;
+        System.arraycopy(values, insertAt, result, insertAt + 1, values.length - insertAt);
+        return result;
+    }
+
+    private static int[] remove(int[] values, int value) {
+        int index = Arrays.binarySearch(values, value);
+        if (index < 0) {
+            return values;
+        }
+        int[] result = new int[values.length - 1];
+        System.arraycopy(values, 0, result, 0, index);
+        System.arraycopy(values, index + 1, result, index, values.length - index - 1);
+        return result;
+    }
+
+    // Кандидат в друзья и число общих с ним друзей
+    public record MutualCount(long userId, int mutualFriends) {
+    }
+
+    // Добавленные и удалённые после уплотнения друзья, оба массива отсортированы
+    private record Delta(int[] added, int[] removed) {
+    }
+
+    // Удалённые после уплотнения пользователи - отсортированный массив, он подменяется вместе с состоянием
+    private record State(Csr base, Map<Long, Delta> deltas, int[] deleted) {
+
+        // Строка снимка, из которой исключены удалённые друзья и пользователи
+        // и в которую слиянием добавлены новые друзья
+        int[] friends(long userId) {
+            if (Arrays.binarySearch(deleted, Math.toIntExact(userId)) >= 0) {
+                return EMPTY;
+            }
+            int row = Arrays.binarySearch(base.userIds, Math.toIntExact(userId));
+            int from = row < 0 ? 0 : base.offsets[row];
+            int to = row < 0 ? 0 : base.offsets[row + 1];
+            Delta delta = deltas.get(userId);
+            if (delta == null && deleted.length == 0) {
+                return Arrays.copyOfRange(base.targets, from, to);
+            }
+            if (delta == null) {
+                delta = NO_CHANGES;
+            }
+
+            int[] result = new int[to - from + delta.added.length];
+            int size = 0;
+            int i = from;
+            int j = 0;
+            while (i < to || j < delta.added.length) {
+                int next;
+                if (j == delta.added.length || i < to && base.targets[i] < delta.added[j]) {
+                    next = base.targets[i++];
+                    if (Arrays.binarySearch(delta.removed, next) >= 0) {
+                        continue;
+                    }
+                } else {
+                    next = delta.added[j++];
+                }
+                if (Arrays.binarySearch(deleted, next) < 0) {
+                    result[size++] = next;
+                }
+            }
+            return size == result.length ? result : Arrays.copyOf(result, size);
+        }
+    }
+
+    private static final class Csr {
+        private final int[] userIds;
+        // Друзья пользователя userIds[i] лежат в targets с offsets[i] по offsets[i + 1]
+        private final int[] offsets;
+        private final int[] targets;
+
+        private Csr(int[] userIds, int[] offsets, int[] targets) {
+            this.userIds = userIds;
+            this.offsets = offsets;
+            this.targets = targets;
+        }
+
+        static Csr build(int[] userIds, LongFunction<int[]> rows) {
+            int[][] friends = new int[userIds.length][];
+            int[] offsets = new int[userIds.length + 1];
+            for (int i = 0; i < userIds.length; i++) {
+                friends[i] = rows.apply(userIds[i]);
+                offsets[i + 1] = offsets[i] + friends[i].length;
+            }
+            int[] targets = new int[offsets[userIds.length]];
+            for (int i = 0; i < userIds.length; i++) {
+                System.arraycopy(friends[i], 0, targets, offsets[i], friends[i].length);
+            }
+            return new Csr(userIds, offsets, targets);
+        }
+
+        boolean contains(long userId, int friendId) {
+            int row = Arrays.binarySearch(userIds, Math.toIntExact(userId));
+            return row >= 0 && Arrays.binarySearch(targets, offsets[row], offsets[row + 1], friendId) >= 0;
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.datasource.ReadYourWrites;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.storage.DAOImpl.EventDbStorage;
+import ru.yandex.practicum.filmorate.storage.FriendshipStorage;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Ленты событий друзей в памяти. Событие обычного автора при записи раскладывается в ограниченные ленты
+// всех его подписчиков (fan-out-on-write). Авторов с числом подписчиков больше порога в ленты не раскладываем:
+// их события читаются из журнала автора и сливаются с лентой читателя при чтении (fan-out-on-read).
+// Чтение страницы стоит O(limit * log k), где k - число таких авторов среди друзей читателя.
+// Журналы в памяти держим только для таких авторов: ленту нового друга обычного автора заполняем из БД.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FriendsTimelineIndex {
+
+    private static final Comparator<EventCursor> NEWEST_FIRST =
+            Comparator.comparingLong((EventCursor cursor) -> cursor.head.getEventId()).reversed();
+
+    private final FriendshipStorage friendshipStorage;
+    private final EventDbStorage eventDbStorage;
+
+    @Value("${filmorate.timeline.capacity:500}")
+    private int capacity;
+    @Value("${filmorate.timeline.fan-out-threshold:1000}")
+    private int fanOutThreshold;
+
+    // Кого пользователь добавил в друзья (чьи события читает) и кто добавил в друзья его
+    private final Map<Long, Set<Long>> friendsByUser = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> followersByUser = new ConcurrentHashMap<>();
+    private final Map<Long, EventLog> timelines = new ConcurrentHashMap<>();
+    // Последние события авторов, читаемых при чтении
+    private final Map<Long, EventLog> authored = new ConcurrentHashMap<>();
+    // Авторы, чьи события читаются при чтении. Признак не снимается до перезапуска, чтобы не потерять события,
+    // которые уже не были разложены по лентам
+    private final Set<Long> readTimeAuthors = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public synchronized void load() {
+        ReadYourWrites.onPrimary(friendshipStorage::getAllFriendships).forEach((userId, friendIds) -> friendIds.forEach(friendId -> {
+            friendsByUser.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(friendId);
+            followersByUser.computeIfAbsent(friendId, id -> ConcurrentHashMap.newKeySet()).add(userId);
+        }));
+        followersByUser.forEach((userId, followers) -> {
+            if (followers.size() > fanOutThreshold) {
+                readTimeAuthors.add(userId);
+            }
+        });
+
+        // Последние события читаем только у авторов с подписчиками: keyset-запрос по (user_id, event_id)
+        // на каждого вместо оконной функции по всей таблице событий
+        int eventCount = 0;
+        for (Long authorId : followersByUser.keySet()) {
+            List<Event> events = recentEvents(authorId);
+            onEventsWritten(events);
+            eventCount += events.size();
+        }
+        log.info("Ленты друзей загружены: {} событий, {} лент, {} авторов читаются при чтении",
+                eventCount, timelines.size(), readTimeAuthors.size());
+    }
+
+    // Вызывается после записи событий в БД, когда у них уже есть ID
+    public synchronized void onEventsWritten(List<Event> events) {
+        for (Event event : events) {
+            long authorId = event.getUserId();
+            Set<Long> followers = followersByUser.getOrDefault(authorId, Set.of());
+            if (readTimeAuthors.contains(authorId) || markIfPopular(authorId, followers)) {
+                authored.computeIfAbsent(authorId, id -> new EventLog(capacity)).add(event);
+                continue;
+            }
+            for (Long followerId : followers) {
+                timeline(followerId).add(event);
+            }
+        }
+    }
+
+    public void onFriendAdded(long userId, long friendId) {
+        synchronized (this) {
+            friendsByUser.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(friendId);
+            Set<Long> followers = followersByUser.computeIfAbsent(friendId, id -> ConcurrentHashMap.newKeySet());
+            followers.add(userId);
+            if (readTimeAuthors.contains(friendId) || markIfPopular(friendId, followers)) {
+                return;
+            }
+        }
+        // Новый друг сразу появляется в ленте со своими последними событиями. Читаем их из БД вне монитора:
+        // подписка уже учтена, поэтому события, записанные во время чтения, придут и через onEventsWritten,
+        // а повторы отсеются по ID
+        List<Event> friendEvents = recentEvents(friendId);
+        synchronized (this) {
+            if (readTimeAuthors.contains(friendId)
+                    || !friendsByUser.getOrDefault(userId, Set.of()).contains(friendId)) {
+                return;
+            }
+            EventLog timeline = timeline(userId);
+            friendEvents.forEach(timeline::add);
+        }
+    }
+
+    public synchronized void onFriendRemoved(long userId, long friendId) {
+        Set<Long> friends = friendsByUser.get(userId);
+        if (friends != null) {
+            friends.remove(friendId);
+        }
+        Set<Long> followers = followersByUser.get(friendId);
+        if (followers != null) {
+            followers.remove(userId);
+        }
+        EventLog timeline = timelines.get(userId);
+        if (timeline != null) {
+            timeline.removeAuthor(friendId);
+        }
+    }
+
+    // События пользователя удаляются из БД каскадно, поэтому убираем их и из лент подписчиков
+    public synchronized void onUserDeleted(long userId) {
+        for (Long followerId : followersByUser.getOrDefault(userId, Set.of())) {
+            EventLog timeline = timelines.get(followerId);
+            if (timeline != null) {
+                timeline.removeAuthor(userId);
+            }
+            Set<Long> friends = friendsByUser.get(followerId);
+            if (friends != null) {
+                friends.remove(userId);
+            }
+        }
+        for (Long friendId : friendsByUser.getOrDefault(userId, Set.of())) {
+            Set<Long> followers = followersByUser.get(friendId);
+            if (followers != null) {
+                followers.remove(userId);
+            }
+        }
+        friendsByUser.remove(userId);
+        followersByUser.remove(userId);
+        timelines.remove(userId);
+        authored.remove(userId);
+        readTimeAuthors.remove(userId);
+    }
+
+    // Страница ленты от новых событий к старым: k-путевое слияние собственной ленты пользователя
+    // с журналами популярных друзей
+    public List<Event> getTimeline(long userId, Long beforeId, int limit) {
+        long before = beforeId == null ? Long.MAX_VALUE : beforeId;
+        PriorityQueue<EventCursor> cursors = new PriorityQueue<>(NEWEST_FIRST);
+        addCursor(cursors, timelines.get(userId), before);
+
+        Set<Long> friends = friendsByUser.getOrDefault(userId, Set.of());
+        // Перебираем меньшее из множеств, чтобы не обходить всех друзей
+        if (readTimeAuthors.size() <= friends.size()) {
+            for (Long authorId : readTimeAuthors) {
+                if (friends.contains(authorId)) {
+                    addCursor(cursors, authored.get(authorId), before);
+                }
+            }
+        } else {
+            for (Long friendId : friends) {
+                if (readTimeAuthors.contains(friendId)) {
+                    addCursor(cursors, authored.get(friendId), before);
+                }
+            }
+        }
+
+        List<Event> page = new ArrayList<>(Math.min(limit, capacity));
+        long lastEventId = Long.MAX_VALUE;
+        while (page.size() < limit && !cursors.isEmpty()) {
+            EventCursor cursor = cursors.poll();
+            Event event = cursor.head;
+            // Событие автора, ставшего популярным, может оказаться и в ленте, и в его журнале
+            if (event.getEventId() != lastEventId) {
+                page.add(event);
+                lastEventId = event.getEventId();
+            }
+            if (cursor.advance()) {
+                cursors.add(cursor);
+            }
+        }
+        return page;
+    }
+
+    private boolean markIfPopular(long authorId, Set<Long> followers) {
+        if (followers.size() <= fanOutThreshold) {
+            return false;
+        }
+        readTimeAuthors.add(authorId);
+        // Порог пересекается редко, поэтому журнал автора один раз заполняем из БД прямо под монитором
+        EventLog authorLog = authored.computeIfAbsent(authorId, id -> new EventLog(capacity));
+        recentEvents(authorId).forEach(authorLog::add);
+        log.info("У пользователя {} больше {} подписчиков, его события читаются при чтении лент",
+                authorId, fanOutThreshold);
+        return true;
+    }
+
+    private List<Event> recentEvents(long authorId) {
+        return ReadYourWrites.onPrimary(() -> eventDbStorage.getEventsPage(authorId, null, capacity));
+    }
+
+    private EventLog timeline(long userId) {
+        return timelines.computeIfAbsent(userId, id -> new EventLog(capacity));
+    }
+
+    private static void addCursor(PriorityQueue<EventCursor> cursors, EventLog log, long before) {
+        if (log == null) {
+            return;
+        }
+        EventCursor cursor = new EventCursor(log.events.headMap(before, false).descendingMap().values().iterator());
+        if (cursor.advance()) {
+            cursors.add(cursor);
+        }
+    }
+
+    // Ограниченный журнал событий по возрастанию ID: при переполнении вытесняются самые старые
+    private static class EventLog {
+        private final ConcurrentNavigableMap<Long, Event> events = new ConcurrentSkipListMap<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final int capacity;
+
+        EventLog(int capacity) {
+            this.capacity = capacity;
+        }
+
+        void add(Event event) {
+            if (events.putIfAbsent(event.getEventId(), event) != null) {
+                return;
+            }
+            if (size.incrementAndGet() > capacity && events.pollFirstEntry() != null) {
+                size.decrementAndGet();
+            }
+        }
+
+        void removeAuthor(long authorId) {
+            events.values().removeIf(event -> {
+                if (event.getUserId() == authorId) {
+                    size.decrementAndGet();
+                    return true;
+                }
+                return false;
+            });
+        }
+    }
+
+    private static class EventCursor {
+        private final Iterator<Event> iterator;
+        private Event head;
+
+        EventCursor(Iterator<Event> iterator) {
+            this.iterator = iterator;
+        }
+
+        boolean advance() {
+            head = iterator.hasNext() ? iterator.next() : null;
+            return head != null;
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.ItemSimilarityStats;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Разреженная матрица сходства фильмов для рекомендаций item-item: для каждого фильма хранятся только
+// top-K соседей по косинусу или коэффициенту Жаккара множеств лайкнувших пользователей.
+// Матрица строится из графа лайков в ForkJoinPool по диапазонам ID фильмов и подменяется целиком;
+// фоновый поток перестраивает её, если граф изменился. Запрос читает только соседей лайкнутых фильмов,
+// поэтому его стоимость не зависит от числа пользователей.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ItemSimilarityIndex {
+
+    // Фильмов в одной задаче, которая уже не делится дальше
+    private static final int SPLIT_THRESHOLD = 256;
+
+    private final LikeGraphIndex likeGraphIndex;
+
+    @Value("${filmorate.item-similarity.metric:COSINE}")
+    private Metric metric;
+    @Value("${filmorate.item-similarity.top-k:50}")
+    private int topK;
+    // 0 - по числу процессоров
+    @Value("${filmorate.item-similarity.parallelism:0}")
+    private int parallelism;
+    @Value("${filmorate.item-similarity.rebuild-interval:1m}")
+    private Duration rebuildInterval;
+    @Value("${filmorate.recommendations.top-n:100}")
+    private int topN;
+
+    private volatile Matrix matrix = new Matrix(-1, new int[0], new int[0][], new float[0][]);
+    private final ReentrantLock buildLock = new ReentrantLock();
+
+    private final AtomicLong builds = new AtomicLong();
+    private volatile long lastBuildNanos;
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong totalQueryNanos = new AtomicLong();
+    private final AtomicLong maxQueryNanos = new AtomicLong();
+
+    private ForkJoinPool pool;
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void start() {
+        pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "item-similarity-builder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::rebuildIfStale, 0, rebuildInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+        pool.shutdownNow();
+    }
+
+    public enum Metric {
+        COSINE, JACCARD
+    }
+
+    // Перестраивает матрицу по текущему графу лайков. Сборки выполняются по одной
+    public void rebuild() {
+        buildLock.lock();
+        try {
+            long graphVersion = likeGraphIndex.getVersion();
+            long startedAt = System.nanoTime();
+            int[] filmIds = likeGraphIndex.getFilms().stream().mapToInt(Math::toIntExact).sorted().toArray();
+            int[][] neighbours = new int[filmIds.length][];
+            float[][] scores = new float[filmIds.length][];
+            pool.invoke(new BuildTask(filmIds, 0, filmIds.length, neighbours, scores));
+
+            Matrix built = new Matrix(graphVersion, filmIds, neighbours, scores);
+            matrix = built;
+            lastBuildNanos = System.nanoTime() - startedAt;
+            builds.incrementAndGet();
+            log.info("Матрица сходства фильмов построена за {} мс: {} фильмов, {} связей",
+                    TimeUnit.NANOSECONDS.toMillis(lastBuildNanos), filmIds.length, built.size());
+        } finally {
+            buildLock.unlock();
+        }
+    }
+
+    // ID фильмов, которых у пользователя нет, по убыванию суммы сходства с его лайкнутыми фильмами
+    public List<Long> recommend(long userId) {
+        long startedAt = System.nanoTime();
+        Matrix current = matrix;
+        int[] liked = likeGraphIndex.getFilmIds(userId);
+
+        Map<Integer, Double> candidates = new HashMap<>();
+        for (int filmId : liked) {
+            int row = Arrays.binarySearch(current.filmIds(), filmId);
+            if (row < 0) {
+                continue;
+            }
+            int[] rowNeighbours = current.neighbours()[row];
+            float[] rowScores = current.scores()[row];
+            for (int k = 0; k < rowNeighbours.length; k++) {
+                if (Arrays.binarySearch(liked, rowNeighbours[k]) < 0) {
+                    candidates.merge(rowNeighbours[k], (double) rowScores[k], Double::sum);
+                }
+            }
+        }
+
+        List<Long> filmIds = candidates.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Double>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(topN)
+                .map(entry -> (long) entry.getKey())
+                .toList();
+
+        long elapsed = System.nanoTime() - startedAt;
+        queries.incrementAndGet();
+        totalQueryNanos.addAndGet(elapsed);
+        maxQueryNanos.accumulateAndGet(elapsed, Math::max);
+        return filmIds;
+    }
+
+    // Соседи фильма по убыванию сходства
+    public List<Long> getNeighbours(long filmId) {
+        Matrix current = matrix;
+        int row = Arrays.binarySearch(current.filmIds(), Math.toIntExact(filmId));
+        if (row < 0) {
+            return List.of();
+        }
+        List<Long> neighbours = new ArrayList<>(current.neighbours()[row].length);
+        for (int neighbour : current.neighbours()[row]) {
+            neighbours.add((long) neighbour);
+        }
+        return neighbours;
+    }
+
+    public ItemSimilarityStats getStats() {
+        Matrix current = matrix;
+        long size = current.size();
+        long count = queries.get();
+        return new ItemSimilarityStats(metric.name(), topK, current.filmIds().length, size,
+                // ID соседа и его оценка - по 4 байта на связь
+                size * (Integer.BYTES + Float.BYTES),
+                current.graphVersion() != likeGraphIndex.getVersion(), builds.get(),
+                TimeUnit.NANOSECONDS.toMillis(lastBuildNanos), count,
+                count == 0 ? 0 : totalQueryNanos.get() / 1e3 / count,
+                TimeUnit.NANOSECONDS.toMicros(maxQueryNanos.get()));
+    }
+
+    private void rebuildIfStale() {
+        if (matrix.graphVersion() == likeGraphIndex.getVersion()) {
+            return;
+        }
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.error("Ошибка построения матрицы сходства фильмов: {}", e.getMessage());
+        }
+    }
+
+    private float similarity(int common, int usersA, int usersB) {
+        // Граф мог измениться во время сборки, поэтому размеры не меньше числа общих пользователей
+        usersA = Math.max(usersA, common);
+        usersB = Math.max(usersB, common);
+        return switch (metric) {
+            case COSINE -> (float) (common / Math.sqrt((double) usersA * usersB));
+            case JACCARD -> (float) common / (usersA + usersB - common);
+        };
+    }
+
+    // Строки матрицы для диапазона фильмов [from, to): диапазон делится пополам, пока не станет достаточно мал
+    private final class BuildTask extends RecursiveAction {
+        private final int[] filmIds;
+        private final int from;
+        private final int to;
+        private final int[][] neighbours;
+        private final float[][] scores;
+
+        BuildTask(int[] filmIds, int from, int to, int[][] neighbours, float[][] scores) {
+            this.filmIds = filmIds;
+            this.from = from;
+            this.to = to;
+            this.neighbours = neighbours;
+            this.scores = scores;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SPLIT_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new BuildTask(filmIds, from, middle, neighbours, scores),
+                        new BuildTask(filmIds, middle, to, neighbours, scores));
+                return;
+            }
+
+            // Счётчики общих пользователей по позициям фильмов и список затронутых позиций для их обнуления
+            int[] common = new int[filmIds.length];
+            int[] touched = new int[filmIds.length];
+            for (int row = from; row < to; row++) {
+                int[] users = likeGraphIndex.getUserIds(filmIds[row]);
+                int touchedSize = 0;
+                for (int userId : users) {
+                    for (int filmId : likeGraphIndex.getFilmIds(userId)) {
+                        int column = Arrays.binarySearch(filmIds, filmId);
+                        if (column >= 0 && column != row && common[column]++ == 0) {
+                            touched[touchedSize++] = column;
+                        }
+                    }
+                }
+
+                TopK top = new TopK(Math.min(topK, touchedSize));
+                for (int i = 0; i < touchedSize; i++) {
+                    int column = touched[i];
+                    int usersB = likeGraphIndex.getUserIds(filmIds[column]).length;
+                    top.offer(filmIds[column], similarity(common[column], users.length, usersB));
+                    common[column] = 0;
+                }
+                top.drainTo(row, neighbours, scores);
+            }
+        }
+    }
+
+    // Отбор K лучших соседей через двоичную кучу с минимумом в корне; при равном сходстве выше меньший ID
+    private static final class TopK {
+        private final int[] ids;
+        private final float[] scores;
+        private int size;
+
+        TopK(int capacity) {
+            this.ids = new int[capacity];
+            this.scores = new float[capacity];
+        }
+
+        void offer(int id, float score) {
+            if (ids.length == 0) {
+                return;
+            }
+            if (size < ids.length) {
+                ids[size] = id;
+                scores[size] = score;
+                siftUp(size++);
+            } else if (worse(ids[0], scores[0], id, score)) {
+                ids[0] = id;
+                scores[0] = score;
+                siftDown(0);
+            }
+        }
+
+        // Записывает соседей в строку матрицы по убыванию сходства
+        void drainTo(int row, int[][] neighbours, float[][] rowScores) {
+            int count = size;
+            int[] sortedIds = new int[count];
+            float[] sortedScores = new float[count];
+            for (int i = count - 1; i >= 0; i--) {
+                sortedIds[i] = ids[0];
+                sortedScores[i] = scores[0];
+                size--;
+                ids[0] = ids[size];
+                scores[0] = scores[size];
+                siftDown(0);
+            }
+            neighbours[row] = sortedIds;
+            rowScores[row] = sortedScores;
+        }
+
+        // true, если первый элемент хуже второго и должен стоять ближе к корню
+        private static boolean worse(int idA, float scoreA, int idB, float scoreB) {
+            return scoreA < scoreB || scoreA == scoreB && idA > idB;
+        }
+
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) / 2;
+                if (!worse(ids[index], scores[index], ids[parent], scores[parent])) {
+                    return;
+                }
+                swap(index, parent);
+                index = parent;
+            }
+        }
+
+        private void siftDown(int index) {
+            while (true) {
+                int worst = index;
+                int left = 2 * index + 1;
+                int right = left + 1;
+                if (left < size && worse(ids[left], scores[left], ids[worst], scores[worst])) {
+                    worst = left;
+                }
+                if (right < size && worse(ids[right], scores[right], ids[worst], scores[worst])) {
+                    worst = right;
+                }
+                if (worst == index) {
+                    return;
+                }
+                swap(index, worst);
+                index = worst;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int id = ids[a];
+            ids[a] = ids[b];
+            ids[b] = id;
+            float score = scores[a];
+            scores[a] = scores[b];
+            scores[b] = score;
+        }
+    }
+
+    // Строки матрицы по возрастанию ID фильма: соседи и их сходство
+    private record Matrix(long graphVersion, int[] filmIds, int[][] neighbours, float[][] scores) {
+
+        long size() {
+            long size = 0;
+            for (int[] row : neighbours) {
+                size += row.length;
+            }
+            return size;
+        }
+    }
+}
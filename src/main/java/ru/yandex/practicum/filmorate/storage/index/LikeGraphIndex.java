@@ -0,0 +1,322 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.datasource.ReadYourWrites;
+import ru.yandex.practicum.filmorate.model.LikeImport;
+import ru.yandex.practicum.filmorate.storage.LikeStorage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Двусторонний граф лайков: для каждого пользователя отсортированный массив ID фильмов,
+// для каждого фильма - отсортированный массив ID пользователей (списки вхождений).
+// Массивы неизменяемы и подменяются целиком, поэтому чтение идёт без блокировок.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LikeGraphIndex {
+
+    private static final int[] EMPTY = new int[0];
+
+    private final LikeStorage likeStorage;
+
+    private final Map<Long, int[]> filmsByUser = new ConcurrentHashMap<>();
+    private final Map<Long, int[]> usersByFilm = new ConcurrentHashMap<>();
+    // Увеличивается при каждом изменении графа: по нему построенные из графа структуры понимают, что устарели
+    private final AtomicLong version = new AtomicLong();
+
+    @PostConstruct
+    public synchronized void load() {
+        version.incrementAndGet();
+        filmsByUser.clear();
+        usersByFilm.clear();
+        Map<Long, List<Integer>> filmIdsByUser = new HashMap<>();
+        for (Map.Entry<Long, Set<Long>> entry : ReadYourWrites.onPrimary(likeStorage::getAllLikes).entrySet()) {
+            int filmId = Math.toIntExact(entry.getKey());
+            int[] userIds = entry.getValue().stream().mapToInt(Math::toIntExact).sorted().toArray();
+            usersByFilm.put(entry.getKey(), userIds);
+            for (int userId : userIds) {
+                filmIdsByUser.computeIfAbsent((long) userId, id -> new ArrayList<>()).add(filmId);
+            }
+        }
+        filmIdsByUser.forEach((userId, filmIds) ->
+                filmsByUser.put(userId, filmIds.stream().mapToInt(Integer::intValue).sorted().toArray()));
+        log.info("Граф лайков загружен: {} пользователей, {} фильмов", filmsByUser.size(), usersByFilm.size());
+    }
+
+    public synchronized void onLike(long filmId, long userId) {
+        version.incrementAndGet();
+        filmsByUser.put(userId, insert(filmsByUser.getOrDefault(userId, EMPTY), Math.toIntExact(filmId)));
+        usersByFilm.put(filmId, insert(usersByFilm.getOrDefault(filmId, EMPTY), Math.toIntExact(userId)));
+    }
+
+    // Пакет лайков из импорта: новые ID сливаются с каждым затронутым массивом один раз на пакет,
+    // а не копируют массив на каждый лайк
+    public synchronized void onLikes(List<LikeImport> likes) {
+        version.incrementAndGet();
+        Map<Long, List<Integer>> filmIdsByUser = new HashMap<>();
+        Map<Long, List<Integer>> userIdsByFilm = new HashMap<>();
+        for (LikeImport like : likes) {
+            filmIdsByUser.computeIfAbsent(like.getUserId(), id -> new ArrayList<>())
+                    .add(Math.toIntExact(like.getFilmId()));
+            userIdsByFilm.computeIfAbsent(like.getFilmId(), id -> new ArrayList<>())
+                    .add(Math.toIntExact(like.getUserId()));
+        }
+        filmIdsByUser.forEach((userId, filmIds) ->
+                filmsByUser.put(userId, merge(filmsByUser.getOrDefault(userId, EMPTY), filmIds)));
+        userIdsByFilm.forEach((filmId, userIds) ->
+                usersByFilm.put(filmId, merge(usersByFilm.getOrDefault(filmId, EMPTY), userIds)));
+    }
+
+    public synchronized void onUnlike(long filmId, long userId) {
+        version.incrementAndGet();
+        filmsByUser.computeIfPresent(userId, (id, filmIds) -> nullIfEmpty(remove(filmIds, Math.toIntExact(filmId))));
+        usersByFilm.computeIfPresent(filmId, (id, userIds) -> nullIfEmpty(remove(userIds, Math.toIntExact(userId))));
+    }
+
+    public synchronized void onUserDeleted(long userId) {
+        version.incrementAndGet();
+        int[] filmIds = filmsByUser.remove(userId);
+        if (filmIds == null) {
+            return;
+        }
+        for (int filmId : filmIds) {
+            usersByFilm.computeIfPresent((long) filmId,
+                    (id, userIds) -> nullIfEmpty(remove(userIds, Math.toIntExact(userId))));
+        }
+    }
+
+    public synchronized void onFilmDeleted(long filmId) {
+        version.incrementAndGet();
+        int[] userIds = usersByFilm.remove(filmId);
+        if (userIds == null) {
+            return;
+        }
+        for (int userId : userIds) {
+            filmsByUser.computeIfPresent((long) userId,
+                    (id, filmIds) -> nullIfEmpty(remove(filmIds, Math.toIntExact(filmId))));
+        }
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    // ID фильмов, у которых есть хотя бы один лайк
+    public Set<Long> getFilms() {
+        return Set.copyOf(usersByFilm.keySet());
+    }
+
+    // Отсортированные ID лайкнутых пользователем фильмов. Массив нельзя изменять
+    public int[] getFilmIds(long userId) {
+        return filmsByUser.getOrDefault(userId, EMPTY);
+    }
+
+    // Отсортированные ID пользователей, лайкнувших фильм. Массив нельзя изменять
+    public int[] getUserIds(long filmId) {
+        return usersByFilm.getOrDefault(filmId, EMPTY);
+    }
+
+    // ID пользователей, у которых есть хотя бы один лайк
+    public Set<Long> getUsers() {
+        return Set.copyOf(filmsByUser.keySet());
+    }
+
+    // Пользователь с наибольшим числом общих лайков (при равенстве - с меньшим ID) или -1, если общих лайков нет.
+    // Списки вхождений фильмов пользователя сливаются k-путевым слиянием, поэтому просматриваются
+    // только пользователи, у которых есть хотя бы один общий лайк
+    public Neighbour findNeighbour(long userId) {
+        int[] filmIds = getFilmIds(userId);
+        int[][] postings = new int[filmIds.length][];
+        for (int i = 0; i < filmIds.length; i++) {
+            postings[i] = getUserIds(filmIds[i]);
+        }
+
+        PostingMerge merge = new PostingMerge(postings);
+        int self = Math.toIntExact(userId);
+        int bestUser = -1;
+        int bestOverlap = 0;
+        int current = -1;
+        int overlap = 0;
+        while (merge.hasNext()) {
+            int next = merge.next();
+            if (next != current) {
+                if (current != self && overlap > bestOverlap) {
+                    bestUser = current;
+                    bestOverlap = overlap;
+                }
+                current = next;
+                overlap = 0;
+            }
+            overlap++;
+        }
+        if (current != self && overlap > bestOverlap) {
+            bestUser = current;
+            bestOverlap = overlap;
+        }
+        return new Neighbour(bestUser, bestOverlap);
+    }
+
+    // Число общих лайков двух пользователей: пересечение двух отсортированных массивов
+    public int countCommon(long userId, long otherUserId) {
+        int[] own = getFilmIds(userId);
+        int[] other = getFilmIds(otherUserId);
+        int common = 0;
+        int i = 0;
+        int j = 0;
+        while (i < own.length && j < other.length) {
+            if (own[i] < other[j]) {
+                i++;
+            } else if (own[i] > other[j]) {
+                j++;
+            } else {
+                common++;
+                i++;
+                j++;
+            }
+        }
+        return common;
+    }
+
+    // Фильмы другого пользователя, которых нет у данного: разность двух отсортированных массивов
+    public List<Long> getMissingFilmIds(long userId, long otherUserId) {
+        int[] own = getFilmIds(userId);
+        int[] other = getFilmIds(otherUserId);
+
+        List<Long> missing = new ArrayList<>();
+        int j = 0;
+        for (int filmId : other) {
+            while (j < own.length && own[j] < filmId) {
+                j++;
+            }
+            if (j == own.length || own[j] != filmId) {
+                missing.add((long) filmId);
+            }
+        }
+        return missing;
+    }
+
+    private static int[] insert(int[] values, int value) {
+        int index = Arrays.binarySearch(values, value);
+        if (index >= 0) {
+            return values;
+        }
+        int insertAt = -index - 1;
+        int[] result = new int[values.length + 1];
+        System.arraycopy(values, 0, result, 0, insertAt);
+        result[insertAt] = value;
+        System.arraycopy(values, insertAt, result, insertAt + 1, values.length - insertAt);
+        return result;
+    }
+
+    // Слияние отсортированного массива с добавляемыми значениями без повторов
+    private static int[] merge(int[] values, List<Integer> added) {
+        int[] sorted = added.stream().mapToInt(Integer::intValue).sorted().distinct().toArray();
+        int[] result = new int[values.length + sorted.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < values.length || j < sorted.length) {
+            if (j == sorted.length || (i < values.length && values[i] < sorted[j])) {
+                result[size++] = values[i++];
+            } else if (i == values.length || sorted[j] < values[i]) {
+                result[size++] = sorted[j++];
+            } else {
+                result[size++] = values[i++];
+                j++;
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    private static int[] remove(int[] values, int value) {
+        int index = Arrays.binarySearch(values, value);
+        if (index < 0) {
+            return values;
+        }
+        int[] result = new int[values.length - 1];
+        System.arraycopy(values, 0, result, 0, index);
+        System.arraycopy(values, index + 1, result, index, values.length - index - 1);
+        return result;
+    }
+
+    private static int[] nullIfEmpty(int[] values) {
+        return values.length == 0 ? null : values;
+    }
+
+    // Самый похожий пользователь (-1, если общих лайков нет) и число общих с ним лайков
+    public record Neighbour(long userId, int overlap) {
+    }
+
+    // K-путевое слияние отсортированных списков через двоичную кучу на массиве индексов списков
+    private static final class PostingMerge {
+        private final int[][] lists;
+        private final int[] positions;
+        private final int[] heap;
+        private int heapSize;
+
+        PostingMerge(int[][] lists) {
+            this.lists = lists;
+            this.positions = new int[lists.length];
+            this.heap = new int[lists.length];
+            for (int i = 0; i < lists.length; i++) {
+                if (lists[i].length > 0) {
+                    heap[heapSize++] = i;
+                }
+            }
+            for (int i = heapSize / 2 - 1; i >= 0; i--) {
+                siftDown(i);
+            }
+        }
+
+        boolean hasNext() {
+            return heapSize > 0;
+        }
+
+        int next() {
+            int list = heap[0];
+            int value = lists[list][positions[list]++];
+            if (positions[list] == lists[list].length) {
+                heap[0] = heap[--heapSize];
+            }
+            if (heapSize > 0) {
+                siftDown(0);
+            }
+            return value;
+        }
+
+        private int head(int list) {
+            return lists[list][positions[list]];
+        }
+
+        private void siftDown(int index) {
+            while (true) {
+                int smallest = index;
+                int left = 2 * index + 1;
+                int right = left + 1;
+                if (left < heapSize && head(heap[left]) < head(heap[smallest])) {
+                    smallest = left;
+                }
+                if (right < heapSize && head(heap[right]) < head(heap[smallest])) {
+                    smallest = right;
+                }
+                if (smallest == index) {
+                    return;
+                }
+                int swap = heap[index];
+                heap[index] = heap[smallest];
+                heap[smallest] = swap;
+                index = smallest;
+            }
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.MinHashEvaluation;
+import ru.yandex.practicum.filmorate.validation.ValidationException;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Приближённый поиск похожих пользователей: MinHash-сигнатуры множеств лайков разложены по корзинам LSH.
+// Сигнатура делится на полосы, пользователи с совпадающей полосой попадают в одну корзину;
+// кандидаты из общих корзин переранжируются точным подсчётом общих лайков по графу лайков.
+// Лайк обновляет сигнатуру за O(числа хэшей), снятие лайка пересчитывает её по лайкам пользователя.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MinHashIndex {
+
+    private static final long SEED = 0x5DEECE66DL;
+
+    private final LikeGraphIndex likeGraphIndex;
+
+    @Value("${filmorate.minhash.hashes:128}")
+    private int hashes;
+    @Value("${filmorate.minhash.bands:32}")
+    private int bands;
+    // Ограничение числа кандидатов, чтобы большие корзины не превращали запрос в полный перебор
+    @Value("${filmorate.minhash.max-candidates:1000}")
+    private int maxCandidates;
+
+    private Lsh lsh;
+
+    // Оценка других параметров строит сигнатуры всех пользователей, поэтому идёт в отдельном потоке и по одной
+    private final ExecutorService evaluator = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "minhash-evaluator");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Object evaluationLock = new Object();
+    private CompletableFuture<MinHashEvaluation> customEvaluation;
+
+    @PostConstruct
+    public synchronized void load() {
+        lsh = build(hashes, bands);
+        log.info("Индекс MinHash загружен: {} пользователей, {} хэшей, {} полос", lsh.signatures.size(), hashes, bands);
+    }
+
+    @PreDestroy
+    public void stop() {
+        evaluator.shutdownNow();
+    }
+
+    // Хуки вызываются после изменения графа лайков
+    public synchronized void onLike(long filmId, long userId) {
+        lsh.addFilm(userId, Math.toIntExact(filmId));
+    }
+
+    public synchronized void onUnlike(long filmId, long userId) {
+        lsh.refresh(userId);
+    }
+
+    public synchronized void onUserDeleted(long userId) {
+        lsh.remove(userId);
+    }
+
+    // Получает лайкнувших фильм пользователей, прочитанных из графа до удаления
+    public synchronized void onFilmDeleted(int[] likedBy) {
+        for (int userId : likedBy) {
+            lsh.refresh(userId);
+        }
+    }
+
+    // Самый похожий из кандидатов LSH (при равенстве - с меньшим ID) или -1, если кандидатов с общими лайками нет
+    public LikeGraphIndex.Neighbour findNeighbour(long userId) {
+        return lsh.findNeighbour(userId, new int[1]);
+    }
+
+    // Сравнивает приближённый поиск с точным на равномерной выборке пользователей. Если параметры отличаются
+    // от рабочих, сигнатуры для них строятся заново, а рабочий индекс не меняется
+    public MinHashEvaluation evaluate(int sampleSize, Integer evalHashes, Integer evalBands) {
+        int testedHashes = evalHashes == null ? hashes : evalHashes;
+        int testedBands = evalBands == null ? bands : evalBands;
+
+        long buildStartedAt = System.nanoTime();
+        Lsh tested = testedHashes == hashes && testedBands == bands ? lsh : build(testedHashes, testedBands);
+        long buildMillis = tested == lsh ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - buildStartedAt);
+
+        List<Long> users = new ArrayList<>(likeGraphIndex.getUsers());
+        users.sort(null);
+        int step = Math.max(1, users.size() / Math.max(1, sampleSize));
+
+        int sampled = 0;
+        int hits = 0;
+        long candidates = 0;
+        long exactNanos = 0;
+        long approxNanos = 0;
+        int[] candidateCount = new int[1];
+        for (int i = 0; i < users.size() && sampled < sampleSize; i += step) {
+            long userId = users.get(i);
+            long startedAt = System.nanoTime();
+            LikeGraphIndex.Neighbour exact = likeGraphIndex.findNeighbour(userId);
+            long exactDone = System.nanoTime();
+            LikeGraphIndex.Neighbour approx = tested.findNeighbour(userId, candidateCount);
+            approxNanos += System.nanoTime() - exactDone;
+            exactNanos += exactDone - startedAt;
+
+            candidates += candidateCount[0];
+            if (approx.overlap() == exact.overlap()) {
+                hits++;
+            }
+            sampled++;
+        }
+
+        return new MinHashEvaluation(testedHashes, testedBands, testedHashes / testedBands, sampled,
+                sampled == 0 ? 1 : (double) hits / sampled,
+                sampled == 0 ? 0 : (double) candidates / sampled,
+                sampled == 0 ? 0 : exactNanos / 1e3 / sampled,
+                sampled == 0 ? 0 : approxNanos / 1e3 / sampled,
+                buildMillis);
+    }
+
+    // Запускает оценку других параметров в фоне. Пока она не закончилась, новая не запускается
+    public void startEvaluation(int sampleSize, int evalHashes, int evalBands) {
+        checkParameters(evalHashes, evalBands);
+        synchronized (evaluationLock) {
+            if (customEvaluation != null && !customEvaluation.isDone()) {
+                throw new ValidationException("Оценка других параметров MinHash уже выполняется.");
+            }
+            customEvaluation = CompletableFuture.supplyAsync(() -> evaluate(sampleSize, evalHashes, evalBands), evaluator);
+        }
+        log.info("Запущена оценка MinHash: выборка {}, хэшей {}, полос {}", sampleSize, evalHashes, evalBands);
+    }
+
+    // Результат последней законченной оценки других параметров
+    public MinHashEvaluation getCustomEvaluation() {
+        CompletableFuture<MinHashEvaluation> evaluation;
+        synchronized (evaluationLock) {
+            evaluation = customEvaluation;
+        }
+        if (evaluation == null) {
+            throw new NotFoundException("Оценка других параметров MinHash не запускалась.");
+        }
+        if (!evaluation.isDone()) {
+            throw new NotFoundException("Оценка других параметров MinHash ещё выполняется.");
+        }
+        return evaluation.join();
+    }
+
+    private Lsh build(int hashCount, int bandCount) {
+        checkParameters(hashCount, bandCount);
+        Lsh built = new Lsh(hashCount, bandCount);
+        likeGraphIndex.getUsers().forEach(built::refresh);
+        return built;
+    }
+
+    private static void checkParameters(int hashCount, int bandCount) {
+        if (hashCount <= 0 || bandCount <= 0 || hashCount % bandCount != 0) {
+            throw new ValidationException("Число хэшей должно делиться на число полос: " + hashCount + ", " + bandCount);
+        }
+    }
+
+    private static long mix(long value) {
+        // Финальное перемешивание MurmurHash3
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    private final class Lsh {
+        private final long[] seeds;
+        private final int bandCount;
+        private final int rows;
+        private final Map<Long, int[]> signatures = new ConcurrentHashMap<>();
+        private final Map<Long, long[]> bandKeys = new ConcurrentHashMap<>();
+        // Для каждой полосы: ключ полосы -> пользователи с таким ключом
+        private final List<Map<Long, Set<Long>>> buckets = new ArrayList<>();
+
+        Lsh(int hashCount, int bandCount) {
+            SplittableRandom random = new SplittableRandom(SEED);
+            this.seeds = new long[hashCount];
+            for (int i = 0; i < hashCount; i++) {
+                seeds[i] = random.nextLong();
+            }
+            this.bandCount = bandCount;
+            this.rows = hashCount / bandCount;
+            for (int band = 0; band < bandCount; band++) {
+                buckets.add(new ConcurrentHashMap<>());
+            }
+        }
+
+        void addFilm(long userId, int filmId) {
+            int[] signature = signatures.get(userId);
+            if (signature == null) {
+                refresh(userId);
+                return;
+            }
+            int[] updated = null;
+            for (int i = 0; i < seeds.length; i++) {
+                int hash = hash(i, filmId);
+                if (hash < signature[i]) {
+                    if (updated == null) {
+                        updated = signature.clone();
+                    }
+                    updated[i] = hash;
+                }
+            }
+            if (updated != null) {
+                put(userId, updated);
+            }
+        }
+
+        // Пересчитывает сигнатуру по текущим лайкам пользователя
+        void refresh(long userId) {
+            int[] filmIds = likeGraphIndex.getFilmIds(userId);
+            if (filmIds.length == 0) {
+                remove(userId);
+                return;
+            }
+            int[] signature = new int[seeds.length];
+            for (int i = 0; i < seeds.length; i++) {
+                int min = Integer.MAX_VALUE;
+                for (int filmId : filmIds) {
+                    min = Math.min(min, hash(i, filmId));
+                }
+                signature[i] = min;
+            }
+            put(userId, signature);
+        }
+
+        void remove(long userId) {
+            signatures.remove(userId);
+            long[] keys = bandKeys.remove(userId);
+            if (keys != null) {
+                for (int band = 0; band < bandCount; band++) {
+                    removeFromBucket(band, keys[band], userId);
+                }
+            }
+        }
+
+        LikeGraphIndex.Neighbour findNeighbour(long userId, int[] candidateCount) {
+            long[] keys = bandKeys.get(userId);
+            candidateCount[0] = 0;
+            if (keys == null) {
+                return new LikeGraphIndex.Neighbour(-1, 0);
+            }
+
+            Set<Long> candidates = new HashSet<>();
+            for (int band = 0; band < bandCount && candidates.size() < maxCandidates; band++) {
+                Set<Long> bucket = buckets.get(band).get(keys[band]);
+                if (bucket == null) {
+                    continue;
+                }
+                for (Long candidate : bucket) {
+                    if (candidate != userId) {
+                        candidates.add(candidate);
+                        if (candidates.size() >= maxCandidates) {
+                            break;
+                        }
+                    }
+                }
+            }
+            candidateCount[0] = candidates.size();
+
+            long bestUser = -1;
+            int bestOverlap = 0;
+            for (Long candidate : candidates) {
+                int overlap = likeGraphIndex.countCommon(userId, candidate);
+                if (overlap > bestOverlap || overlap == bestOverlap && overlap > 0 && candidate < bestUser) {
+                    bestUser = candidate;
+                    bestOverlap = overlap;
+                }
+            }
+            return new LikeGraphIndex.Neighbour(bestUser, bestOverlap);
+        }
+
+        private void put(long userId, int[] signature) {
+            signatures.put(userId, signature);
+            long[] newKeys = new long[bandCount];
+            for (int band = 0; band < bandCount; band++) {
+                long key = band;
+                for (int row = band * rows; row < (band + 1) * rows; row++) {
+                    key = key * 31 + signature[row];
+                }
+                newKeys[band] = mix(key);
+            }
+
+            long[] oldKeys = bandKeys.put(userId, newKeys);
+            for (int band = 0; band < bandCount; band++) {
+                if (oldKeys != null && oldKeys[band] == newKeys[band]) {
+                    continue;
+                }
+                if (oldKeys != null) {
+                    removeFromBucket(band, oldKeys[band], userId);
+                }
+                buckets.get(band).computeIfAbsent(newKeys[band], key -> ConcurrentHashMap.newKeySet()).add(userId);
+            }
+        }
+
+        private void removeFromBucket(int band, long key, long userId) {
+            buckets.get(band).computeIfPresent(key, (k, users) -> {
+                users.remove(userId);
+                return users.isEmpty() ? null : users;
+            });
+        }
+
+        private int hash(int index, int filmId) {
+            return (int) mix(filmId ^ seeds[index]);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.datasource.ReadYourWrites;
+import ru.yandex.practicum.filmorate.model.LikeImport;
+import ru.yandex.practicum.filmorate.storage.LikeStorage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Сжатые битовые карты лайкнутых фильмов для каждого пользователя.
+// Карты неизменяемы и подменяются целиком, поэтому пересечение читает их без блокировок.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserLikesIndex {
+
+    private final LikeStorage likeStorage;
+    private final FilmPopularityIndex popularityIndex;
+
+    private final Map<Long, CompressedBitmap> likesByUser = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void load() {
+        likesByUser.clear();
+        Map<Long, List<Integer>> filmIdsByUser = new HashMap<>();
+        ReadYourWrites.onPrimary(likeStorage::getAllLikes).forEach((filmId, userIds) -> userIds.forEach(userId ->
+                filmIdsByUser.computeIfAbsent(userId, id -> new ArrayList<>()).add(Math.toIntExact(filmId))));
+
+        filmIdsByUser.forEach((userId, filmIds) -> likesByUser.put(userId,
+                CompressedBitmap.of(filmIds.stream().mapToInt(Integer::intValue).toArray())));
+        log.info("Индекс лайков пользователей загружен: {} пользователей", likesByUser.size());
+    }
+
+    public void onLike(long filmId, long userId) {
+        likesByUser.merge(userId, CompressedBitmap.of(Math.toIntExact(filmId)),
+                (likes, added) -> likes.with(Math.toIntExact(filmId)));
+    }
+
+    // Пакет лайков из импорта: карта каждого пользователя перестраивается один раз на пакет
+    public void onLikes(List<LikeImport> likes) {
+        Map<Long, List<Integer>> filmIdsByUser = new HashMap<>();
+        for (LikeImport like : likes) {
+            filmIdsByUser.computeIfAbsent(like.getUserId(), id -> new ArrayList<>())
+                    .add(Math.toIntExact(like.getFilmId()));
+        }
+        filmIdsByUser.forEach((userId, filmIds) -> {
+            int[] added = filmIds.stream().mapToInt(Integer::intValue).toArray();
+            likesByUser.merge(userId, CompressedBitmap.of(added), (userLikes, ignored) -> userLikes.withAll(added));
+        });
+    }
+
+    public void onUnlike(long filmId, long userId) {
+        likesByUser.computeIfPresent(userId, (id, likes) -> {
+            CompressedBitmap updated = likes.without(Math.toIntExact(filmId));
+            return updated.isEmpty() ? null : updated;
+        });
+    }
+
+    public void onUserDeleted(long userId) {
+        likesByUser.remove(userId);
+    }
+
+    // Получает лайкнувших фильм пользователей, прочитанных из графа до удаления
+    public void onFilmDeleted(long filmId, int[] likedBy) {
+        for (int userId : likedBy) {
+            onUnlike(filmId, userId);
+        }
+    }
+
+    // ID фильмов, которые лайкнули все указанные пользователи, по убыванию популярности
+    public List<Long> getCommonFilmIds(Collection<Long> userIds) {
+        List<CompressedBitmap> bitmaps = new ArrayList<>(userIds.size());
+        for (Long userId : Set.copyOf(userIds)) {
+            CompressedBitmap likes = likesByUser.get(userId);
+            if (likes == null) {
+                return List.of();
+            }
+            bitmaps.add(likes);
+        }
+        if (bitmaps.isEmpty()) {
+            return List.of();
+        }
+
+        // Начинаем с самой маленькой карты, чтобы промежуточные пересечения быстрее сокращались
+        bitmaps.sort(Comparator.comparingInt(CompressedBitmap::cardinality));
+        CompressedBitmap common = bitmaps.get(0);
+        for (int i = 1; i < bitmaps.size() && !common.isEmpty(); i++) {
+            common = common.and(bitmaps.get(i));
+        }
+
+        List<Long> filmIds = new ArrayList<>(common.cardinality());
+        common.forEach(filmId -> filmIds.add((long) filmId));
+        filmIds.sort(Comparator.comparingInt((Long filmId) -> popularityIndex.getLikesCount(filmId)).reversed()
+                .thenComparing(Comparator.naturalOrder()));
+        return filmIds;
+    }
+}
@@ -0,0 +1,196 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.storage.DAOImpl.EventDbStorage;
+import ru.yandex.practicum.filmorate.storage.EventStorage;
+import ru.yandex.practicum.filmorate.storage.index.FriendsTimelineIndex;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Журнал событий с отложенной записью: createEvent кладёт событие в неблокирующую очередь и сразу возвращается,
+// фоновый поток пишет накопленное одним batchUpdate по таймеру или при наборе порции.
+// Размер журнала ограничен разрешениями семафора; при переполнении поток запроса сам сбрасывает журнал,
+// поэтому запись замедляется до скорости БД, а события не теряются и не меняют порядок.
+@Slf4j
+@Primary
+@Repository
+@RequiredArgsConstructor
+public class WriteBehindEventStorage implements EventStorage {
+
+    private final EventDbStorage eventDbStorage;
+    private final FriendsTimelineIndex timelineIndex;
+
+    @Value("${filmorate.events.write-behind.enabled:true}")
+    private boolean enabled;
+    @Value("${filmorate.events.write-behind.capacity:10000}")
+    private int capacity;
+    @Value("${filmorate.events.write-behind.batch-size:500}")
+    private int batchSize;
+    @Value("${filmorate.events.write-behind.flush-interval:200ms}")
+    private Duration flushInterval;
+
+    private final Queue<Event> queue = new ConcurrentLinkedQueue<>();
+    // Разрешения освобождаются только после записи в БД, поэтому учитывают и события, которые пишутся сейчас
+    private Semaphore permits;
+    private final AtomicInteger queued = new AtomicInteger();
+    // Сколько событий каждого пользователя ещё не записано в БД
+    private final Map<Long, Integer> pendingByUser = new ConcurrentHashMap<>();
+    // Сериализует сброс: события попадают в БД в порядке создания
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        permits = new Semaphore(capacity);
+        running = true;
+        flusher = new Thread(this::flushLoop, "event-journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+        log.info("Журнал событий запущен: ёмкость {}, порция {}, интервал {}", capacity, batchSize, flushInterval);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (!enabled) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(flusher);
+        try {
+            flusher.join(flushInterval.toMillis() * 10);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Дописываем всё, что осталось в очереди, до закрытия источника данных
+        flush();
+        log.info("Журнал событий остановлен, очередь сброшена в БД");
+    }
+
+    @Override
+    public void createEvent(Long userId, Event.EventType eventType, Event.Operation operation, Long entityId) {
+        Event event = new Event();
+        event.setUserId(userId);
+        event.setTimestamp(Instant.now().toEpochMilli());
+        event.setEventType(eventType);
+        event.setOperation(operation);
+        event.setEntityId(entityId);
+
+        // После начала остановки фоновый поток очередь уже не разбирает, поэтому пишем сразу
+        if (!enabled || !running) {
+            timelineIndex.onEventsWritten(eventDbStorage.createEvents(List.of(event)));
+            return;
+        }
+
+        while (!permits.tryAcquire()) {
+            log.debug("Журнал событий заполнен, сброс выполняется в потоке запроса");
+            flush();
+        }
+        pendingByUser.merge(userId, 1, Integer::sum);
+        queue.offer(event);
+        if (queued.incrementAndGet() >= batchSize) {
+            LockSupport.unpark(flusher);
+        }
+        // Остановка могла начаться между проверкой флага и постановкой в очередь, а её сброс - уже завершиться
+        if (!running) {
+            flush();
+        }
+    }
+
+    @Override
+    public List<Event> getAllEventsById(long id) {
+        // Свои недавние события пользователь должен видеть сразу, поэтому сначала дописываем журнал
+        flushIfPending(id);
+        return eventDbStorage.getAllEventsById(id);
+    }
+
+    @Override
+    public List<Event> getEventsPage(long userId, Long beforeId, int limit) {
+        flushIfPending(userId);
+        return eventDbStorage.getEventsPage(userId, beforeId, limit);
+    }
+
+    private void flushIfPending(long userId) {
+        if (enabled && pendingByUser.containsKey(userId)) {
+            flush();
+        }
+    }
+
+    // Записывает все накопленные события порциями по batchSize
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<Event> batch = new ArrayList<>(batchSize);
+            Event event;
+            while ((event = queue.poll()) != null) {
+                batch.add(event);
+                if (batch.size() == batchSize) {
+                    write(batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushLoop() {
+        while (running) {
+            LockSupport.parkNanos(flushInterval.toNanos());
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                log.error("Ошибка фонового сброса журнала событий: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void write(List<Event> batch) {
+        try {
+            timelineIndex.onEventsWritten(eventDbStorage.createEvents(batch));
+        } catch (DataAccessException e) {
+            // Порция откатилась целиком: пишем по одному, чтобы потерять только ошибочные события
+            // (например, события пользователя, удалённого до сброса журнала)
+            log.warn("Не удалось записать порцию из {} событий: {}", batch.size(), e.getMessage());
+            for (Event event : batch) {
+                try {
+                    timelineIndex.onEventsWritten(eventDbStorage.createEvents(List.of(event)));
+                } catch (DataAccessException eventError) {
+                    log.error("Событие {} не записано: {}", event, eventError.getMessage());
+                }
+            }
+        } finally {
+            for (Event event : batch) {
+                pendingByUser.computeIfPresent(event.getUserId(), (userId, count) -> count == 1 ? null : count - 1);
+            }
+            queued.addAndGet(-batch.size());
+            permits.release(batch.size());
+        }
+    }
+}
@@ -9,6 +9,7 @@ import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 @Slf4j
 @Component
@@ -64,24 +65,45 @@ public class InMemoryFilmStorage implements FilmStorage {
     }
 
     @Override
-    public boolean isFilmExist(Long filmId) {
-        boolean exists = films.containsKey(filmId);
-        log.info("Фильм с ID {} {}.", filmId, exists ? "существует" : "не существует");
-        return exists;
+    public List<Film> getFilmsPage(Long afterId, int limit) {
+        return films.values().stream()
+                .filter(film -> afterId == null || film.getId() > afterId)
+                .sorted(Comparator.comparingLong(Film::getId))
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public void streamAllFilms(int chunkSize, Consumer<List<Film>> chunkConsumer) {
+        List<Film> allFilms = getFilmsPage(null, Integer.MAX_VALUE);
+        for (int from = 0; from < allFilms.size(); from += chunkSize) {
+            chunkConsumer.accept(allFilms.subList(from, Math.min(from + chunkSize, allFilms.size())));
+        }
     }
 
     @Override
-    public List<Film> findFilmsBySubstring(String query, String by) {
-        return List.of();
+    public List<Film> getFilmsByIds(Collection<Long> filmIds) {
+        return filmIds.stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .toList();
     }
 
     @Override
-    public List<Film> getCommonFilms(Long userId, Long friendId) {
-        return List.of();
+    public boolean isFilmExist(Long filmId) {
+        boolean exists = films.containsKey(filmId);
+        log.info("Фильм с ID {} {}.", filmId, exists ? "существует" : "не существует");
+        return exists;
     }
 
     @Override
-    public List<Film> getDirectorFilms(Long directorId, String sortBy) {
-        return List.of();
+    public List<Film> getPopularFilms(int count, Long genreId, Integer year) {
+        return films.values().stream()
+                .filter(film -> genreId == null || genreId == 0 ||
+                        film.getGenres().stream().anyMatch(genre -> genre.getId().equals(genreId)))
+                .filter(film -> year == null || year == 0 || film.getReleaseDate().getYear() == year)
+                .sorted(Comparator.comparingInt(Film::getLikesCount).reversed())
+                .limit(count)
+                .toList();
     }
 }
\ No newline at end of file
@@ -65,6 +65,23 @@ public class InMemoryUserStorage implements UserStorage {
         return new ArrayList<>(users.values());
     }
 
+    @Override
+    public List<User> getUsersPage(Long afterId, int limit) {
+        return users.values().stream()
+                .filter(user -> afterId == null || user.getId() > afterId)
+                .sorted(Comparator.comparingLong(User::getId))
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public List<User> getUsersByIds(Collection<Long> userIds) {
+        return userIds.stream()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
     @Override
     public boolean isUserExist(Long userId) {
         return users.containsKey(userId);
@@ -43,9 +43,12 @@ CREATE TABLE IF NOT EXISTS films (
                        description varchar(200),
                        release_date date,
                        duration integer,
-                       mpa_id INTEGER REFERENCES mpa(mpa_id) ON DELETE CASCADE
+                       mpa_id INTEGER REFERENCES mpa(mpa_id) ON DELETE CASCADE,
+                       likes_count INTEGER NOT NULL DEFAULT 0
 );
 
+CREATE INDEX IF NOT EXISTS films_likes_count_film_id_idx ON films (likes_count DESC, film_id, release_date);
+
 CREATE TABLE IF NOT EXISTS friends (
                          sender_id BIGINT REFERENCES users(user_id) ON DELETE CASCADE,
                          receiver_id BIGINT REFERENCES users(user_id) ON DELETE CASCADE,
@@ -80,6 +83,8 @@ CREATE TABLE IF NOT EXISTS events (
                                       entity_id BIGINT NOT NULL
 );
 
+CREATE INDEX IF NOT EXISTS events_user_id_event_id_idx ON events (user_id, event_id);
+
 CREATE TABLE IF NOT EXISTS reviews (
                         review_id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
                         content varchar(250) NOT NULL,
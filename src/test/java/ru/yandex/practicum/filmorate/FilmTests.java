@@ -8,11 +8,15 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
 
+import ru.yandex.practicum.filmorate.model.CacheStats;
+import ru.yandex.practicum.filmorate.model.CursorPage;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.model.MPA;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Suggestion;
+import ru.yandex.practicum.filmorate.model.TextIndexStats;
 
 import ru.yandex.practicum.filmorate.storage.DAOImpl.FilmDbStorage;
 import ru.yandex.practicum.filmorate.storage.DAOImpl.GenreDbStorage;
@@ -21,31 +25,57 @@ import ru.yandex.practicum.filmorate.storage.DAOImpl.MpaDbStorage;
 import ru.yandex.practicum.filmorate.storage.DAOImpl.UserDbStorage;
 import ru.yandex.practicum.filmorate.storage.DAOImpl.EventDbStorage;
 import ru.yandex.practicum.filmorate.storage.DAOImpl.DirectorDbStorage;
+import ru.yandex.practicum.filmorate.storage.cache.CachingFilmStorage;
+import ru.yandex.practicum.filmorate.storage.cache.CachingUserStorage;
+import ru.yandex.practicum.filmorate.storage.index.DirectorFilmsIndex;
+import ru.yandex.practicum.filmorate.storage.index.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.index.FilmTextIndex;
+import ru.yandex.practicum.filmorate.storage.index.LikeGraphIndex;
+import ru.yandex.practicum.filmorate.storage.index.MinHashIndex;
+import ru.yandex.practicum.filmorate.storage.index.UserLikesIndex;
+import ru.yandex.practicum.filmorate.service.EntityVersions;
+import ru.yandex.practicum.filmorate.service.FilmIndexes;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.RecommendationStore;
+import ru.yandex.practicum.filmorate.validation.ValidationException;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 @JdbcTest
 @AutoConfigureTestDatabase
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
-@Import({FilmService.class, FilmDbStorage.class, LikeDbStorage.class, GenreDbStorage.class, MpaDbStorage.class, UserDbStorage.class, EventDbStorage.class, DirectorDbStorage.class})
+@Import({FilmService.class, FilmDbStorage.class, LikeDbStorage.class, GenreDbStorage.class, MpaDbStorage.class, UserDbStorage.class, EventDbStorage.class, DirectorDbStorage.class,
+        FilmPopularityIndex.class, FilmSearchIndex.class, FilmTextIndex.class, UserLikesIndex.class, LikeGraphIndex.class,
+        RecommendationStore.class, MinHashIndex.class,
+        DirectorFilmsIndex.class, FilmIndexes.class, EntityVersions.class, CachingFilmStorage.class, CachingUserStorage.class})
 class FilmTests {
     private final FilmService filmService;
 
     private final FilmDbStorage filmStorage;
-    private final LikeDbStorage likeStorage;
     private final GenreDbStorage genreStorage;
     private final MpaDbStorage mpaStorage;
     private final UserDbStorage userStorage;
     private final DirectorDbStorage directorStorage;
+    private final CachingFilmStorage cachingFilmStorage;
+    private final FilmPopularityIndex popularityIndex;
+    private final FilmSearchIndex searchIndex;
+    private final FilmTextIndex textIndex;
+    private final UserLikesIndex userLikesIndex;
+    private final LikeGraphIndex likeGraphIndex;
+    private final MinHashIndex minHashIndex;
+    private final DirectorFilmsIndex directorFilmsIndex;
 
     private User user1;
     private User user2;
@@ -57,6 +87,15 @@ class FilmTests {
 
     @BeforeEach
     public void beforeEach() {
+        // Индексы в памяти не откатываются вместе с транзакцией теста, поэтому перечитываем их из БД
+        popularityIndex.load();
+        searchIndex.load();
+        textIndex.rebuild();
+        userLikesIndex.load();
+        likeGraphIndex.load();
+        minHashIndex.load();
+        directorFilmsIndex.load();
+
         // Создаем пользователей
         user1 = new User();
         user1.setEmail("glasha@example.com");
@@ -180,6 +219,29 @@ class FilmTests {
                 .contains("Триллер");
     }
 
+    @Test
+    public void testUpdateFilmSyncsGenresAndDirectors() {
+        Director nolan = film1.getDirectors().iterator().next();
+        Director scott = film2.getDirectors().iterator().next();
+        film1.setGenres(Set.of(new Genre(2L, null), new Genre(3L, null)));
+        film1.setDirectors(Set.of(nolan, scott));
+
+        Film updated = filmService.updateFilm(film1).orElseThrow();
+
+        assertThat(updated.getGenres()).extracting(Genre::getId, Genre::getName)
+                .containsExactly(tuple(2L, "Драма"), tuple(3L, "Мультфильм"));
+        assertThat(updated.getDirectors()).extracting(Director::getName)
+                .containsExactly("Christopher Nolan", "Ridley Scott");
+        assertThat(genreStorage.getGenresByFilmId(film1.getId())).extracting(Genre::getId).containsExactly(2L, 3L);
+        assertThat(directorStorage.getDirectorsByFilmId(film1.getId())).hasSize(2);
+
+        film1.setGenres(Set.of(new Genre(2L, null), new Genre(999L, null)));
+        assertThatThrownBy(() -> filmService.updateFilm(film1))
+                .isInstanceOf(ValidationException.class)
+                .hasMessage("Некорректный ID жанра: 999");
+        assertThat(genreStorage.getGenresByFilmId(film1.getId())).extracting(Genre::getId).containsExactly(2L, 3L);
+    }
+
     @Test
     public void testDeleteFilm() {
         filmStorage.deleteFilmById(film1.getId());
@@ -222,7 +284,7 @@ class FilmTests {
 
     @Test
     public void testFindFilmsByTitle() {
-        List<Film> filmsByName = filmService.findFilmsBySubstring("Inter", "title");
+        List<Film> filmsByName = filmService.findFilmsBySubstring("Inter", "title", 100);
 
         assertThat(filmsByName)
                 .hasSize(1)
@@ -232,7 +294,7 @@ class FilmTests {
 
     @Test
     public void testFindFilmsByDirector() {
-        List<Film> filmsByDirector = filmService.findFilmsBySubstring("Christopher", "director");
+        List<Film> filmsByDirector = filmService.findFilmsBySubstring("Christopher", "director", 100);
 
         assertThat(filmsByDirector)
                 .hasSize(1)
@@ -247,7 +309,7 @@ class FilmTests {
 
     @Test
     public void testFindFilmsByTitleAndDirector() {
-        List<Film> filmsByTitleAndDirector = filmService.findFilmsBySubstring("Inter", "title,director");
+        List<Film> filmsByTitleAndDirector = filmService.findFilmsBySubstring("Inter", "title,director", 100);
 
         assertThat(filmsByTitleAndDirector)
                 .hasSize(1)
@@ -260,23 +322,106 @@ class FilmTests {
                 .hasFieldOrPropertyWithValue("name", "Christopher Nolan");
     }
 
+    @Test
+    public void testSearchFollowsUpdatesAndLikes() {
+        filmService.like(film3.getId(), user1.getId());
+
+        assertThat(filmService.findFilmsBySubstring("new", "title,director", 100))
+                .extracting(Film::getName)
+                .containsExactly("Brave New World");
+        assertThat(filmService.findFilmsBySubstring("S", "title,director", 100))
+                .extracting(Film::getName)
+                .containsExactly("Brave New World", "Interstellar", "Silo");
+        assertThat(filmService.findFilmsBySubstring("S", "title,director", 2))
+                .extracting(Film::getName)
+                .containsExactly("Brave New World", "Interstellar");
+
+        film3.setName("Island");
+        filmService.updateFilm(film3);
+        assertThat(filmService.findFilmsBySubstring("new", "title", 100)).isEmpty();
+        assertThat(filmService.findFilmsBySubstring("isla", "title", 100))
+                .extracting(Film::getName)
+                .containsExactly("Island");
+
+        filmService.deleteFilmById(film3.getId());
+        assertThat(filmService.findFilmsBySubstring("huxley", "director", 100)).isEmpty();
+    }
+
+    @Test
+    public void testSearchByDescriptionRankedByRelevance() {
+        assertThat(filmService.findFilmsBySubstring("humanity space", "description", 100))
+                .extracting(Film::getName)
+                .containsExactly("Interstellar", "Silo");
+
+        film2.setDescription("Space colonists keep humanity alive in space");
+        filmService.updateFilm(film2);
+        assertThat(filmService.findFilmsBySubstring("humanity space", "description", 100))
+                .extracting(Film::getName)
+                .containsExactly("Silo", "Interstellar");
+        assertThat(filmService.findFilmsBySubstring("underground", "description", 100)).isEmpty();
+
+        TextIndexStats stats = filmService.getTextIndexStats();
+        assertThat(stats.getDocuments()).isPositive();
+        assertThat(stats.getUpdates()).isPositive();
+    }
+
+    @Test
+    public void testSuggestByPrefix() {
+        Director director = directorStorage.addDirector(new Director(4L, "Zack Snyder"));
+        film1.setName("Zodiac");
+        film1.setDirectors(Set.of(director));
+        filmService.updateFilm(film1);
+        filmService.like(film1.getId(), user1.getId());
+        filmService.like(film1.getId(), user2.getId());
+
+        assertThat(filmService.suggest("za", 10))
+                .extracting(Suggestion::getType, Suggestion::getText, Suggestion::getLikes)
+                .containsExactly(tuple(Suggestion.SuggestionType.DIRECTOR, "Zack Snyder", 2));
+
+        film2.setName("Zodiac 2");
+        filmService.updateFilm(film2);
+        assertThat(filmService.suggest("zod", 10))
+                .extracting(Suggestion::getText)
+                .containsExactly("Zodiac", "Zodiac 2");
+        assertThat(filmService.suggest("ZOD", 1))
+                .extracting(Suggestion::getId)
+                .containsExactly(film1.getId());
+
+        // Короткий префикс читается из кэша, который правится хуками лайков и сохранения фильма
+        assertThat(filmService.suggest("z", 10))
+                .extracting(Suggestion::getText, Suggestion::getLikes)
+                .containsExactly(tuple("Zack Snyder", 2), tuple("Zodiac", 2), tuple("Zodiac 2", 0));
+        film2.setDirectors(Set.of(director));
+        filmService.updateFilm(film2);
+        filmService.like(film2.getId(), user1.getId());
+        filmService.like(film2.getId(), user2.getId());
+        filmService.like(film2.getId(), user3.getId());
+        assertThat(filmService.suggest("z", 10))
+                .extracting(Suggestion::getText, Suggestion::getLikes)
+                .containsExactly(tuple("Zack Snyder", 5), tuple("Zodiac 2", 3), tuple("Zodiac", 2));
+        filmService.deleteFilmById(film2.getId());
+        assertThat(filmService.suggest("z", 10))
+                .extracting(Suggestion::getText, Suggestion::getLikes)
+                .containsExactly(tuple("Zack Snyder", 2), tuple("Zodiac", 2));
+    }
+
     @Test
     public void testGetCommonFilms() {
         // Лайки пользователей
-        likeStorage.like(film3.getId(), user1.getId());
-        likeStorage.like(film3.getId(), user2.getId());
+        filmService.like(film3.getId(), user1.getId());
+        filmService.like(film3.getId(), user2.getId());
 
-        likeStorage.like(film2.getId(), user1.getId());
-        likeStorage.like(film2.getId(), user2.getId());
-        likeStorage.like(film2.getId(), user3.getId());
+        filmService.like(film2.getId(), user1.getId());
+        filmService.like(film2.getId(), user2.getId());
+        filmService.like(film2.getId(), user3.getId());
 
-        likeStorage.like(film1.getId(), user1.getId());
-        likeStorage.like(film1.getId(), user2.getId());
-        likeStorage.like(film1.getId(), user3.getId());
-        likeStorage.like(film1.getId(), user4.getId());
+        filmService.like(film1.getId(), user1.getId());
+        filmService.like(film1.getId(), user2.getId());
+        filmService.like(film1.getId(), user3.getId());
+        filmService.like(film1.getId(), user4.getId());
 
         // Получение общих фильмов
-        List<Film> commonFilms = filmStorage.getCommonFilms(user1.getId(), user2.getId());
+        List<Film> commonFilms = filmService.getCommonFilms(user1.getId(), user2.getId());
 
         // Проверка размеров списка
         assertThat(commonFilms).hasSize(3);
@@ -287,6 +432,139 @@ class FilmTests {
         assertThat(commonFilms.get(2).getName()).isEqualTo("Brave New World");
     }
 
+    @Test
+    public void testGetCommonFilmsForSeveralUsers() {
+        filmService.like(film3.getId(), user1.getId());
+        filmService.like(film3.getId(), user2.getId());
+        filmService.like(film3.getId(), user3.getId());
+        filmService.like(film1.getId(), user1.getId());
+        filmService.like(film1.getId(), user2.getId());
+        filmService.like(film1.getId(), user3.getId());
+        filmService.like(film1.getId(), user4.getId());
+        filmService.like(film2.getId(), user1.getId());
+        filmService.like(film2.getId(), user2.getId());
+
+        assertThat(filmService.getCommonFilms(user1.getId(), user2.getId()))
+                .extracting(Film::getName)
+                .containsExactly("Interstellar", "Brave New World", "Silo");
+        assertThat(filmService.getCommonFilms(user1.getId(), List.of(user2.getId(), user3.getId())))
+                .extracting(Film::getName)
+                .containsExactly("Interstellar", "Brave New World");
+
+        filmService.unlike(film3.getId(), user3.getId());
+        assertThat(filmService.getCommonFilms(user1.getId(), List.of(user2.getId(), user3.getId())))
+                .extracting(Film::getName)
+                .containsExactly("Interstellar");
+        assertThat(filmService.getCommonFilms(user1.getId(), List.of(user2.getId(), user3.getId(), user4.getId())))
+                .extracting(Film::getName)
+                .containsExactly("Interstellar");
+
+        // Удалённый фильм снимается с карт только лайкнувших его пользователей
+        filmService.deleteFilmById(film1.getId());
+        assertThat(userLikesIndex.getCommonFilmIds(List.of(user1.getId(), user2.getId())))
+                .containsExactlyInAnyOrder(film2.getId(), film3.getId());
+        assertThat(userLikesIndex.getCommonFilmIds(List.of(user1.getId(), user4.getId()))).isEmpty();
+    }
+
+    @Test
+    public void testGetDirectorFilmsSortedByYearAndLikes() {
+        Director director = film1.getDirectors().iterator().next();
+        film2.setDirectors(Set.of(director));
+        filmService.updateFilm(film2);
+        filmService.like(film2.getId(), user1.getId());
+
+        assertThat(filmService.getDirectorFilms(director.getId(), "year"))
+                .extracting(Film::getName)
+                .containsExactly("Interstellar", "Silo");
+        assertThat(filmService.getDirectorFilms(director.getId(), "likes"))
+                .extracting(Film::getName)
+                .containsExactly("Silo", "Interstellar");
+
+        filmService.like(film1.getId(), user1.getId());
+        filmService.like(film1.getId(), user2.getId());
+        List<Film> byLikes = filmService.getDirectorFilms(director.getId(), "likes");
+        assertThat(byLikes).extracting(Film::getName).containsExactly("Interstellar", "Silo");
+        assertThat(byLikes.get(0).getDirectors()).extracting(Director::getName).containsExactly("Christopher Nolan");
+
+        film2.setDirectors(Set.of());
+        filmService.updateFilm(film2);
+        assertThat(filmService.getDirectorFilms(director.getId(), "likes"))
+                .extracting(Film::getName)
+                .containsExactly("Interstellar");
+    }
+
+    @Test
+    public void testFilmTagsFollowWrites() {
+        String film1Tag = filmService.getFilmTag(film1.getId());
+        String film2Tag = filmService.getFilmTag(film2.getId());
+        String popularTag = filmService.getPopularFilmsTag();
+        String genresTag = filmService.getGenresTag();
+        assertThat(filmService.getFilmTag(film1.getId())).isEqualTo(film1Tag);
+
+        film1.setName("Interstellar: Director's Cut");
+        filmService.updateFilm(film1);
+        assertThat(filmService.getFilmTag(film1.getId())).isNotEqualTo(film1Tag);
+        assertThat(filmService.getFilmTag(film2.getId())).isEqualTo(film2Tag);
+        assertThat(filmService.getPopularFilmsTag()).isNotEqualTo(popularTag);
+
+        popularTag = filmService.getPopularFilmsTag();
+        filmService.like(film2.getId(), user1.getId());
+        assertThat(filmService.getPopularFilmsTag()).isNotEqualTo(popularTag);
+
+        genreStorage.reload();
+        assertThat(filmService.getGenresTag()).isNotEqualTo(genresTag);
+    }
+
+    @Test
+    public void testFilmCacheInvalidatedOnWrites() {
+        CacheStats before = cachingFilmStorage.getCacheStats();
+        filmService.getFilmById(film1.getId());
+        filmService.getFilmById(film1.getId());
+        CacheStats afterReads = cachingFilmStorage.getCacheStats();
+        assertThat(afterReads.getMisses() - before.getMisses()).isEqualTo(1);
+        assertThat(afterReads.getHits() - before.getHits()).isEqualTo(1);
+
+        film1.setName("Interstellar 2");
+        filmService.updateFilm(film1);
+        assertThat(filmService.getFilmById(film1.getId()).getName()).isEqualTo("Interstellar 2");
+
+        // Изменение возвращённого экземпляра не затрагивает кэш
+        filmService.getFilmById(film1.getId()).setName("Changed");
+        assertThat(filmService.getFilmById(film1.getId()).getName()).isEqualTo("Interstellar 2");
+
+        filmService.deleteFilmById(film1.getId());
+        assertThat(filmService.isFilmExist(film1.getId())).isFalse();
+    }
+
+    @Test
+    public void testGetPopularFilms() {
+        filmService.like(film2.getId(), user1.getId());
+        filmService.like(film2.getId(), user2.getId());
+        filmService.like(film1.getId(), user1.getId());
+        filmService.like(film1.getId(), user1.getId());
+
+        List<Film> popularFilms = filmService.getPopularFilms(2, null, null);
+        assertThat(popularFilms).extracting(Film::getName).containsExactly("Silo", "Interstellar");
+        assertThat(popularFilms.get(0).getLikes()).containsExactlyInAnyOrder(user1.getId(), user2.getId());
+
+        assertThat(filmService.getPopularFilms(10, 1L, null))
+                .extracting(Film::getName)
+                .containsExactly("Interstellar");
+        assertThat(filmService.getPopularFilms(10, null, 2023))
+                .extracting(Film::getName)
+                .containsExactly("Silo");
+
+        assertThat(filmStorage.getPopularFilms(10, 2L, 2023))
+                .extracting(Film::getName)
+                .containsExactly("Silo");
+
+        filmService.unlike(film2.getId(), user1.getId());
+        filmService.unlike(film2.getId(), user2.getId());
+        assertThat(filmService.getPopularFilms(1, null, null))
+                .extracting(Film::getName)
+                .containsExactly("Interstellar");
+    }
+
     @Test
     public void testIsFilmExist() {
         assertThat(filmStorage.isFilmExist(film1.getId())).isTrue();
@@ -300,6 +578,62 @@ class FilmTests {
         assertThat(genresMap.get(film1.getId())).extracting(Genre::getName).contains("Комедия", "Драма");
     }
 
+    @Test
+    public void testGetGenresByFilmIds() {
+        Map<Long, Set<Genre>> genresMap = genreStorage.getGenresByFilmIds(List.of(film1.getId(), film2.getId()));
+        assertThat(genresMap).containsOnlyKeys(film1.getId(), film2.getId());
+        assertThat(genresMap.get(film1.getId())).extracting(Genre::getName).containsExactly("Комедия", "Драма");
+
+        assertThat(genreStorage.getGenresByFilmIds(List.of())).isEmpty();
+    }
+
+    @Test
+    public void testGenresAndMpaAreSharedInstances() {
+        Genre comedy = genreStorage.getGenreById(1L).orElseThrow();
+
+        assertThat(genreStorage.getGenresByFilmId(film1.getId())).first().isSameAs(comedy);
+        assertThat(genreStorage.getGenresForAllFilms().get(film1.getId())).contains(comedy);
+        assertThat(mpaStorage.getMpaById(4L).orElseThrow()).isSameAs(mpaStorage.getMpaById(4L).orElseThrow());
+        assertThat(genreStorage.isGenreExist(999L)).isFalse();
+    }
+
+    @Test
+    public void testGetAllFilmsEnriched() {
+        List<Film> films = filmService.getAllFilms();
+
+        assertThat(films).hasSize(3);
+        Film interstellar = films.stream()
+                .filter(film -> film.getId().equals(film1.getId()))
+                .findFirst()
+                .orElseThrow();
+        assertThat(interstellar.getMpa()).hasFieldOrPropertyWithValue("name", "R");
+        assertThat(interstellar.getGenres()).extracting(Genre::getName).containsExactly("Комедия", "Драма");
+        assertThat(interstellar.getDirectors()).extracting(Director::getName).containsExactly("Christopher Nolan");
+    }
+
+    @Test
+    public void testGetFilmsPage() {
+        CursorPage<Film> firstPage = filmService.getFilmsPage(null, 2);
+        assertThat(firstPage.getItems()).extracting(Film::getName).containsExactly("Interstellar", "Silo");
+        assertThat(firstPage.getItems().get(0).getMpa()).hasFieldOrPropertyWithValue("name", "R");
+        assertThat(firstPage.getNextCursor()).isEqualTo(film2.getId());
+
+        CursorPage<Film> lastPage = filmService.getFilmsPage(firstPage.getNextCursor(), 2);
+        assertThat(lastPage.getItems()).extracting(Film::getName).containsExactly("Brave New World");
+        assertThat(lastPage.getNextCursor()).isNull();
+    }
+
+    @Test
+    public void testExportFilmsInChunks() {
+        List<List<Film>> chunks = new ArrayList<>();
+        filmService.exportFilms(2, chunks::add);
+
+        assertThat(chunks).hasSize(2);
+        assertThat(chunks.get(0)).extracting(Film::getName).containsExactly("Interstellar", "Silo");
+        assertThat(chunks.get(1)).extracting(Film::getName).containsExactly("Brave New World");
+        assertThat(chunks.get(1).get(0).getDirectors()).extracting(Director::getName).containsExactly("Aldous Huxley");
+    }
+
     @Test
     public void testGetAllGenres() {
         List<Genre> genres = genreStorage.getAllGenres();
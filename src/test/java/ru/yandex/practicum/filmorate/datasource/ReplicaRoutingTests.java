@@ -0,0 +1,235 @@
+package ru.yandex.practicum.filmorate.datasource;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MPA;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.DAOImpl.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.DAOImpl.LikeDbStorage;
+import ru.yandex.practicum.filmorate.storage.DAOImpl.UserDbStorage;
+import ru.yandex.practicum.filmorate.storage.cache.CachingUserStorage;
+import ru.yandex.practicum.filmorate.storage.index.LikeGraphIndex;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Две базы H2: основная и реплика, которая «отстаёт» - получает строки только при явной репликации в тесте
+@SpringJUnitConfig(ReplicaRoutingTests.Config.class)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class ReplicaRoutingTests {
+    private final UserDbStorage userStorage;
+    private final CachingUserStorage cachingUserStorage;
+    private final FilmDbStorage filmStorage;
+    private final LikeDbStorage likeStorage;
+    private final LikeGraphIndex likeGraphIndex;
+    private final ReplicaRoutingDataSource routingDataSource;
+    private final EmbeddedDatabase primary;
+    private final EmbeddedDatabase replica;
+
+    @AfterEach
+    public void afterEach() {
+        new JdbcTemplate(primary).update("DELETE FROM films");
+        new JdbcTemplate(primary).update("DELETE FROM users");
+        new JdbcTemplate(replica).update("DELETE FROM users");
+        ReadYourWrites.clear();
+    }
+
+    @Test
+    public void testReadsGoToReplicaAndWritesToPrimary() {
+        User user = userStorage.createUser(newUser());
+        long replicaReads = routingDataSource.getReplicaConnections();
+
+        // Реплика ещё не получила запись
+        assertThat(userStorage.getUserById(user.getId())).isEmpty();
+        assertThat(userStorage.isUserExist(user.getId())).isFalse();
+        assertThat(routingDataSource.getReplicaConnections()).isEqualTo(replicaReads + 2);
+
+        replicate(user.getId());
+        assertThat(userStorage.getUserById(user.getId())).isPresent()
+                .hasValueSatisfying(found -> assertThat(found.getLogin()).isEqualTo("glasha"));
+    }
+
+    @Test
+    public void testReadYourWritesUsesPrimary() {
+        User user = userStorage.createUser(newUser());
+
+        assertThat(ReadYourWrites.onPrimary(() -> userStorage.getUserById(user.getId()))).isPresent();
+        assertThat(ReadYourWrites.isPrimaryRequired()).isFalse();
+        assertThat(userStorage.getUserById(user.getId())).isEmpty();
+    }
+
+    @Test
+    public void testCacheMissesReadPrimary() {
+        User user = userStorage.createUser(newUser());
+        replicate(user.getId());
+        user.setLogin("glasha_new");
+        cachingUserStorage.updateUser(user);
+
+        // Кэш общий для всех клиентов: чтение без привязки к основной БД не должно закэшировать старую строку реплики
+        assertThat(cachingUserStorage.getUserById(user.getId())).isPresent()
+                .hasValueSatisfying(found -> assertThat(found.getLogin()).isEqualTo("glasha_new"));
+        assertThat(ReadYourWrites.onPrimary(() -> cachingUserStorage.getUserById(user.getId()))).isPresent()
+                .hasValueSatisfying(found -> assertThat(found.getLogin()).isEqualTo("glasha_new"));
+
+        user.setLogin("glasha_newest");
+        cachingUserStorage.updateUser(user);
+        assertThat(cachingUserStorage.getUsersByIds(List.of(user.getId())))
+                .extracting(User::getLogin)
+                .containsExactly("glasha_newest");
+        assertThat(userStorage.getUserById(user.getId())).isPresent()
+                .hasValueSatisfying(found -> assertThat(found.getLogin()).isEqualTo("glasha"));
+    }
+
+    @Test
+    public void testIndexLoadReadsPrimary() {
+        User user = userStorage.createUser(newUser());
+        Film film = filmStorage.addFilm(newFilm()).orElseThrow();
+        likeStorage.like(film.getId(), user.getId());
+
+        // Индекс дальше получает только изменения, поэтому строки, которых ещё нет на реплике, не должны теряться
+        likeGraphIndex.load();
+        assertThat(likeGraphIndex.getUserIds(film.getId())).containsExactly(Math.toIntExact(user.getId()));
+        assertThat(likeStorage.getAllLikes()).isEmpty();
+    }
+
+    @Test
+    public void testFilterPinsRecentWritersToPrimary() throws Exception {
+        ReadYourWritesFilter filter = new ReadYourWritesFilter(Duration.ofSeconds(5));
+
+        MockHttpServletResponse writeResponse = new MockHttpServletResponse();
+        assertThat(runFilter(filter, new MockHttpServletRequest("POST", "/users"), writeResponse)).isTrue();
+        Cookie cookie = writeResponse.getCookie(ReadYourWritesFilter.COOKIE_NAME);
+        assertThat(cookie).isNotNull();
+
+        MockHttpServletRequest readAfterWrite = new MockHttpServletRequest("GET", "/users/1");
+        readAfterWrite.setCookies(cookie);
+        assertThat(runFilter(filter, readAfterWrite, new MockHttpServletResponse())).isTrue();
+
+        MockHttpServletRequest expired = new MockHttpServletRequest("GET", "/users/1");
+        expired.setCookies(new Cookie(ReadYourWritesFilter.COOKIE_NAME, String.valueOf(System.currentTimeMillis() - 1)));
+        assertThat(runFilter(filter, expired, new MockHttpServletResponse())).isFalse();
+
+        assertThat(runFilter(filter, new MockHttpServletRequest("GET", "/users/1"), new MockHttpServletResponse()))
+                .isFalse();
+        assertThat(ReadYourWrites.isPrimaryRequired()).isFalse();
+    }
+
+    private boolean runFilter(ReadYourWritesFilter filter, MockHttpServletRequest request,
+                              MockHttpServletResponse response) throws Exception {
+        AtomicBoolean primaryRequired = new AtomicBoolean();
+        filter.doFilter(request, response, new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) {
+                primaryRequired.set(ReadYourWrites.isPrimaryRequired());
+            }
+        }));
+        return primaryRequired.get();
+    }
+
+    private void replicate(long userId) {
+        new JdbcTemplate(primary).query("SELECT * FROM users WHERE user_id = ?", rs -> {
+            new JdbcTemplate(replica).update("INSERT INTO users (user_id, user_name, email, login, birthday) OVERRIDING SYSTEM VALUE " +
+                            "VALUES (?, ?, ?, ?, ?)", rs.getLong("user_id"), rs.getString("user_name"),
+                    rs.getString("email"), rs.getString("login"), rs.getDate("birthday"));
+        }, userId);
+    }
+
+    private static User newUser() {
+        User user = new User();
+        user.setEmail("glasha@example.com");
+        user.setLogin("glasha");
+        user.setName("Глаша");
+        user.setBirthday(LocalDate.of(1995, 4, 20));
+        return user;
+    }
+
+    private static Film newFilm() {
+        Film film = new Film();
+        film.setName("Interstellar");
+        film.setDescription("A journey through space and time");
+        film.setReleaseDate(LocalDate.of(2014, 11, 7));
+        film.setDuration(169L);
+        film.setMpa(new MPA(4L, null, null));
+        return film;
+    }
+
+    @Configuration
+    @EnableTransactionManagement(proxyTargetClass = true)
+    @Import({UserDbStorage.class, CachingUserStorage.class, FilmDbStorage.class, LikeDbStorage.class,
+            LikeGraphIndex.class})
+    static class Config {
+
+        // Преобразует значения вида 10m в Duration для @Value, как в приложении Spring Boot
+        @Bean
+        static ConversionService conversionService() {
+            return ApplicationConversionService.getSharedInstance();
+        }
+
+        @Bean
+        EmbeddedDatabase primary() {
+            return database("primary");
+        }
+
+        @Bean
+        EmbeddedDatabase replica() {
+            return database("replica");
+        }
+
+        @Bean
+        ReplicaRoutingDataSource routingDataSource(EmbeddedDatabase primary, EmbeddedDatabase replica) {
+            return new ReplicaRoutingDataSource(primary, replica);
+        }
+
+        @Bean
+        DataSource dataSource(ReplicaRoutingDataSource routingDataSource) {
+            return new LazyConnectionDataSourceProxy(routingDataSource);
+        }
+
+        @Bean
+        JdbcTemplate jdbcTemplate(DataSource dataSource) {
+            return new JdbcTemplate(dataSource);
+        }
+
+        @Bean
+        DataSourceTransactionManager transactionManager(DataSource dataSource) {
+            return new DataSourceTransactionManager(dataSource);
+        }
+
+        private static EmbeddedDatabase database(String name) {
+            return new EmbeddedDatabaseBuilder()
+                    .setType(EmbeddedDatabaseType.H2)
+                    .setName("routing-" + name)
+                    .setScriptEncoding("UTF-8")
+                    .addScripts("schema.sql", "data.sql")
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.ImportResult;
+import ru.yandex.practicum.filmorate.storage.DAOImpl.DirectorDbStorage;
+import ru.yandex.practicum.filmorate.storage.DAOImpl.EventDbStorage;
+import ru.yandex.practicum.filmorate.storage.DAOImpl.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.DAOImpl.FriendshipDbStorage;
+import ru.yandex.practicum.filmorate.storage.DAOImpl.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.DAOImpl.ImportDbStorage;
+import ru.yandex.practicum.filmorate.storage.DAOImpl.LikeDbStorage;
+import ru.yandex.practicum.filmorate.storage.DAOImpl.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.DAOImpl.UserDbStorage;
+import ru.yandex.practicum.filmorate.storage.index.DirectorFilmsIndex;
+import ru.yandex.practicum.filmorate.storage.index.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.index.FilmTextIndex;
+import ru.yandex.practicum.filmorate.storage.index.FriendGraphIndex;
+import ru.yandex.practicum.filmorate.storage.index.FriendsTimelineIndex;
+import ru.yandex.practicum.filmorate.storage.index.LikeGraphIndex;
+import ru.yandex.practicum.filmorate.storage.index.MinHashIndex;
+import ru.yandex.practicum.filmorate.storage.index.UserLikesIndex;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@JdbcTest(properties = "filmorate.import.chunk-size=2")
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@ImportAutoConfiguration({JacksonAutoConfiguration.class, ValidationAutoConfiguration.class})
+@Import({ImportService.class, ImportDbStorage.class, FilmDbStorage.class, UserDbStorage.class, LikeDbStorage.class,
+        GenreDbStorage.class, MpaDbStorage.class, DirectorDbStorage.class, FilmPopularityIndex.class,
+        FilmSearchIndex.class, FilmTextIndex.class, UserLikesIndex.class, LikeGraphIndex.class, DirectorFilmsIndex.class,
+        RecommendationStore.class, MinHashIndex.class, FriendGraphIndex.class, FriendsTimelineIndex.class,
+        FriendshipDbStorage.class, EventDbStorage.class, FilmIndexes.class, FriendshipIndexes.class, EntityVersions.class})
+class ImportServiceTests {
+    private final ImportService importService;
+    private final FilmDbStorage filmStorage;
+    private final FilmPopularityIndex popularityIndex;
+    private final FriendsTimelineIndex timelineIndex;
+    private final EventDbStorage eventDbStorage;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void testImportFilmsReportsRecordErrors() {
+        ImportResult result = importService.importFilms(ndjson(
+                "{\"name\":\"Матрица\",\"description\":\"Нео\",\"releaseDate\":\"1999-03-31\",\"duration\":136," +
+                        "\"mpa\":{\"id\":4},\"genres\":[{\"id\":6},{\"id\":2}]}",
+                "",
+                "{\"name\":\"Кин-дза-дза!\",\"description\":\"Плюк\",\"releaseDate\":\"1986-12-01\",\"duration\":135," +
+                        "\"mpa\":{\"id\":1}}",
+                "{\"name\":\"Без жанра\",\"description\":\"-\",\"releaseDate\":\"2000-01-01\",\"duration\":90," +
+                        "\"mpa\":{\"id\":1},\"genres\":[{\"id\":999}]}",
+                "{\"name\":\"\",\"description\":\"-\",\"releaseDate\":\"2000-01-01\",\"duration\":90,\"mpa\":{\"id\":1}}",
+                "{не json",
+                "{\"name\":\"Солярис\",\"description\":\"Океан\",\"releaseDate\":\"1972-03-20\",\"duration\":167," +
+                        "\"mpa\":{\"id\":2}}"));
+
+        assertThat(result.getProcessed()).isEqualTo(6);
+        assertThat(result.getImported()).isEqualTo(3);
+        assertThat(result.getFailed()).isEqualTo(3);
+        assertThat(result.getErrors())
+                .extracting(ImportResult.RecordError::getLine)
+                .containsExactly(4L, 5L, 6L);
+        assertThat(result.getErrors().get(0).getMessage()).isEqualTo("Некорректный ID жанра: 999");
+
+        List<Film> films = filmStorage.getAllFilms();
+        assertThat(films).extracting(Film::getName).containsExactlyInAnyOrder("Матрица", "Кин-дза-дза!", "Солярис");
+        Long matrixId = films.stream().filter(film -> film.getName().equals("Матрица")).findFirst().orElseThrow().getId();
+        assertThat(jdbcTemplate.queryForList(
+                "SELECT genre_id FROM film_genre WHERE film_id = ? ORDER BY genre_id", Long.class, matrixId))
+                .containsExactly(2L, 6L);
+    }
+
+    @Test
+    public void testImportLikesUpdatesCountsAndSkipsDuplicates() {
+        importService.importFilms(ndjson(
+                "{\"name\":\"Сталкер\",\"description\":\"Зона\",\"releaseDate\":\"1979-05-25\",\"duration\":163," +
+                        "\"mpa\":{\"id\":2}}",
+                "{\"name\":\"Зеркало\",\"description\":\"Детство\",\"releaseDate\":\"1975-03-07\",\"duration\":108," +
+                        "\"mpa\":{\"id\":2}}"));
+        ImportResult users = importService.importUsers(ndjson(
+                "{\"email\":\"glasha@example.com\",\"login\":\"glasha\",\"birthday\":\"1995-04-20\"}",
+                "{\"email\":\"timofey@example.com\",\"login\":\"timofey\",\"name\":\"Тимофей\",\"birthday\":\"1990-07-15\"}",
+                "{\"email\":\"не почта\",\"login\":\"bad\",\"birthday\":\"1990-07-15\"}"));
+        assertThat(users.getImported()).isEqualTo(2);
+        assertThat(users.getFailed()).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT user_name FROM users WHERE login = 'glasha'", String.class))
+                .isEqualTo("glasha");
+
+        List<Long> filmIds = jdbcTemplate.queryForList("SELECT film_id FROM films ORDER BY film_id", Long.class);
+        List<Long> userIds = jdbcTemplate.queryForList("SELECT user_id FROM users ORDER BY user_id", Long.class);
+        long stalker = filmIds.get(0);
+        long mirror = filmIds.get(1);
+
+        ImportResult likes = importService.importLikes(ndjson(
+                like(userIds.get(0), stalker),
+                like(userIds.get(1), stalker),
+                like(userIds.get(0), stalker),
+                like(userIds.get(1), mirror),
+                like(userIds.get(1), 100_000L)));
+
+        assertThat(likes.getImported()).isEqualTo(3);
+        assertThat(likes.getSkipped()).isEqualTo(1);
+        assertThat(likes.getErrors())
+                .extracting(ImportResult.RecordError::getLine, ImportResult.RecordError::getMessage)
+                .containsExactly(tuple(5L, "Фильм с ID 100000 не найден."));
+        assertThat(jdbcTemplate.queryForObject("SELECT likes_count FROM films WHERE film_id = ?", Integer.class, stalker))
+                .isEqualTo(2);
+        assertThat(popularityIndex.getLikesCount(stalker)).isEqualTo(2);
+        assertThat(popularityIndex.getTopFilmIds(2, null, null)).containsExactly(stalker, mirror);
+    }
+
+    @Test
+    public void testImportFriendshipsConfirmsMutualRequests() {
+        importService.importUsers(ndjson(
+                "{\"email\":\"glasha@example.com\",\"login\":\"glasha\",\"birthday\":\"1995-04-20\"}",
+                "{\"email\":\"timofey@example.com\",\"login\":\"timofey\",\"birthday\":\"1990-07-15\"}",
+                "{\"email\":\"dasha@example.com\",\"login\":\"dasha\",\"birthday\":\"1992-01-10\"}"));
+        List<Long> userIds = jdbcTemplate.queryForList("SELECT user_id FROM users ORDER BY user_id", Long.class);
+
+        ImportResult result = importService.importFriendships(ndjson(
+                friendship(userIds.get(0), userIds.get(1)),
+                friendship(userIds.get(0), userIds.get(2)),
+                friendship(userIds.get(1), userIds.get(0)),
+                friendship(userIds.get(2), userIds.get(2))));
+
+        assertThat(result.getImported()).isEqualTo(3);
+        assertThat(result.getFailed()).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForList(
+                "SELECT status FROM friends WHERE sender_id = ? ORDER BY receiver_id", String.class, userIds.get(0)))
+                .containsExactly("CONFIRMED", "UNCONFIRMED");
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT status FROM friends WHERE sender_id = ? AND receiver_id = ?", String.class,
+                userIds.get(1), userIds.get(0)))
+                .isEqualTo("CONFIRMED");
+    }
+
+    @Test
+    public void testImportedFriendshipsReachTimeline() {
+        importService.importUsers(ndjson(
+                "{\"email\":\"glasha@example.com\",\"login\":\"glasha\",\"birthday\":\"1995-04-20\"}",
+                "{\"email\":\"timofey@example.com\",\"login\":\"timofey\",\"birthday\":\"1990-07-15\"}"));
+        List<Long> userIds = jdbcTemplate.queryForList("SELECT user_id FROM users ORDER BY user_id", Long.class);
+        Event event = new Event();
+        event.setUserId(userIds.get(1));
+        event.setTimestamp(System.currentTimeMillis());
+        event.setEventType(Event.EventType.LIKE);
+        event.setOperation(Event.Operation.ADD);
+        event.setEntityId(1L);
+        timelineIndex.onEventsWritten(eventDbStorage.createEvents(List.of(event)));
+
+        importService.importFriendships(ndjson(friendship(userIds.get(0), userIds.get(1))));
+
+        assertThat(timelineIndex.getTimeline(userIds.get(0), null, 10))
+                .extracting(Event::getUserId)
+                .containsExactly(userIds.get(1));
+    }
+
+    private static InputStream ndjson(String... lines) {
+        return new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String like(long userId, long filmId) {
+        return "{\"userId\":" + userId + ",\"filmId\":" + filmId + "}";
+    }
+
+    private static String friendship(long userId, long friendId) {
+        return "{\"userId\":" + userId + ",\"friendId\":" + friendId + "}";
+    }
+}
@@ -0,0 +1,131 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import ru.yandex.practicum.filmorate.model.LikeImport;
+import ru.yandex.practicum.filmorate.model.RecommendationStats;
+import ru.yandex.practicum.filmorate.storage.DAOImpl.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.DAOImpl.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.DAOImpl.LikeDbStorage;
+import ru.yandex.practicum.filmorate.storage.index.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.index.LikeGraphIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Лайки подаются напрямую в граф и хранилище, как это делает FilmService после записи в БД
+@JdbcTest(properties = {"filmorate.recommendations.workers=2", "filmorate.recommendations.top-n=2"})
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import({RecommendationStore.class, LikeGraphIndex.class, LikeDbStorage.class, FilmPopularityIndex.class,
+        FilmDbStorage.class, GenreDbStorage.class})
+class RecommendationStoreTests {
+    private final RecommendationStore recommendationStore;
+    private final LikeGraphIndex likeGraphIndex;
+
+    @BeforeEach
+    public void beforeEach() throws InterruptedException {
+        for (long userId = 1; userId <= 3; userId++) {
+            likeGraphIndex.onUserDeleted(userId);
+            recommendationStore.onUserDeleted(userId);
+        }
+        like(1, 10, 20);
+        like(2, 10, 20, 30, 40, 50);
+        like(3, 60);
+        awaitRecomputed();
+    }
+
+    @Test
+    public void testRecommendationsAreRecomputedInBackground() throws InterruptedException {
+        assertThat(recommendationStore.getFilmIds(1)).containsExactly(30L, 40L);
+        assertThat(recommendationStore.getFilmIds(3)).isEmpty();
+
+        // Новые общие лайки делают пользователя 3 похожим на 2, а рекомендации 1 теряют фильм 30
+        like(3, 30, 40, 50);
+        like(1, 30);
+        awaitRecomputed();
+        assertThat(recommendationStore.getFilmIds(3)).containsExactly(10L, 20L);
+        assertThat(recommendationStore.getFilmIds(1)).containsExactly(40L, 50L);
+
+        // Пользователь 1 выбран похожим для 2, поэтому снятие его лайка пересчитывает и 2
+        assertThat(recommendationStore.getFilmIds(2)).isEmpty();
+        likeGraphIndex.onUnlike(10, 1);
+        recommendationStore.onUnlike(10, 1);
+        awaitRecomputed();
+        assertThat(recommendationStore.getFilmIds(2)).containsExactly(60L);
+
+        RecommendationStats stats = recommendationStore.getStats();
+        assertThat(stats.getDirtyUsers()).isZero();
+        assertThat(stats.getRecomputed()).isPositive();
+        assertThat(stats.getMaxLagMillis()).isGreaterThanOrEqualTo(stats.getLastLagMillis());
+    }
+
+    @Test
+    public void testLikeMarksOnlyUsersWhoseNeighbourChanges() throws InterruptedException {
+        // У 1 и 2 по два общих лайка, а с пользователем 3 после лайка фильма 10 - только один
+        long recomputedBefore = recommendationStore.getStats().getRecomputed();
+        like(3, 10);
+        awaitRecomputed();
+
+        assertThat(recommendationStore.getStats().getRecomputed() - recomputedBefore).isEqualTo(1);
+        assertThat(recommendationStore.getFilmIds(1)).containsExactly(30L, 40L);
+    }
+
+    @Test
+    public void testDeletedUserIsRemovedFromDependents() throws InterruptedException {
+        likeGraphIndex.onUserDeleted(2);
+        recommendationStore.onUserDeleted(2);
+        awaitRecomputed();
+
+        assertThat(recommendationStore.getFilmIds(1)).isEmpty();
+        assertThat(recommendationStore.getFilmIds(2)).isEmpty();
+    }
+
+    @Test
+    public void testImportedLikesAreMarkedInOneBatch() throws InterruptedException {
+        List<LikeImport> likes = new ArrayList<>();
+        for (long filmId : new long[]{30, 40, 50}) {
+            likeGraphIndex.onLike(filmId, 3);
+            likes.add(newLike(3, filmId));
+        }
+        likeGraphIndex.onLike(30, 1);
+        likes.add(newLike(1, 30));
+        recommendationStore.onLikes(likes);
+        awaitRecomputed();
+
+        assertThat(recommendationStore.getFilmIds(3)).containsExactly(10L, 20L);
+        assertThat(recommendationStore.getFilmIds(1)).containsExactly(40L, 50L);
+    }
+
+    private static LikeImport newLike(long userId, long filmId) {
+        LikeImport like = new LikeImport();
+        like.setUserId(userId);
+        like.setFilmId(filmId);
+        return like;
+    }
+
+    private void like(long userId, long... filmIds) {
+        for (long filmId : filmIds) {
+            likeGraphIndex.onLike(filmId, userId);
+            recommendationStore.onLike(filmId, userId);
+        }
+    }
+
+    private void awaitRecomputed() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        // Разметка помечает пользователей до завершения, поэтому сначала проверяются разметки
+        while ((recommendationStore.getStats().getPendingFanOuts() > 0 || recommendationStore.getStats().getDirtyUsers() > 0)
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(recommendationStore.getStats().getPendingFanOuts()).isZero();
+        assertThat(recommendationStore.getStats().getDirtyUsers()).isZero();
+    }
+}
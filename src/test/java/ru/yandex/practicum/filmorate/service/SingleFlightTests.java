@@ -0,0 +1,86 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.SingleFlightStats;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTests {
+
+    @Test
+    public void testConcurrentCallsShareOneComputation() throws Exception {
+        SingleFlight<Long, String> singleFlight = new SingleFlight<>("test");
+        AtomicInteger computations = new AtomicInteger();
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            Future<String> leader = executor.submit(() -> singleFlight.execute(1L, () -> {
+                computations.incrementAndGet();
+                leaderStarted.countDown();
+                await(release);
+                return "film";
+            }));
+            assertThat(leaderStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+            List<Future<String>> followers = new ArrayList<>();
+            for (int i = 0; i < 7; i++) {
+                followers.add(executor.submit(() -> singleFlight.execute(1L, () -> {
+                    computations.incrementAndGet();
+                    return "other";
+                })));
+            }
+            // Ждём, пока все последователи присоединятся к выполняющемуся вычислению
+            while (singleFlight.getStats().getCoalesced() < 7) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+
+            assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("film");
+            for (Future<String> follower : followers) {
+                assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("film");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        SingleFlightStats stats = singleFlight.getStats();
+        assertThat(computations.get()).isEqualTo(1);
+        assertThat(stats.getLeaders()).isEqualTo(1);
+        assertThat(stats.getCoalesced()).isEqualTo(7);
+        assertThat(stats.getInFlight()).isZero();
+
+        // После завершения следующий вызов снова выполняет вычисление
+        assertThat(singleFlight.execute(1L, () -> "fresh")).isEqualTo("fresh");
+    }
+
+    @Test
+    public void testExceptionIsRethrownAndNotCached() {
+        SingleFlight<Long, String> singleFlight = new SingleFlight<>("test");
+
+        assertThatThrownBy(() -> singleFlight.execute(1L, () -> {
+            throw new NotFoundException("Фильм с ID 1 не найден.");
+        })).isInstanceOf(NotFoundException.class);
+        assertThat(singleFlight.execute(1L, () -> "film")).isEqualTo("film");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -63,5 +63,22 @@ class EventDbStorageTests {
 
         Assertions.assertThat(createdEvents).hasSize(1);
     }
-}
 
+    @Test
+    public void testGetEventsPageByCursor() {
+        for (long entityId = 1; entityId <= 5; entityId++) {
+            eventStorage.createEvent(user1.getId(), Event.EventType.LIKE, Event.Operation.ADD, entityId);
+        }
+
+        List<Event> firstPage = eventStorage.getEventsPage(user1.getId(), null, 2);
+        Assertions.assertThat(firstPage).extracting(Event::getEntityId).containsExactly(5L, 4L);
+
+        Long cursor = firstPage.get(firstPage.size() - 1).getEventId();
+        Assertions.assertThat(eventStorage.getEventsPage(user1.getId(), cursor, 10))
+                .extracting(Event::getEntityId)
+                .containsExactly(3L, 2L, 1L);
+        Assertions.assertThat(eventStorage.getAllEventsById(user1.getId()))
+                .extracting(Event::getEntityId)
+                .containsExactly(1L, 2L, 3L, 4L, 5L);
+    }
+}
@@ -95,6 +95,43 @@ class LikeDbStorageTests {
         assertThat(unliked).isTrue();
     }
 
+    @Test
+    public void testRepeatedLikeAndUnlike() {
+        assertThat(likeStorage.like(film1.getId(), user1.getId())).isTrue();
+        assertThat(likeStorage.like(film1.getId(), user1.getId())).isFalse();
+
+        assertThat(likeStorage.unlike(film1.getId(), user1.getId())).isTrue();
+        assertThat(likeStorage.unlike(film1.getId(), user1.getId())).isFalse();
+    }
+
+    @Test
+    public void testLikesCountMaintainedForPopularFilms() {
+        likeStorage.like(film2.getId(), user1.getId());
+        likeStorage.like(film2.getId(), user2.getId());
+        likeStorage.like(film2.getId(), user2.getId());
+        likeStorage.like(film1.getId(), user1.getId());
+
+        assertThat(likeStorage.getLikesCountByFilm())
+                .containsEntry(film1.getId(), 1)
+                .containsEntry(film2.getId(), 2);
+        assertThat(filmStorage.getPopularFilms(10, null, null))
+                .extracting(Film::getName)
+                .containsExactly("Silo", "Interstellar");
+        assertThat(filmStorage.getPopularFilms(10, null, 2014))
+                .extracting(Film::getName)
+                .containsExactly("Interstellar");
+
+        likeStorage.unlike(film2.getId(), user1.getId());
+        userStorage.deleteUser(user2.getId());
+
+        assertThat(likeStorage.getLikesCountByFilm())
+                .containsEntry(film1.getId(), 1)
+                .doesNotContainKey(film2.getId());
+        assertThat(filmStorage.getPopularFilms(1, null, null))
+                .extracting(Film::getName)
+                .containsExactly("Interstellar");
+    }
+
     @Test
     public void testGetLikesByFilmId() {
         List<Long> likes = likeStorage.getLikesByFilmId(film1.getId());
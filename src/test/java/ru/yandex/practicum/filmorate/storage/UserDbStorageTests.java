@@ -89,4 +89,15 @@ class UserDbStorageTests {
         List<User> users = userStorage.getAllUsers();
         assertThat(users).hasSize(2);
     }
+
+    @Test
+    public void testGetUsersPage() {
+        List<User> firstPage = userStorage.getUsersPage(null, 1);
+        assertThat(firstPage).extracting(User::getId).containsExactly(user1.getId());
+
+        List<User> secondPage = userStorage.getUsersPage(firstPage.get(0).getId(), 10);
+        assertThat(secondPage).extracting(User::getId).containsExactly(user2.getId());
+
+        assertThat(userStorage.getUsersPage(user2.getId(), 10)).isEmpty();
+    }
 }
\ No newline at end of file
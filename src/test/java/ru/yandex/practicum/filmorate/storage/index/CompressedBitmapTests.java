@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompressedBitmapTests {
+
+    @Test
+    public void testAddRemoveAndIntersect() {
+        CompressedBitmap sparse = CompressedBitmap.of(1, 5, 70_000, 5);
+        assertThat(sparse.cardinality()).isEqualTo(3);
+        assertThat(sparse.contains(70_000)).isTrue();
+        assertThat(sparse.with(5)).isSameAs(sparse);
+
+        CompressedBitmap updated = sparse.with(7).without(1);
+        assertThat(toList(updated)).containsExactly(5, 7, 70_000);
+        assertThat(toList(sparse)).containsExactly(1, 5, 70_000);
+
+        assertThat(toList(updated.and(CompressedBitmap.of(7, 70_000, 100_000)))).containsExactly(7, 70_000);
+        assertThat(updated.and(CompressedBitmap.of(2, 3)).isEmpty()).isTrue();
+
+        assertThat(toList(updated.withAll(3, 7, 200_000))).containsExactly(3, 5, 7, 70_000, 200_000);
+        assertThat(updated.withAll()).isSameAs(updated);
+    }
+
+    @Test
+    public void testDenseBlocks() {
+        // Больше 4096 значений в блоке - блок хранится битовой картой
+        CompressedBitmap evens = CompressedBitmap.of(IntStream.range(0, 20_000).map(i -> i * 2).toArray());
+        CompressedBitmap multiplesOfThree = CompressedBitmap.of(IntStream.range(0, 20_000).map(i -> i * 3).toArray());
+
+        CompressedBitmap common = evens.and(multiplesOfThree);
+        assertThat(common.cardinality()).isEqualTo(IntStream.range(0, 40_000).filter(i -> i % 6 == 0).count());
+        assertThat(common.contains(6)).isTrue();
+        assertThat(common.contains(4)).isFalse();
+
+        CompressedBitmap grown = evens.with(1);
+        assertThat(grown.cardinality()).isEqualTo(20_001);
+        assertThat(grown.without(1).without(0).cardinality()).isEqualTo(19_999);
+    }
+
+    private static List<Integer> toList(CompressedBitmap bitmap) {
+        List<Integer> values = new ArrayList<>();
+        bitmap.forEach(values::add);
+        return values;
+    }
+}
@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import ru.yandex.practicum.filmorate.storage.DAOImpl.FriendshipDbStorage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Маленький порог уплотнения: часть изменений читается из наложения, часть - из пересобранного CSR
+@JdbcTest(properties = "filmorate.friend-graph.compact-threshold=3")
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import({FriendGraphIndex.class, FriendshipDbStorage.class})
+class FriendGraphIndexTests {
+    private final FriendGraphIndex friendGraphIndex;
+
+    @BeforeEach
+    public void beforeEach() {
+        friendGraphIndex.load();
+        friend(1, 2, 3, 4);
+        friend(2, 1, 5, 6);
+        friend(3, 5, 6);
+        friend(4, 6, 7);
+    }
+
+    @Test
+    public void testFriendsAndCommonFriendsFollowChanges() {
+        assertThat(friendGraphIndex.getFriends(1)).containsExactly(2, 3, 4);
+        assertThat(friendGraphIndex.getCommonFriends(2, 3)).containsExactly(5, 6);
+
+        friendGraphIndex.onFriendRemoved(2, 5);
+        friendGraphIndex.onFriendAdded(2, 3);
+        friendGraphIndex.onFriendAdded(2, 3);
+        assertThat(friendGraphIndex.getFriends(2)).containsExactly(1, 3, 6);
+        assertThat(friendGraphIndex.getCommonFriends(2, 3)).containsExactly(6);
+        assertThat(friendGraphIndex.getCommonFriends(2, 99)).isEmpty();
+
+        friendGraphIndex.onUserDeleted(6);
+        assertThat(friendGraphIndex.getFriends(3)).containsExactly(5);
+        assertThat(friendGraphIndex.getFriends(6)).isEmpty();
+        assertThat(friendGraphIndex.getSuggestions(1, 10)).extracting(FriendGraphIndex.MutualCount::userId)
+                .containsExactly(5L, 7L);
+    }
+
+    @Test
+    public void testSuggestionsRankedByMutualFriends() {
+        // 6 - друг троих друзей пользователя 1, 5 - двоих, 7 - одного; 1 и его друзья не предлагаются
+        assertThat(friendGraphIndex.getSuggestions(1, 10)).containsExactly(
+                new FriendGraphIndex.MutualCount(6, 3),
+                new FriendGraphIndex.MutualCount(5, 2),
+                new FriendGraphIndex.MutualCount(7, 1));
+        assertThat(friendGraphIndex.getSuggestions(1, 2)).containsExactly(
+                new FriendGraphIndex.MutualCount(6, 3),
+                new FriendGraphIndex.MutualCount(5, 2));
+        assertThat(friendGraphIndex.getSuggestions(1, 1)).hasSize(1);
+
+        friendGraphIndex.onFriendAdded(1, 6);
+        assertThat(friendGraphIndex.getSuggestions(1, 10)).extracting(FriendGraphIndex.MutualCount::userId)
+                .containsExactly(5L, 7L);
+        assertThat(friendGraphIndex.getSuggestions(7, 10)).isEmpty();
+    }
+
+    private void friend(long userId, long... friendIds) {
+        for (long friendId : friendIds) {
+            friendGraphIndex.onFriendAdded(userId, friendId);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.DAOImpl.EventDbStorage;
+import ru.yandex.practicum.filmorate.storage.DAOImpl.FriendshipDbStorage;
+import ru.yandex.practicum.filmorate.storage.DAOImpl.UserDbStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// События пишутся в БД и передаются в хук индекса, как это делает хранилище событий
+@JdbcTest(properties = {"filmorate.timeline.capacity=3", "filmorate.timeline.fan-out-threshold=1"})
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import({FriendsTimelineIndex.class, EventDbStorage.class, FriendshipDbStorage.class, UserDbStorage.class})
+class FriendsTimelineIndexTests {
+    private final FriendsTimelineIndex timelineIndex;
+    private final EventDbStorage eventDbStorage;
+    private final UserDbStorage userStorage;
+
+    private long reader;
+    private long friend;
+    private long popular;
+    private long otherReader;
+
+    @BeforeEach
+    public void beforeEach() {
+        reader = createUser("reader");
+        friend = createUser("friend");
+        popular = createUser("popular");
+        otherReader = createUser("other");
+        timelineIndex.onFriendAdded(reader, friend);
+        timelineIndex.onFriendAdded(reader, popular);
+        // Второй подписчик превышает порог: события популярного автора сливаются при чтении
+        timelineIndex.onFriendAdded(otherReader, popular);
+    }
+
+    @Test
+    public void testTimelineMergesFanOutAndReadTimeAuthors() {
+        write(friend, 10L);
+        write(popular, 20L);
+        write(friend, 11L);
+        write(reader, 99L);
+
+        assertThat(entityIds(timelineIndex.getTimeline(reader, null, 10))).containsExactly(11L, 20L, 10L);
+        assertThat(entityIds(timelineIndex.getTimeline(otherReader, null, 10))).containsExactly(20L);
+
+        List<Event> firstPage = timelineIndex.getTimeline(reader, null, 2);
+        assertThat(entityIds(firstPage)).containsExactly(11L, 20L);
+        Long cursor = firstPage.get(1).getEventId();
+        assertThat(entityIds(timelineIndex.getTimeline(reader, cursor, 2))).containsExactly(10L);
+    }
+
+    @Test
+    public void testTimelineIsBoundedAndFollowsFriendships() {
+        for (long entityId = 1; entityId <= 5; entityId++) {
+            write(friend, entityId);
+        }
+        assertThat(entityIds(timelineIndex.getTimeline(reader, null, 10))).containsExactly(5L, 4L, 3L);
+
+        timelineIndex.onFriendRemoved(reader, friend);
+        assertThat(timelineIndex.getTimeline(reader, null, 10)).isEmpty();
+
+        // Новый друг появляется в ленте вместе со своими последними событиями из БД
+        timelineIndex.onFriendAdded(reader, friend);
+        assertThat(entityIds(timelineIndex.getTimeline(reader, null, 10))).containsExactly(5L, 4L, 3L);
+    }
+
+    private long createUser(String login) {
+        User user = new User();
+        user.setEmail(login + "@example.com");
+        user.setLogin(login);
+        user.setName(login);
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return userStorage.createUser(user).getId();
+    }
+
+    private void write(long userId, long entityId) {
+        Event event = new Event();
+        event.setUserId(userId);
+        event.setTimestamp(System.currentTimeMillis());
+        event.setEventType(Event.EventType.LIKE);
+        event.setOperation(Event.Operation.ADD);
+        event.setEntityId(entityId);
+        timelineIndex.onEventsWritten(eventDbStorage.createEvents(List.of(event)));
+    }
+
+    private static List<Long> entityIds(List<Event> events) {
+        return events.stream().map(Event::getEntityId).toList();
+    }
+}
@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import ru.yandex.practicum.filmorate.model.ItemSimilarityStats;
+import ru.yandex.practicum.filmorate.storage.DAOImpl.LikeDbStorage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Матрица собирается явным вызовом rebuild, фоновая проверка отложена на час
+@JdbcTest(properties = {"filmorate.item-similarity.top-k=2", "filmorate.item-similarity.parallelism=2",
+        "filmorate.item-similarity.rebuild-interval=1h"})
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import({ItemSimilarityIndex.class, LikeGraphIndex.class, LikeDbStorage.class})
+class ItemSimilarityIndexTests {
+    private final ItemSimilarityIndex itemSimilarityIndex;
+    private final LikeGraphIndex likeGraphIndex;
+
+    @BeforeEach
+    public void beforeEach() {
+        likeGraphIndex.getUsers().forEach(likeGraphIndex::onUserDeleted);
+    }
+
+    @Test
+    public void testNeighboursAndRecommendationsByCosine() {
+        like(1, 1, 2, 3);
+        like(2, 1, 2);
+        like(3, 2, 4);
+        like(4, 1);
+        itemSimilarityIndex.rebuild();
+
+        // Сходство 1-2 = 2/3, остальные ненулевые пары = 1/√3; при равенстве выше меньший ID
+        assertThat(itemSimilarityIndex.getNeighbours(1)).containsExactly(2L, 3L);
+        assertThat(itemSimilarityIndex.getNeighbours(2)).containsExactly(1L, 3L);
+        assertThat(itemSimilarityIndex.getNeighbours(4)).containsExactly(2L);
+
+        assertThat(itemSimilarityIndex.recommend(4)).containsExactly(2L, 3L);
+        assertThat(itemSimilarityIndex.recommend(3)).containsExactly(1L, 3L);
+        assertThat(itemSimilarityIndex.recommend(5)).isEmpty();
+
+        ItemSimilarityStats stats = itemSimilarityIndex.getStats();
+        assertThat(stats.getFilms()).isEqualTo(4);
+        assertThat(stats.getNeighbours()).isEqualTo(7);
+        assertThat(stats.isStale()).isFalse();
+        assertThat(stats.getQueries()).isGreaterThanOrEqualTo(3);
+
+        like(5, 4);
+        assertThat(itemSimilarityIndex.getStats().isStale()).isTrue();
+    }
+
+    @Test
+    public void testParallelBuildOverManyFilmRanges() {
+        // Цепочка: пользователь k лайкает фильмы k и k+1, поэтому соседи фильма - предыдущий и следующий
+        for (int userId = 1; userId < 1000; userId++) {
+            like(userId, userId, userId + 1);
+        }
+        itemSimilarityIndex.rebuild();
+
+        assertThat(itemSimilarityIndex.getStats().getFilms()).isEqualTo(1000);
+        assertThat(itemSimilarityIndex.getNeighbours(1)).containsExactly(2L);
+        assertThat(itemSimilarityIndex.getNeighbours(500)).containsExactly(499L, 501L);
+        assertThat(itemSimilarityIndex.getNeighbours(1000)).containsExactly(999L);
+    }
+
+    private void like(long userId, long... filmIds) {
+        for (long filmId : filmIds) {
+            likeGraphIndex.onLike(filmId, userId);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import ru.yandex.practicum.filmorate.model.LikeImport;
+import ru.yandex.practicum.filmorate.storage.DAOImpl.LikeDbStorage;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Граф заполняется только через хуки, поэтому записи в БД не нужны
+@JdbcTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import({LikeGraphIndex.class, LikeDbStorage.class})
+class LikeGraphIndexTests {
+    private final LikeGraphIndex likeGraphIndex;
+
+    @BeforeEach
+    public void beforeEach() {
+        for (long userId = 1; userId <= 4; userId++) {
+            likeGraphIndex.onUserDeleted(userId);
+        }
+        like(1, 10, 20, 30);
+        like(2, 10, 40);
+        like(3, 10, 20, 50, 60);
+        like(4, 70);
+    }
+
+    @Test
+    public void testFindNeighbourByPostingMerge() {
+        assertThat(likeGraphIndex.getFilmIds(1)).containsExactly(10, 20, 30);
+        assertThat(likeGraphIndex.getUserIds(10)).containsExactly(1, 2, 3);
+
+        assertThat(likeGraphIndex.findNeighbour(1)).isEqualTo(new LikeGraphIndex.Neighbour(3, 2));
+        // При равном числе общих лайков выбирается пользователь с меньшим ID
+        assertThat(likeGraphIndex.findNeighbour(2)).isEqualTo(new LikeGraphIndex.Neighbour(1, 1));
+        assertThat(likeGraphIndex.findNeighbour(4)).isEqualTo(new LikeGraphIndex.Neighbour(-1, 0));
+
+        assertThat(likeGraphIndex.getMissingFilmIds(1, 3)).containsExactly(50L, 60L);
+        assertThat(likeGraphIndex.getMissingFilmIds(3, 1)).containsExactly(30L);
+        assertThat(likeGraphIndex.countCommon(1, 3)).isEqualTo(2);
+    }
+
+    @Test
+    public void testBatchLikesMergeIntoSortedArrays() {
+        likeGraphIndex.onLikes(List.of(newLike(4, 10), newLike(4, 5), newLike(2, 20), newLike(4, 10)));
+
+        assertThat(likeGraphIndex.getFilmIds(4)).containsExactly(5, 10, 70);
+        assertThat(likeGraphIndex.getUserIds(10)).containsExactly(1, 2, 3, 4);
+        assertThat(likeGraphIndex.getUserIds(20)).containsExactly(1, 2, 3);
+        assertThat(likeGraphIndex.getUserIds(5)).containsExactly(4);
+    }
+
+    @Test
+    public void testGraphFollowsUnlikeAndDeletes() {
+        likeGraphIndex.onUnlike(20, 3);
+        likeGraphIndex.onUnlike(20, 1);
+        assertThat(likeGraphIndex.getUserIds(20)).isEmpty();
+        assertThat(likeGraphIndex.findNeighbour(1).userId()).isEqualTo(2);
+
+        likeGraphIndex.onFilmDeleted(10);
+        assertThat(likeGraphIndex.getFilmIds(2)).containsExactly(40);
+        assertThat(likeGraphIndex.findNeighbour(1).userId()).isEqualTo(-1);
+
+        likeGraphIndex.onUserDeleted(3);
+        assertThat(likeGraphIndex.getUserIds(50)).isEmpty();
+    }
+
+    private void like(long userId, long... filmIds) {
+        for (long filmId : filmIds) {
+            likeGraphIndex.onLike(filmId, userId);
+        }
+    }
+
+    private static LikeImport newLike(long userId, long filmId) {
+        LikeImport like = new LikeImport();
+        like.setUserId(userId);
+        like.setFilmId(filmId);
+        return like;
+    }
+}
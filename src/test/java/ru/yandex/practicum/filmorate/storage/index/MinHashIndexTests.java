@@ -0,0 +1,111 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.MinHashEvaluation;
+import ru.yandex.practicum.filmorate.storage.DAOImpl.LikeDbStorage;
+import ru.yandex.practicum.filmorate.validation.ValidationException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@JdbcTest(properties = {"filmorate.minhash.hashes=64", "filmorate.minhash.bands=32"})
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import({MinHashIndex.class, LikeGraphIndex.class, LikeDbStorage.class})
+class MinHashIndexTests {
+    private final MinHashIndex minHashIndex;
+    private final LikeGraphIndex likeGraphIndex;
+
+    @BeforeEach
+    public void beforeEach() {
+        for (Long userId : likeGraphIndex.getUsers()) {
+            likeGraphIndex.onUserDeleted(userId);
+            minHashIndex.onUserDeleted(userId);
+        }
+        // Группы пользователей с почти одинаковыми лайками: пользователь 100 * g + k лайкает фильмы группы g
+        for (int group = 1; group <= 5; group++) {
+            for (int member = 0; member < 4; member++) {
+                long userId = 100L * group + member;
+                for (int film = 0; film < 10 - member; film++) {
+                    like(userId, 1000L * group + film);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testApproxNeighbourMatchesExactForSimilarUsers() {
+        LikeGraphIndex.Neighbour approx = minHashIndex.findNeighbour(101);
+        assertThat(approx).isEqualTo(likeGraphIndex.findNeighbour(101));
+        assertThat(approx.userId()).isEqualTo(100);
+
+        MinHashEvaluation evaluation = minHashIndex.evaluate(100, null, null);
+        assertThat(evaluation.getSampledUsers()).isEqualTo(20);
+        assertThat(evaluation.getRecall()).isEqualTo(1.0);
+        assertThat(evaluation.getRowsPerBand()).isEqualTo(2);
+        assertThat(evaluation.getBuildMillis()).isZero();
+    }
+
+    @Test
+    public void testSignaturesFollowLikeChanges() {
+        // Пользователь 103 переходит в группу 2: после снятия лайков его соседи - только из новой группы
+        for (int film = 0; film < 7; film++) {
+            likeGraphIndex.onUnlike(1000L + film, 103);
+            minHashIndex.onUnlike(1000L + film, 103);
+        }
+        for (int film = 0; film < 10; film++) {
+            like(103, 2000L + film);
+        }
+        assertThat(minHashIndex.findNeighbour(103).userId()).isEqualTo(200);
+
+        // Инкрементально обновлённые сигнатуры совпадают с построенными заново на тех же параметрах
+        MinHashEvaluation live = minHashIndex.evaluate(100, null, null);
+        MinHashEvaluation rebuilt = minHashIndex.evaluate(100, 64, 32);
+        assertThat(live.getRecall()).isEqualTo(rebuilt.getRecall());
+        assertThat(live.getAvgCandidates()).isEqualTo(rebuilt.getAvgCandidates());
+
+        minHashIndex.onUserDeleted(200);
+        likeGraphIndex.onUserDeleted(200);
+        assertThat(minHashIndex.findNeighbour(103).userId()).isEqualTo(201);
+    }
+
+    @Test
+    public void testEvaluateOtherParameters() {
+        MinHashEvaluation evaluation = minHashIndex.evaluate(10, 16, 4);
+        assertThat(evaluation.getSampledUsers()).isEqualTo(10);
+        assertThat(evaluation.getRowsPerBand()).isEqualTo(4);
+
+        assertThatThrownBy(() -> minHashIndex.evaluate(10, 10, 3)).isInstanceOf(ValidationException.class);
+    }
+
+    @Test
+    public void testCustomEvaluationRunsInBackground() throws InterruptedException {
+        assertThatThrownBy(() -> minHashIndex.startEvaluation(10, 10, 3)).isInstanceOf(ValidationException.class);
+
+        minHashIndex.startEvaluation(10, 16, 4);
+        long deadline = System.currentTimeMillis() + 5000;
+        MinHashEvaluation evaluation = null;
+        while (evaluation == null && System.currentTimeMillis() < deadline) {
+            try {
+                evaluation = minHashIndex.getCustomEvaluation();
+            } catch (NotFoundException e) {
+                Thread.sleep(10);
+            }
+        }
+        assertThat(evaluation).isNotNull();
+        assertThat(evaluation.getHashes()).isEqualTo(16);
+        assertThat(evaluation.getSampledUsers()).isEqualTo(10);
+    }
+
+    private void like(long userId, long filmId) {
+        likeGraphIndex.onLike(filmId, userId);
+        minHashIndex.onLike(filmId, userId);
+    }
+}
@@ -0,0 +1,98 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.DAOImpl.EventDbStorage;
+import ru.yandex.practicum.filmorate.storage.DAOImpl.FriendshipDbStorage;
+import ru.yandex.practicum.filmorate.storage.DAOImpl.UserDbStorage;
+import ru.yandex.practicum.filmorate.storage.index.FriendsTimelineIndex;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Журнал пишет в БД из своего потока, поэтому тесты работают без общей транзакции и чистят таблицы сами
+@JdbcTest(properties = {
+        "filmorate.events.write-behind.capacity=4",
+        "filmorate.events.write-behind.batch-size=3",
+        "filmorate.events.write-behind.flush-interval=1h"})
+@AutoConfigureTestDatabase
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import({WriteBehindEventStorage.class, EventDbStorage.class, UserDbStorage.class, FriendshipDbStorage.class,
+        FriendsTimelineIndex.class})
+class WriteBehindEventStorageTests {
+    private final WriteBehindEventStorage eventStorage;
+    private final UserDbStorage userStorage;
+    private final JdbcTemplate jdbcTemplate;
+
+    private User user;
+
+    @BeforeEach
+    public void beforeEach() {
+        user = new User();
+        user.setEmail("glasha@example.com");
+        user.setLogin("glasha");
+        user.setName("Глаша");
+        user.setBirthday(LocalDate.of(1995, 4, 20));
+        userStorage.createUser(user);
+    }
+
+    @AfterEach
+    public void afterEach() {
+        eventStorage.flush();
+        jdbcTemplate.update("DELETE FROM users");
+    }
+
+    @Test
+    public void testOwnEventsVisibleBeforeBackgroundFlush() {
+        eventStorage.createEvent(user.getId(), Event.EventType.LIKE, Event.Operation.ADD, 1L);
+        eventStorage.createEvent(user.getId(), Event.EventType.LIKE, Event.Operation.REMOVE, 1L);
+
+        assertThat(eventStorage.getAllEventsById(user.getId()))
+                .extracting(Event::getOperation)
+                .containsExactly(Event.Operation.ADD, Event.Operation.REMOVE);
+    }
+
+    @Test
+    public void testFullJournalFlushesOnCallerThread() {
+        for (long filmId = 1; filmId <= 10; filmId++) {
+            eventStorage.createEvent(user.getId(), Event.EventType.LIKE, Event.Operation.ADD, filmId);
+            // В журнале никогда не больше capacity незаписанных событий
+            assertThat(filmId - countEvents()).isLessThanOrEqualTo(4);
+        }
+
+        eventStorage.stop();
+        eventStorage.start();
+
+        assertThat(jdbcTemplate.queryForList("SELECT entity_id FROM events WHERE user_id = ? ORDER BY event_id",
+                Long.class, user.getId()))
+                .containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L);
+    }
+
+    @Test
+    public void testEventsAfterStopAreWrittenImmediately() {
+        eventStorage.stop();
+        try {
+            eventStorage.createEvent(user.getId(), Event.EventType.LIKE, Event.Operation.ADD, 1L);
+            assertThat(countEvents()).isEqualTo(1);
+        } finally {
+            eventStorage.start();
+        }
+    }
+
+    private long countEvents() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM events WHERE user_id = ?", Long.class, user.getId());
+    }
+}